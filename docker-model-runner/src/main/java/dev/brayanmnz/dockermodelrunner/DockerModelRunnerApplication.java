@@ -1,29 +1,88 @@
 package dev.brayanmnz.dockermodelrunner;
 
+import dev.brayanmnz.common.batch.BatchRunner;
+import dev.brayanmnz.common.execution.ModelCallExecutor;
+import dev.brayanmnz.common.metrics.LlmMetricsAdvisor;
+import dev.brayanmnz.common.warmup.ModelWarmup;
+import dev.brayanmnz.common.warmup.ModelWarmupProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.List;
 
 @SpringBootApplication
+@EnableScheduling
+@Import({ModelCallExecutor.class, BatchRunner.class})
 public class DockerModelRunnerApplication {
 
     Logger logger = LoggerFactory.getLogger(DockerModelRunnerApplication.class);
 
     public static void main(String[] args) {
-        SpringApplication.run(DockerModelRunnerApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(DockerModelRunnerApplication.class, args);
+        if (!(context instanceof WebServerApplicationContext)) {
+            // Nothing is served once the runner is done, but the scheduler threads would keep the JVM running
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    @Bean
+    ChatClient chatClient(ChatClient.Builder builder, MeterRegistry meterRegistry, ModelWarmup modelWarmup) {
+        return builder
+                .defaultAdvisors(new LlmMetricsAdvisor(meterRegistry, "docker-model-runner"),
+                        modelWarmup.activityAdvisor())
+                .build();
+    }
+
+    @Bean
+    ModelWarmupProperties modelWarmupProperties(Environment environment) {
+        return Binder.get(environment)
+                .bind("model.warmup", ModelWarmupProperties.class)
+                .orElseGet(ModelWarmupProperties::new);
+    }
+
+    @Bean
+    ModelWarmup modelWarmup(ChatModel chatModel, ModelWarmupProperties modelWarmupProperties) {
+        // A single generated token: the point is loading the weights, not the answer
+        Prompt prompt = new Prompt("Hello", OpenAiChatOptions.builder().maxTokens(1).build());
+        String model = chatModel.getDefaultOptions().getModel();
+        return new ModelWarmup(List.of(new ModelWarmup.Target(model, chatModel::call, prompt)),
+                modelWarmupProperties);
     }
 
     @Bean
-    CommandLineRunner commandLineRunner(ChatClient.Builder builder) {
+    CommandLineRunner commandLineRunner(ChatClient chatClient, ModelCallExecutor modelCallExecutor,
+                                        BatchRunner batchRunner, ModelWarmup modelWarmup,
+                                        ModelWarmupProperties modelWarmupProperties) {
         return args -> {
-            var res = builder.build()
+            // Keeps the model load out of the first answers (and out of a batch's latency summary)
+            if (!modelWarmup.awaitWarm(modelWarmupProperties.getTimeout())) {
+                logger.warn("Model not warm after {}, starting anyway", modelWarmupProperties.getTimeout());
+            }
+            if (batchRunner.isEnabled()) {
+                batchRunner.run();
+                return;
+            }
+            long submittedAt = System.nanoTime();
+            var res = modelCallExecutor.call(() -> chatClient
                     .prompt("When was Java created?")
+                    .advisors(advisor -> advisor.param(LlmMetricsAdvisor.SUBMITTED_AT, submittedAt))
                     .call()
-                    .content();
+                    .content());
 
             logger.info(res);
         };
@@ -0,0 +1,29 @@
+package dev.brayanmnz.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the usual JMH command line and, unless a result format is
+ * given, writes the results as JSON to {@code target/jmh-result.json} so runs of different releases can be
+ * compared (for example with jmh.morethan.io).
+ * <p>
+ * {@code java -jar llm-benchmarks/target/benchmarks.jar ConversationContextBenchmark -p historySize=1000}
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.addAll(List.of("-rf", "json"));
+        }
+        if (!arguments.contains("-rff")) {
+            arguments.addAll(List.of("-rff", "target/jmh-result.json"));
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(String[]::new));
+    }
+}
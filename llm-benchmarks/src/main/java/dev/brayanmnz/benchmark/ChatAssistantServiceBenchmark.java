@@ -0,0 +1,113 @@
+package dev.brayanmnz.benchmark;
+
+import dev.brayanmnz.service.ChatAssistantServiceImpl;
+import dev.brayanmnz.service.ChatClientRegistry;
+import dev.brayanmnz.service.ChatExecution;
+import dev.brayanmnz.service.GenerationGuard;
+import dev.brayanmnz.service.GenerationTracker;
+import dev.brayanmnz.service.PromptAssembler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end overhead of {@link ChatAssistantServiceImpl#streamChatResponse} (client lookup, prompt assembly,
+ * advisors, concurrency limit and generation tracking) against an in-process model that streams a fixed answer
+ * without any delay, so the model itself costs next to nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatAssistantServiceBenchmark {
+
+    @Param({"1", "64"})
+    private int answerChunks;
+
+    @Param({"0", "40"})
+    private int historySize;
+
+    private ChatExecution chatExecution;
+    private ChatAssistantServiceImpl service;
+    private List<Message> history;
+
+    @Setup
+    public void setUp() {
+        List<ChatResponse> answer = new ArrayList<>(answerChunks);
+        for (int i = 0; i < answerChunks; i++) {
+            answer.add(new ChatResponse(List.of(new Generation(new AssistantMessage(" palabra" + i)))));
+        }
+        ChatModel model = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                return answer.getLast();
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return Flux.fromIterable(answer);
+            }
+        };
+        ChatClient.Builder builder = ChatClient.builder(model)
+                .defaultOptions(OllamaOptions.builder().model("gemma3:4b").build());
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GenerationTracker generationTracker = new GenerationTracker(
+                new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry))
+                        .getBeanProvider(MeterRegistry.class), 256);
+        chatExecution = new ChatExecution(false, 8);
+        GenerationGuard generationGuard = new GenerationGuard(
+                new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry))
+                        .getBeanProvider(MeterRegistry.class), 1024, Duration.ofMinutes(2), 10, 3);
+        service = new ChatAssistantServiceImpl(new ChatClientRegistry(builder, new StandardEnvironment()),
+                new PromptAssembler("Eres un asistente financiero."), chatExecution, generationTracker,
+                generationGuard);
+
+        history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            history.add(i % 2 == 0
+                    ? new UserMessage("¿Cuál es la comisión de la cuenta " + i + "?")
+                    : new AssistantMessage("La comisión de la cuenta " + i + " es de 2 € al mes."));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        chatExecution.destroy();
+    }
+
+    @Benchmark
+    public List<String> streamChatResponse() {
+        return service.streamChatResponse("¿Cómo abro una cuenta?", history).collectList().block();
+    }
+}
@@ -0,0 +1,69 @@
+package dev.brayanmnz.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a {@link ChatClient} on every request (the previous {@code ChatAssistantServiceImpl}
+ * behaviour) against reusing one pre-built client, using an in-process model so only client overhead is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatClientBuildBenchmark {
+
+    private ChatClient.Builder builder;
+    private ChatClient pooledClient;
+
+    @Setup
+    public void setUp() {
+        ChatModel model = new ChatModel() {
+            private final ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                return response;
+            }
+        };
+        builder = ChatClient.builder(model)
+                .defaultOptions(OllamaOptions.builder().model("gemma3:4b").temperature(0.7).build());
+        pooledClient = builder.clone().build();
+    }
+
+    @Benchmark
+    public String perRequestBuild() {
+        return builder.build()
+                .prompt("¿Cómo abro una cuenta?")
+                .call()
+                .content();
+    }
+
+    @Benchmark
+    public String pooledClient() {
+        return pooledClient
+                .prompt("¿Cómo abro una cuenta?")
+                .call()
+                .content();
+    }
+}
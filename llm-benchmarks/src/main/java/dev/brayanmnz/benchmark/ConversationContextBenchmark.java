@@ -0,0 +1,104 @@
+package dev.brayanmnz.benchmark;
+
+import com.vaadin.collaborationengine.UserInfo;
+import com.vaadin.flow.component.messages.MessageListItem;
+import dev.brayanmnz.service.ConversationContext;
+import dev.brayanmnz.service.ConversationContext.ContextWindow;
+import dev.brayanmnz.service.ConversationContextManager;
+import dev.brayanmnz.service.TokenEstimator;
+import dev.brayanmnz.views.chat.MessageListItems;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the model context of a new turn from histories of 10 to 10,000 messages.
+ * {@code convertUiHistory} is the former {@code ChatView.convertToSpringAIMessages}, which copied the UI history
+ * and converted every item on every turn; {@code contextWindow} and {@code appendAndWindow} use the
+ * {@link ConversationContext} that replaced it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversationContextBenchmark {
+
+    private static final UserInfo USER = new UserInfo("user", "Brayan Muñoz");
+    private static final UserInfo ASSISTANT = new UserInfo("ai", "AI Assistant");
+
+    @Param({"10", "100", "1000", "10000"})
+    private int historySize;
+
+    private List<MessageListItem> uiHistory;
+    private ConversationContextManager contextManager;
+    private ConversationContext context;
+
+    @Setup(Level.Trial)
+    public void setUpHistory() {
+        uiHistory = new ArrayList<>(historySize);
+        contextManager = new ConversationContextManager(new TokenEstimator(), 4096, 0.75);
+        for (int i = 0; i < historySize; i++) {
+            boolean isAssistant = i % 2 == 1;
+            String text = isAssistant
+                    ? "La comisión de mantenimiento de la cuenta " + i + " es de 2 € al mes."
+                    : "¿Cuál es la comisión de la cuenta " + i + "?";
+            uiHistory.add(MessageListItems.create(text, isAssistant ? ASSISTANT : USER, isAssistant));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpContext() {
+        // appendAndWindow grows the context, so every iteration starts from the same history
+        context = contextManager.newContext();
+        for (MessageListItem item : uiHistory) {
+            if (item.getUserColorIndex() == 1) {
+                context.appendUser(item.getText());
+            } else {
+                context.appendAssistant(item.getText());
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Message> convertUiHistory() {
+        List<Message> aiMessages = new ArrayList<>();
+        for (MessageListItem uiItem : new ArrayList<>(uiHistory)) {
+            String messageText = uiItem.getText();
+            if (uiItem.getUserColorIndex() == 1) {
+                aiMessages.add(new UserMessage(messageText));
+            } else if (uiItem.getUserColorIndex() == 2 && (!"...".equals(messageText) && !messageText.isBlank())) {
+                aiMessages.add(new AssistantMessage(messageText));
+            }
+        }
+        return aiMessages;
+    }
+
+    @Benchmark
+    public ContextWindow contextWindow() {
+        return context.window();
+    }
+
+    @Benchmark
+    public ContextWindow appendAndWindow() {
+        context.appendUser("¿Y la comisión por transferencia?");
+        return context.window();
+    }
+}
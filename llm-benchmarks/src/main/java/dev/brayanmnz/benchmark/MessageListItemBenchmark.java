@@ -0,0 +1,42 @@
+package dev.brayanmnz.benchmark;
+
+import com.vaadin.collaborationengine.UserInfo;
+import com.vaadin.flow.component.messages.MessageListItem;
+import dev.brayanmnz.views.chat.MessageListItems;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation of one chat bubble. Run with {@code -prof gc} to see the bytes allocated per item: authors without
+ * an image pay for the initials, which split the name with a regular expression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageListItemBenchmark {
+
+    private final UserInfo user = new UserInfo("user", "Brayan Muñoz");
+    private final UserInfo assistant = new UserInfo("ai", "AI Assistant", "https://example.org/ai.png");
+
+    @Benchmark
+    public MessageListItem userItemWithInitials() {
+        return MessageListItems.create("¿Cómo abro una cuenta?", user, false);
+    }
+
+    @Benchmark
+    public MessageListItem assistantItemWithImage() {
+        return MessageListItems.create("...", assistant, true);
+    }
+}
@@ -0,0 +1,139 @@
+package dev.brayanmnz.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.brayanmnz.transport.NdjsonDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.ollama.api.OllamaApi.ChatResponse;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding one streamed Ollama answer of {@code chunkCount} NDJSON lines, received in network reads of
+ * {@code readSize} bytes, into {@link ChatResponse}s:
+ * <ul>
+ *     <li>{@code parseOnly}: the floor, every line already split out and bound with the {@link ObjectMapper}</li>
+ *     <li>{@code defaultDecoder}: Spring's {@link Jackson2JsonDecoder}, which tokenizes the stream into a
+ *     {@code TokenBuffer} per value and binds the value from it</li>
+ *     <li>{@code ndjsonDecoder}: the model transport's {@link NdjsonDecoder}, which copies each line once into a
+ *     reused array and binds it from there</li>
+ *     <li>{@code stringPerLine}: a {@code String} per line, parsed afterwards, as Spring AI does for the data of
+ *     OpenAI server-sent events</li>
+ * </ul>
+ * Run with {@code -prof gc} to compare {@code gc.alloc.rate.norm}, the bytes allocated per answer; what a decoder
+ * allocates over {@code parseOnly} is its per-chunk overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NdjsonDecodeBenchmark {
+
+    private static final ResolvableType CHAT_RESPONSE = ResolvableType.forClass(ChatResponse.class);
+
+    @Param({"256"})
+    private int chunkCount;
+
+    @Param({"64", "8192"})
+    private int readSize;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final Jackson2JsonDecoder defaultDecoder = new Jackson2JsonDecoder(objectMapper);
+    private final NdjsonDecoder ndjsonDecoder = new NdjsonDecoder(objectMapper, 256 * 1024);
+    private final StringDecoder stringDecoder = StringDecoder.textPlainOnly(List.of("\n"), true);
+
+    private List<byte[]> reads;
+    private List<byte[]> lines;
+
+    @Setup
+    public void setUp() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        lines = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            boolean done = i == chunkCount - 1;
+            String line = "{\"model\":\"gemma3:4b\",\"created_at\":\"2025-06-01T12:00:00.%06dZ\",".formatted(i)
+                    + "\"message\":{\"role\":\"assistant\",\"content\":\"%s\"},\"done\":%s"
+                    .formatted(done ? "" : " tasa" + i, done)
+                    + (done ? ",\"done_reason\":\"stop\",\"eval_count\":%d".formatted(chunkCount) : "")
+                    + "}\n";
+            lines.add(line.getBytes(StandardCharsets.UTF_8));
+            stream.writeBytes(lines.getLast());
+        }
+        byte[] bytes = stream.toByteArray();
+        reads = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += readSize) {
+            reads.add(Arrays.copyOfRange(bytes, i, Math.min(i + readSize, bytes.length)));
+        }
+    }
+
+    @Benchmark
+    public List<ChatResponse> parseOnly() {
+        List<ChatResponse> responses = new ArrayList<>(chunkCount);
+        for (byte[] line : lines) {
+            responses.add(parse(line));
+        }
+        return responses;
+    }
+
+    @Benchmark
+    public List<Object> defaultDecoder() {
+        return defaultDecoder.decode(buffers(), CHAT_RESPONSE, MediaType.APPLICATION_NDJSON, Map.of())
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<Object> ndjsonDecoder() {
+        return ndjsonDecoder.decode(buffers(), CHAT_RESPONSE, MediaType.APPLICATION_NDJSON, Map.of())
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<ChatResponse> stringPerLine() {
+        return stringDecoder.decode(buffers(), ResolvableType.forClass(String.class), MediaType.TEXT_PLAIN, Map.of())
+                .map(line -> parse(line.getBytes(StandardCharsets.UTF_8)))
+                .collectList()
+                .block();
+    }
+
+    // A fresh wrapper per read: decoding consumes the buffers
+    private Flux<DataBuffer> buffers() {
+        return Flux.fromIterable(reads).map(DefaultDataBufferFactory.sharedInstance::wrap);
+    }
+
+    private ChatResponse parse(byte[] line) {
+        try {
+            return objectMapper.readValue(line, ChatResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package dev.brayanmnz.benchmark;
+
+import com.vaadin.flow.component.messages.MessageListItem;
+import dev.brayanmnz.service.ChunkCoalescer;
+import dev.brayanmnz.service.StreamingStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side cost of rendering one streamed answer into a {@link MessageListItem}:
+ * <ul>
+ *     <li>{@code setTextPerChunk}: the former {@code ChatView.handleStreamingChunk}, which appended every chunk to
+ *     the response and set the whole text again, so the text sent to the browser grows quadratically</li>
+ *     <li>{@code appendTextPerChunk}: sends only the new chunk</li>
+ *     <li>{@code coalescedFrames}: the current path, chunks folded into frames by {@link ChunkCoalescer} and
+ *     appended once per frame</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingRenderBenchmark {
+
+    @Param({"64", "512"})
+    private int chunkCount;
+
+    private List<String> chunks;
+    private ChunkCoalescer coalescer;
+
+    @Setup
+    public void setUp() {
+        chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(i % 7 == 0 ? " según" : " tarifa" + i);
+        }
+        // Frames close on size only; the interval is long enough never to fire during one answer
+        coalescer = new ChunkCoalescer(Duration.ofMinutes(1), 16);
+    }
+
+    @Benchmark
+    public MessageListItem setTextPerChunk() {
+        MessageListItem item = newItem();
+        StringBuilder fullResponse = new StringBuilder();
+        for (String chunk : chunks) {
+            fullResponse.append(chunk);
+            item.setText(fullResponse.toString());
+        }
+        return item;
+    }
+
+    @Benchmark
+    public MessageListItem appendTextPerChunk() {
+        MessageListItem item = newItem();
+        for (String chunk : chunks) {
+            item.appendText(chunk);
+        }
+        return item;
+    }
+
+    @Benchmark
+    public MessageListItem coalescedFrames() {
+        MessageListItem item = newItem();
+        StreamingStats stats = new StreamingStats();
+        coalescer.coalesce(Flux.fromIterable(chunks), stats)
+                .doOnNext(item::appendText)
+                .blockLast();
+        return item;
+    }
+
+    private static MessageListItem newItem() {
+        return new MessageListItem("", Instant.EPOCH, "AI Assistant");
+    }
+}
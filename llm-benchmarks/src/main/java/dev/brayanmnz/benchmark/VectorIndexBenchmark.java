@@ -0,0 +1,127 @@
+package dev.brayanmnz.benchmark;
+
+import dev.brayanmnz.rag.VectorIndex;
+import dev.brayanmnz.rag.VectorIndex.Match;
+import dev.brayanmnz.rag.VectorIndexWriter;
+import dev.brayanmnz.rag.VectorIndexWriter.Entry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Retrieval latency of the memory-mapped IVF index against an exact scan, on a synthetic corpus of clustered
+ * 384-dimension embeddings. The recall@10 of every {@code probes} value is printed when the trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorIndexBenchmark {
+
+    private static final int DIMENSIONS = 384;
+    private static final int TOPICS = 500;
+    private static final int QUERIES = 256;
+    private static final int K = 10;
+
+    @Param({"50000"})
+    private int corpusSize;
+
+    @Param({"1", "8", "32"})
+    private int probes;
+
+    private Path indexPath;
+    private VectorIndex index;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(7);
+        float[][] topics = new float[TOPICS][];
+        for (int i = 0; i < TOPICS; i++) {
+            topics[i] = gaussian(random, 1);
+        }
+        List<Entry> entries = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) {
+            entries.add(new Entry("doc" + (i % 100) + ".md", "fragmento " + i,
+                    around(topics[random.nextInt(TOPICS)], random, 1.5f)));
+        }
+        indexPath = Files.createTempFile("benchmark", ".index");
+        VectorIndexWriter.write(indexPath, entries);
+        index = VectorIndex.open(indexPath);
+
+        queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = around(topics[random.nextInt(TOPICS)], random, 2.0f);
+        }
+        int found = 0;
+        for (float[] query : queries) {
+            Set<Integer> exact = ids(index.exactSearch(query, K));
+            found += (int) ids(index.search(query, K, probes)).stream().filter(exact::contains).count();
+        }
+        System.out.printf("%nrecall@%d with %d of %d lists probed: %.4f%n", K, probes, index.lists(),
+                (double) found / (QUERIES * K));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(indexPath);
+    }
+
+    @Benchmark
+    public List<Match> ivfSearch() {
+        return index.search(nextQuery(), K, probes);
+    }
+
+    @Benchmark
+    public List<Match> exactSearch() {
+        return index.exactSearch(nextQuery(), K);
+    }
+
+    private float[] nextQuery() {
+        float[] query = queries[next];
+        next = (next + 1) % QUERIES;
+        return query;
+    }
+
+    private static Set<Integer> ids(List<Match> matches) {
+        return matches.stream().map(Match::id).collect(Collectors.toSet());
+    }
+
+    private static float[] gaussian(Random random, float scale) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+
+    private static float[] around(float[] center, Random random, float spread) {
+        float[] vector = gaussian(random, spread);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] += center[d];
+        }
+        return vector;
+    }
+}
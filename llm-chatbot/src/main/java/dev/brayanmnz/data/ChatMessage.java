@@ -0,0 +1,97 @@
+package dev.brayanmnz.data;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * One persisted turn of a chat. {@code seq} orders the messages of a chat and is assigned by the writer, so
+ * pages can be read with a keyset ({@code seq < x}) instead of an offset. It is 0 until the message is written.
+ */
+@Entity
+@Table(name = "chat_message", indexes = @Index(name = "idx_chat_message_chat_seq", columnList = "chatId, seq"))
+public class ChatMessage {
+
+    public enum Role {
+        USER, ASSISTANT
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_message_seq")
+    @SequenceGenerator(name = "chat_message_seq", sequenceName = "chat_message_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String chatId;
+
+    // Assigned on the writer thread, read by the views
+    @Column(nullable = false)
+    private volatile long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Role role;
+
+    private String author;
+
+    @Lob
+    @Column(nullable = false)
+    private String text;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    protected ChatMessage() {
+    }
+
+    public ChatMessage(String chatId, long seq, Role role, String author, String text, Instant createdAt) {
+        this.chatId = chatId;
+        this.seq = seq;
+        this.role = role;
+        this.author = author;
+        this.text = text;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
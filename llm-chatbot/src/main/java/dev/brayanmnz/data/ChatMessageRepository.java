@@ -0,0 +1,20 @@
+package dev.brayanmnz.data;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
+
+    Slice<ChatMessage> findByChatIdAndSeqLessThanOrderBySeqDesc(String chatId, long seq, Pageable pageable);
+
+    @Query("select coalesce(max(m.seq), 0) from ChatMessage m where m.chatId = ?1")
+    long findMaxSeq(String chatId);
+
+    List<ChatMessage> findByChatIdAndSeqGreaterThanOrderBySeq(String chatId, long seq);
+
+    long countByChatId(String chatId);
+}
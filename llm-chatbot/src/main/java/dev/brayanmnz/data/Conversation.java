@@ -0,0 +1,48 @@
+package dev.brayanmnz.data;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * One chat and the last {@link ChatMessage#getSeq() seq} handed out for it. The counter lives in the database, so
+ * every application instance sharing it numbers the messages of a chat in one order.
+ */
+@Entity
+@Table(name = "conversation")
+public class Conversation {
+
+    @Id
+    @Column(length = 100)
+    private String chatId;
+
+    @Column(nullable = false)
+    private long lastSeq;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    protected Conversation() {
+    }
+
+    public Conversation(String chatId, long lastSeq, Instant createdAt) {
+        this.chatId = chatId;
+        this.lastSeq = lastSeq;
+        this.createdAt = createdAt;
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
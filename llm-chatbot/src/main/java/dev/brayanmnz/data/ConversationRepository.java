@@ -0,0 +1,28 @@
+package dev.brayanmnz.data;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ConversationRepository extends JpaRepository<Conversation, String> {
+
+    /**
+     * Reserves the next {@code count} sequence numbers of a chat in one statement and returns the last of them, or
+     * {@code null} when the chat has no row.
+     */
+    @Transactional
+    @Query(value = "select last_seq from final table (update conversation set last_seq = last_seq + ?2 "
+            + "where chat_id = ?1)", nativeQuery = true)
+    Long reserveSeqs(String chatId, int count);
+
+    @Modifying
+    @Query("insert into Conversation (chatId, lastSeq, createdAt) values (?1, ?2, ?3)")
+    int insert(String chatId, long lastSeq, Instant createdAt);
+
+    @Query("select c.chatId from Conversation c where c.chatId like ?1 order by c.createdAt, c.chatId")
+    List<String> findChatIds(String chatIdPattern);
+}
@@ -0,0 +1,30 @@
+package dev.brayanmnz.metrics;
+
+import dev.brayanmnz.common.metrics.LlmMetricsAdvisor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.ai.chat.client.ChatClientCustomizer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Adds the {@link LlmMetricsAdvisor} to every {@code ChatClient} built from the auto-configured builder. Calls the
+ * model router serves are tagged with the endpoint that served them; {@code chatbot.metrics.backend} only tags
+ * the calls of a single backend.
+ */
+@Configuration
+public class LlmMetricsConfiguration {
+
+    @Bean
+    LlmMetricsAdvisor llmMetricsAdvisor(ObjectProvider<MeterRegistry> meterRegistry,
+                                        @Value("${chatbot.metrics.backend:ollama}") String backend) {
+        return new LlmMetricsAdvisor(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), backend);
+    }
+
+    @Bean
+    ChatClientCustomizer llmMetricsChatClientCustomizer(LlmMetricsAdvisor llmMetricsAdvisor) {
+        return builder -> builder.defaultAdvisors(llmMetricsAdvisor);
+    }
+}
@@ -0,0 +1,100 @@
+package dev.brayanmnz.rag;
+
+import dev.brayanmnz.rag.VectorIndexWriter.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Turns the product and fee documents of {@code chatbot.rag.documents} ({@code .md} and {@code .txt} files) into
+ * the {@link VectorIndex} the retrieval advisor searches: documents are cut into chunks, embedded in batches with
+ * the configured {@link EmbeddingModel} and written to {@code chatbot.rag.index-path}.
+ * <p>
+ * An existing index is reused as long as no document is newer than it, so a restart only maps the file.
+ */
+public class DocumentIngestor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentIngestor.class);
+
+    private final EmbeddingModel embeddingModel;
+    private final TextSplitter splitter;
+    private final int batchSize;
+
+    public DocumentIngestor(EmbeddingModel embeddingModel, TextSplitter splitter, int batchSize) {
+        this.embeddingModel = embeddingModel;
+        this.splitter = splitter;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Maps the index at {@code indexPath}, rebuilding it first when it is missing or older than a document.
+     * Returns an empty index when there are no documents.
+     */
+    public VectorIndex loadOrBuild(Path documents, Path indexPath) throws IOException {
+        List<Path> files = documentFiles(documents);
+        if (Files.exists(indexPath) && !newerThan(files, Files.getLastModifiedTime(indexPath))) {
+            VectorIndex index = VectorIndex.open(indexPath);
+            logger.info("Mapped vector index {} ({} chunks in {} lists)", indexPath, index.size(), index.lists());
+            return index;
+        }
+        if (files.isEmpty()) {
+            logger.warn("No documents to index in {}; answers will not be grounded", documents.toAbsolutePath());
+            return VectorIndex.empty();
+        }
+        build(documents, files, indexPath);
+        return VectorIndex.open(indexPath);
+    }
+
+    private void build(Path documents, List<Path> files, Path indexPath) throws IOException {
+        long start = System.nanoTime();
+        List<Document> chunks = new ArrayList<>();
+        for (Path file : files) {
+            String source = documents.relativize(file).toString();
+            chunks.addAll(splitter.apply(List.of(new Document(Files.readString(file), Map.of("source", source)))));
+        }
+        List<Entry> entries = new ArrayList<>(chunks.size());
+        for (int from = 0; from < chunks.size(); from += batchSize) {
+            List<Document> batch = chunks.subList(from, Math.min(from + batchSize, chunks.size()));
+            List<float[]> embeddings = embeddingModel.embed(batch.stream().map(Document::getText).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                Document chunk = batch.get(i);
+                entries.add(new Entry((String) chunk.getMetadata().get("source"), chunk.getText(), embeddings.get(i)));
+            }
+        }
+        VectorIndexWriter.write(indexPath, entries);
+        logger.info("Indexed {} chunks of {} documents into {} in {} ms", entries.size(), files.size(), indexPath,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static List<Path> documentFiles(Path documents) throws IOException {
+        if (!Files.isDirectory(documents)) {
+            return List.of();
+        }
+        try (Stream<Path> walk = Files.walk(documents)) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(file -> file.toString().endsWith(".md") || file.toString().endsWith(".txt"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static boolean newerThan(List<Path> files, FileTime time) throws IOException {
+        for (Path file : files) {
+            if (Files.getLastModifiedTime(file).compareTo(time) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
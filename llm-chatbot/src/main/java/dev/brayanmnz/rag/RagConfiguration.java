@@ -0,0 +1,49 @@
+package dev.brayanmnz.rag;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.ai.chat.client.ChatClientCustomizer;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Indexes the local documents at startup (or maps the existing index) and adds the {@link RetrievalAdvisor} to
+ * every {@code ChatClient} built from the auto-configured builder. Enabled by {@code chatbot.rag.enabled}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "chatbot.rag", name = "enabled", havingValue = "true")
+public class RagConfiguration {
+
+    @Bean
+    VectorIndex ragVectorIndex(EmbeddingModel embeddingModel,
+                               @Value("${chatbot.rag.documents:./docs/rag}") Path documents,
+                               @Value("${chatbot.rag.index-path:./data/rag.index}") Path indexPath,
+                               @Value("${chatbot.rag.chunk-size:400}") int chunkSize,
+                               @Value("${chatbot.rag.embedding-batch-size:32}") int batchSize) throws IOException {
+        TokenTextSplitter splitter = TokenTextSplitter.builder().withChunkSize(chunkSize).build();
+        return new DocumentIngestor(embeddingModel, splitter, batchSize).loadOrBuild(documents, indexPath);
+    }
+
+    @Bean
+    RetrievalAdvisor retrievalAdvisor(EmbeddingModel embeddingModel, VectorIndex ragVectorIndex,
+                                      ObjectProvider<MeterRegistry> meterRegistry,
+                                      @Value("${chatbot.rag.top-k:4}") int topK,
+                                      @Value("${chatbot.rag.probes:8}") int probes,
+                                      @Value("${chatbot.rag.min-score:0.5}") double minScore) {
+        return new RetrievalAdvisor(embeddingModel, ragVectorIndex, topK, probes, minScore,
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    ChatClientCustomizer retrievalChatClientCustomizer(RetrievalAdvisor retrievalAdvisor) {
+        return builder -> builder.defaultAdvisors(retrievalAdvisor);
+    }
+}
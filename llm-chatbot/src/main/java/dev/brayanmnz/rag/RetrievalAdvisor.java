@@ -0,0 +1,107 @@
+package dev.brayanmnz.rag;
+
+import dev.brayanmnz.rag.VectorIndex.Match;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.core.Ordered;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grounds answers in the indexed documents: embeds the user's question, retrieves the closest chunks from the
+ * {@link VectorIndex} and puts those scoring at least {@code minScore} in front of the question.
+ * <p>
+ * Only the last user message is augmented, so the earlier turns (and the prompt prefix the model server caches)
+ * stay the same. Retrieval is timed by {@code chatbot.rag.retrieval}; {@code chatbot.rag.matches} counts the
+ * chunks added per request.
+ */
+public class RetrievalAdvisor implements BaseAdvisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetrievalAdvisor.class);
+
+    private final EmbeddingModel embeddingModel;
+    private final VectorIndex index;
+    private final int topK;
+    private final int probes;
+    private final double minScore;
+    private final Timer retrieval;
+    private final DistributionSummary matches;
+
+    public RetrievalAdvisor(EmbeddingModel embeddingModel, VectorIndex index, int topK, int probes, double minScore,
+                            MeterRegistry registry) {
+        this.embeddingModel = embeddingModel;
+        this.index = index;
+        this.topK = topK;
+        this.probes = probes;
+        this.minScore = minScore;
+        this.retrieval = Timer.builder("chatbot.rag.retrieval")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.matches = registry.summary("chatbot.rag.matches");
+    }
+
+    @Override
+    public ChatClientRequest before(ChatClientRequest request, AdvisorChain chain) {
+        UserMessage userMessage = request.prompt().getUserMessage();
+        String question = userMessage.getText();
+        if (index.size() == 0 || !StringUtils.hasText(question)) {
+            return request;
+        }
+        long start = System.nanoTime();
+        List<Match> relevant;
+        try {
+            relevant = index.search(embeddingModel.embed(question), topK, probes).stream()
+                    .filter(match -> match.score() >= minScore)
+                    .toList();
+        } catch (RuntimeException e) {
+            // Answering without the documents beats not answering at all
+            logger.warn("Retrieval failed, answering without documents: {}", e.getMessage());
+            return request;
+        } finally {
+            retrieval.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        matches.record(relevant.size());
+        if (relevant.isEmpty()) {
+            return request;
+        }
+        return request.mutate()
+                .prompt(request.prompt().augmentUserMessage(augment(question, relevant)))
+                .build();
+    }
+
+    @Override
+    public ChatClientResponse after(ChatClientResponse response, AdvisorChain chain) {
+        return response;
+    }
+
+    @Override
+    public String getName() {
+        return "retrieval";
+    }
+
+    @Override
+    public int getOrder() {
+        // Right after the metrics advisor, so retrieval counts towards the measured latency
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    static String augment(String question, List<Match> relevant) {
+        StringBuilder text = new StringBuilder("Responde usando la siguiente información de nuestros documentos "
+                + "cuando sea relevante para la pregunta.\n\n");
+        for (Match match : relevant) {
+            text.append("[").append(match.source()).append("]\n").append(match.text().strip()).append("\n\n");
+        }
+        return text.append("Pregunta: ").append(question).toString();
+    }
+}
@@ -0,0 +1,244 @@
+package dev.brayanmnz.rag;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only inverted-file (IVF) index over normalized embeddings, memory-mapped from the file written by
+ * {@link VectorIndexWriter}. Vectors, centroids and texts are read straight from the mapping, so opening an index
+ * costs no heap copies and the page cache is shared by every reader.
+ * <p>
+ * A search scores the query against the centroids, scans the {@code probes} closest lists and keeps the best
+ * {@code k} chunks by cosine similarity (the dot product, as all vectors are unit length).
+ * <p>
+ * File layout, little-endian: a 32-byte header ({@code magic, version, dimensions, lists, count}), the centroids
+ * ({@code lists * dimensions} floats), the first row of every list ({@code lists + 1} ints), the vectors grouped by
+ * list ({@code count * dimensions} floats), the offset of every text ({@code count + 1} longs) and the UTF-8 texts.
+ */
+public final class VectorIndex {
+
+    static final int MAGIC = 0x52414749; // "RAGI"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    private static final VectorIndex EMPTY = new VectorIndex(0, 0, 0, FloatBuffer.allocate(0), IntBuffer.allocate(1),
+            FloatBuffer.allocate(0), LongBuffer.allocate(1), ByteBuffer.allocate(0));
+
+    private final int dimensions;
+    private final int lists;
+    private final int count;
+    private final FloatBuffer centroids;
+    private final IntBuffer listStarts;
+    private final FloatBuffer vectors;
+    private final LongBuffer textOffsets;
+    private final ByteBuffer texts;
+
+    private VectorIndex(int dimensions, int lists, int count, FloatBuffer centroids, IntBuffer listStarts,
+                        FloatBuffer vectors, LongBuffer textOffsets, ByteBuffer texts) {
+        this.dimensions = dimensions;
+        this.lists = lists;
+        this.count = count;
+        this.centroids = centroids;
+        this.listStarts = listStarts;
+        this.vectors = vectors;
+        this.textOffsets = textOffsets;
+        this.texts = texts;
+    }
+
+    public static VectorIndex empty() {
+        return EMPTY;
+    }
+
+    public static VectorIndex open(Path path) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            throw new IOException("Not a vector index (or an unsupported version): " + path);
+        }
+        int dimensions = mapped.getInt(8);
+        int lists = mapped.getInt(12);
+        int count = mapped.getInt(16);
+
+        long position = HEADER_BYTES;
+        FloatBuffer centroids = section(mapped, position, (long) lists * dimensions * Float.BYTES).asFloatBuffer();
+        position += (long) lists * dimensions * Float.BYTES;
+        IntBuffer listStarts = section(mapped, position, (lists + 1L) * Integer.BYTES).asIntBuffer();
+        position += (lists + 1L) * Integer.BYTES;
+        FloatBuffer vectors = section(mapped, position, (long) count * dimensions * Float.BYTES).asFloatBuffer();
+        position += (long) count * dimensions * Float.BYTES;
+        LongBuffer textOffsets = section(mapped, position, (count + 1L) * Long.BYTES).asLongBuffer();
+        position += (count + 1L) * Long.BYTES;
+        ByteBuffer texts = section(mapped, position, mapped.capacity() - position);
+        return new VectorIndex(dimensions, lists, count, centroids, listStarts, vectors, textOffsets, texts);
+    }
+
+    private static ByteBuffer section(ByteBuffer mapped, long offset, long length) {
+        // A single mapping is limited to 2 GB, far more than a document corpus needs
+        return mapped.slice(Math.toIntExact(offset), Math.toIntExact(length)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int lists() {
+        return lists;
+    }
+
+    /**
+     * The {@code k} chunks most similar to {@code query} among the {@code probes} lists closest to it.
+     */
+    public List<Match> search(float[] query, int k, int probes) {
+        if (count == 0) {
+            return List.of();
+        }
+        checkDimensions(query);
+        float[] unit = normalize(query);
+        TopK closestLists = new TopK(Math.min(probes, lists));
+        for (int list = 0; list < lists; list++) {
+            closestLists.offer(list, dot(unit, centroids, list * dimensions));
+        }
+        TopK best = new TopK(k);
+        for (int probe = 0; probe < closestLists.size; probe++) {
+            int list = closestLists.ids[probe];
+            for (int row = listStarts.get(list), end = listStarts.get(list + 1); row < end; row++) {
+                best.offer(row, dot(unit, vectors, row * dimensions));
+            }
+        }
+        return matches(best);
+    }
+
+    /**
+     * Scores every chunk; the reference the recall of {@link #search} is measured against.
+     */
+    public List<Match> exactSearch(float[] query, int k) {
+        if (count == 0) {
+            return List.of();
+        }
+        checkDimensions(query);
+        float[] unit = normalize(query);
+        TopK best = new TopK(k);
+        for (int row = 0; row < count; row++) {
+            best.offer(row, dot(unit, vectors, row * dimensions));
+        }
+        return matches(best);
+    }
+
+    private void checkDimensions(float[] query) {
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("Query has " + query.length + " dimensions, the index " + dimensions
+                    + "; rebuild the index after changing the embedding model");
+        }
+    }
+
+    private List<Match> matches(TopK best) {
+        List<Match> matches = new ArrayList<>(best.size);
+        for (int i = 0; i < best.size; i++) {
+            String entry = text(best.ids[i]);
+            int separator = entry.indexOf('\0');
+            matches.add(new Match(best.ids[i], entry.substring(0, separator), entry.substring(separator + 1),
+                    best.scores[i]));
+        }
+        return matches;
+    }
+
+    private String text(int row) {
+        int start = (int) textOffsets.get(row);
+        int end = (int) textOffsets.get(row + 1);
+        byte[] bytes = new byte[end - start];
+        texts.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private float dot(float[] query, FloatBuffer buffer, int offset) {
+        // Four independent sums so consecutive multiply-adds do not wait on each other
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int d = 0;
+        for (int end = dimensions & ~3; d < end; d += 4) {
+            s0 += query[d] * buffer.get(offset + d);
+            s1 += query[d + 1] * buffer.get(offset + d + 1);
+            s2 += query[d + 2] * buffer.get(offset + d + 2);
+            s3 += query[d + 3] * buffer.get(offset + d + 3);
+        }
+        for (; d < dimensions; d++) {
+            s0 += query[d] * buffer.get(offset + d);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+
+    /**
+     * One retrieved chunk.
+     *
+     * @param id     row of the chunk in the index
+     * @param source the document the chunk was cut from
+     * @param text   the chunk
+     * @param score  cosine similarity to the query
+     */
+    public record Match(int id, String source, String text, float score) {
+    }
+
+    /**
+     * The {@code k} highest scores seen so far, best first. {@code k} is small, so an insertion into a sorted array
+     * beats a heap.
+     */
+    private static final class TopK {
+        private final int[] ids;
+        private final float[] scores;
+        private int size;
+
+        private TopK(int k) {
+            ids = new int[k];
+            scores = new float[k];
+        }
+
+        private void offer(int id, float score) {
+            if (size == ids.length && (size == 0 || score <= scores[size - 1])) {
+                return;
+            }
+            int i = size < ids.length ? size++ : size - 1;
+            while (i > 0 && scores[i - 1] < score) {
+                ids[i] = ids[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package dev.brayanmnz.rag;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes the file {@link VectorIndex} maps. The lists are the clusters of a spherical k-means over the normalized
+ * embeddings, trained on a sample of at most {@value #TRAINING_SAMPLE_PER_LIST} vectors per list, and every
+ * vector is stored in the list of its closest centroid.
+ * <p>
+ * The file is written next to the target and moved over it, so an index that is already mapped is never modified.
+ */
+public final class VectorIndexWriter {
+
+    static final int TRAINING_SAMPLE_PER_LIST = 64;
+    static final int TRAINING_ITERATIONS = 8;
+
+    private VectorIndexWriter() {
+    }
+
+    /**
+     * Writes {@code entries} with about {@code sqrt(entries)} lists.
+     */
+    public static void write(Path path, List<Entry> entries) throws IOException {
+        write(path, entries, (int) Math.max(1, Math.round(Math.sqrt(entries.size()))));
+    }
+
+    public static void write(Path path, List<Entry> entries, int lists) throws IOException {
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to index");
+        }
+        int dimensions = entries.getFirst().embedding().length;
+        float[][] vectors = new float[entries.size()][];
+        for (int i = 0; i < vectors.length; i++) {
+            if (entries.get(i).embedding().length != dimensions) {
+                throw new IllegalArgumentException("Embeddings of different dimensions cannot share an index");
+            }
+            vectors[i] = VectorIndex.normalize(entries.get(i).embedding());
+        }
+        lists = Math.min(lists, vectors.length);
+        float[][] centroids = train(vectors, lists, dimensions, new Random(42));
+
+        List<List<Integer>> members = new ArrayList<>(lists);
+        for (int list = 0; list < lists; list++) {
+            members.add(new ArrayList<>());
+        }
+        for (int i = 0; i < vectors.length; i++) {
+            members.get(closest(vectors[i], centroids)).add(i);
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16)) {
+            ByteBuffer header = ByteBuffer.allocate(VectorIndex.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(VectorIndex.MAGIC)
+                    .putInt(VectorIndex.VERSION)
+                    .putInt(dimensions)
+                    .putInt(lists)
+                    .putInt(vectors.length);
+            out.write(header.array());
+
+            ByteBuffer floats = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (float[] centroid : centroids) {
+                writeVector(out, floats, centroid);
+            }
+            ByteBuffer ints = ByteBuffer.allocate((lists + 1) * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            int start = 0;
+            for (List<Integer> list : members) {
+                ints.putInt(start);
+                start += list.size();
+            }
+            out.write(ints.putInt(start).array());
+
+            List<byte[]> texts = new ArrayList<>(vectors.length);
+            for (List<Integer> list : members) {
+                for (int i : list) {
+                    writeVector(out, floats, vectors[i]);
+                    Entry entry = entries.get(i);
+                    texts.add((entry.source() + '\0' + entry.text()).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            ByteBuffer offsets = ByteBuffer.allocate((texts.size() + 1) * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            long offset = 0;
+            for (byte[] text : texts) {
+                offsets.putLong(offset);
+                offset += text.length;
+            }
+            out.write(offsets.putLong(offset).array());
+            for (byte[] text : texts) {
+                out.write(text);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeVector(OutputStream out, ByteBuffer buffer, float[] vector) throws IOException {
+        buffer.clear();
+        buffer.asFloatBuffer().put(vector);
+        out.write(buffer.array());
+    }
+
+    private static float[][] train(float[][] vectors, int lists, int dimensions, Random random) {
+        float[][] sample = sample(vectors, lists * TRAINING_SAMPLE_PER_LIST, random);
+        float[][] centroids = new float[lists][];
+        for (int list = 0; list < lists; list++) {
+            centroids[list] = sample[list].clone();
+        }
+        for (int iteration = 0; iteration < TRAINING_ITERATIONS; iteration++) {
+            float[][] sums = new float[lists][dimensions];
+            int[] sizes = new int[lists];
+            for (float[] vector : sample) {
+                int list = closest(vector, centroids);
+                sizes[list]++;
+                for (int d = 0; d < dimensions; d++) {
+                    sums[list][d] += vector[d];
+                }
+            }
+            for (int list = 0; list < lists; list++) {
+                // An empty list restarts from a random vector instead of staying empty
+                centroids[list] = sizes[list] == 0
+                        ? sample[random.nextInt(sample.length)].clone()
+                        : VectorIndex.normalize(sums[list]);
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * A random subset of {@code vectors} in random order (partial Fisher-Yates), or all of them when there are
+     * fewer than {@code size}.
+     */
+    private static float[][] sample(float[][] vectors, int size, Random random) {
+        float[][] shuffled = vectors.clone();
+        int sampleSize = Math.min(size, shuffled.length);
+        for (int i = 0; i < sampleSize; i++) {
+            int j = i + random.nextInt(shuffled.length - i);
+            float[] swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+        return sampleSize == shuffled.length ? shuffled : Arrays.copyOf(shuffled, sampleSize);
+    }
+
+    private static int closest(float[] vector, float[][] centroids) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int list = 0; list < centroids.length; list++) {
+            float score = 0;
+            float[] centroid = centroids[list];
+            for (int d = 0; d < vector.length; d++) {
+                score += vector[d] * centroid[d];
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = list;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * One chunk to index.
+     *
+     * @param source    the document the chunk was cut from
+     * @param text      the chunk
+     * @param embedding its embedding, of any length (it is normalized when written)
+     */
+    public record Entry(String source, String text, float[] embedding) {
+    }
+}
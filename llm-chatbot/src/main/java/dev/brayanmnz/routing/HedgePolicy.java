@@ -0,0 +1,114 @@
+package dev.brayanmnz.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the {@link RoutingChatModel} sends a hedge: the same stream to a second endpoint when the first has
+ * not produced a token after {@link #delay()}, the {@code percentile} of the latest {@code window} times to first
+ * token, clamped to {@code [minDelay, maxDelay]}. Until the window holds enough samples the delay is
+ * {@code maxDelay}, so a cold router does not double its load. Only streams whose first endpoint produced the first
+ * token are sampled: a stream won by its hedge measures the hedge, and feeding those back would pull the delay
+ * towards itself, sending ever more hedges.
+ * <p>
+ * Meters: {@code chatbot.router.streams} counts streams by {@code hedge} outcome ({@code none},
+ * {@code primary-won}, {@code hedge-won}); {@code chatbot.router.hedge.saved} is an upper-bound estimate of the time
+ * a winning hedge saved, the p99 time to first token minus the actual one, since the cancelled stream may well have
+ * answered sooner than the p99 and the time it would have taken is never known; {@code chatbot.router.hedge.delay}
+ * is the current delay.
+ */
+public class HedgePolicy {
+
+    static final int MIN_SAMPLES = 20;
+    private static final double REFERENCE_PERCENTILE = 0.99;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+
+    private final long[] window;
+    private int next;
+    private int size;
+
+    private final Counter notHedged;
+    private final Counter primaryWon;
+    private final Counter hedgeWon;
+    private final Timer saved;
+
+    public HedgePolicy(double percentile, Duration minDelay, Duration maxDelay, int window,
+                       MeterRegistry meterRegistry) {
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.window = new long[window];
+        this.notHedged = meterRegistry.counter("chatbot.router.streams", "hedge", "none");
+        this.primaryWon = meterRegistry.counter("chatbot.router.streams", "hedge", "primary-won");
+        this.hedgeWon = meterRegistry.counter("chatbot.router.streams", "hedge", "hedge-won");
+        this.saved = Timer.builder("chatbot.router.hedge.saved")
+                .description("Upper-bound estimate of the time to first token saved by winning hedges: the p99 "
+                        + "time to first token minus the actual one")
+                .register(meterRegistry);
+        meterRegistry.gauge("chatbot.router.hedge.delay", this, policy -> policy.delay().toMillis());
+    }
+
+    /**
+     * How long the first endpoint gets to produce a token before the hedge is sent.
+     */
+    public synchronized Duration delay() {
+        if (size < MIN_SAMPLES) {
+            return Duration.ofNanos(maxDelayNanos);
+        }
+        return Duration.ofNanos(Math.clamp(percentile(percentile), minDelayNanos, maxDelayNanos));
+    }
+
+    /**
+     * Records the time to first token of a stream and which of its requests produced it. Only a token of the first
+     * request is a sample for the delay.
+     *
+     * @param hedged whether a hedge was sent
+     * @param won    whether the hedge produced the first token
+     */
+    public void record(long firstTokenNanos, boolean hedged, boolean won) {
+        long reference;
+        synchronized (this) {
+            reference = size < MIN_SAMPLES ? 0 : percentile(REFERENCE_PERCENTILE);
+            if (!won) {
+                window[next] = firstTokenNanos;
+                next = (next + 1) % window.length;
+                size = Math.min(size + 1, window.length);
+            }
+        }
+        if (!hedged) {
+            notHedged.increment();
+        } else if (!won) {
+            primaryWon.increment();
+        } else {
+            hedgeWon.increment();
+            saved.record(Math.max(0, reference - firstTokenNanos), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Share of streams that sent a hedge.
+     */
+    public double hedgeRate() {
+        double hedged = primaryWon.count() + hedgeWon.count();
+        double total = hedged + notHedged.count();
+        return total == 0 ? 0 : hedged / total;
+    }
+
+    public Duration getLatencySaved() {
+        return Duration.ofNanos((long) saved.totalTime(TimeUnit.NANOSECONDS));
+    }
+
+    private long percentile(double quantile) {
+        long[] sorted = Arrays.copyOf(window, size);
+        Arrays.sort(sorted);
+        return sorted[Math.max(0, (int) Math.ceil(sorted.length * quantile) - 1)];
+    }
+}
@@ -0,0 +1,231 @@
+package dev.brayanmnz.routing;
+
+import dev.brayanmnz.routing.ModelRouterProperties.Backend;
+import dev.brayanmnz.routing.ModelRouterProperties.EndpointProperties;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One model host behind the {@link RoutingChatModel}: its {@link ChatModel}, the number of requests the router
+ * has in flight against it and whether it is currently considered healthy.
+ */
+public class ModelEndpoint {
+
+    static final int DEFAULT_MAX_CONCURRENT = 4;
+
+    // The router fails over to another endpoint itself, so a failed OpenAI call must not be retried in place
+    private static final RetryTemplate NO_RETRY = RetryTemplate.builder().maxAttempts(1).build();
+
+    private final String name;
+    private final Backend backend;
+    private final ChatModel chatModel;
+    private final String model;
+    private final String healthUrl;
+    private final int maxConcurrent;
+    private final int failureThreshold;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean healthy = true;
+
+    public ModelEndpoint(String name, Backend backend, ChatModel chatModel, String model, String healthUrl,
+                         int maxConcurrent, int failureThreshold) {
+        this.name = name;
+        this.backend = backend;
+        this.chatModel = chatModel;
+        this.model = model;
+        this.healthUrl = healthUrl;
+        this.maxConcurrent = maxConcurrent;
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * Builds the endpoint and its {@link ChatModel} from configuration, on Spring's default HTTP clients.
+     */
+    public static ModelEndpoint of(EndpointProperties properties, int failureThreshold) {
+        return of(properties, failureThreshold, RestClient.builder(), WebClient.builder());
+    }
+
+    /**
+     * Builds the endpoint and its {@link ChatModel} from configuration, with Spring AI's default tool execution.
+     * The client builders carry the HTTP transport, such as the shared model transport pool, and are not reused
+     * after this call.
+     */
+    public static ModelEndpoint of(EndpointProperties properties, int failureThreshold,
+                                   RestClient.Builder restClientBuilder, WebClient.Builder webClientBuilder) {
+        return of(properties, failureThreshold, restClientBuilder, webClientBuilder,
+                ToolCallingManager.builder().build());
+    }
+
+    /**
+     * As {@link #of(EndpointProperties, int, RestClient.Builder, WebClient.Builder)}, with the
+     * {@link ToolCallingManager} that runs the tools the model calls.
+     */
+    public static ModelEndpoint of(EndpointProperties properties, int failureThreshold,
+                                   RestClient.Builder restClientBuilder, WebClient.Builder webClientBuilder,
+                                   ToolCallingManager toolCallingManager) {
+        String baseUrl = StringUtils.trimTrailingCharacter(properties.baseUrl(), '/');
+        String name = StringUtils.hasText(properties.name()) ? properties.name() : baseUrl;
+        Backend backend = properties.backend() != null ? properties.backend() : Backend.OLLAMA;
+        int maxConcurrent = properties.maxConcurrent() != null ? properties.maxConcurrent() : DEFAULT_MAX_CONCURRENT;
+        return switch (backend) {
+            case OLLAMA -> new ModelEndpoint(name, backend,
+                    OllamaChatModel.builder()
+                            .ollamaApi(OllamaApi.builder()
+                                    .baseUrl(baseUrl)
+                                    .restClientBuilder(restClientBuilder)
+                                    .webClientBuilder(webClientBuilder)
+                                    .build())
+                            .defaultOptions(OllamaOptions.builder().model(properties.model()).build())
+                            .toolCallingManager(toolCallingManager)
+                            .build(),
+                    properties.model(), baseUrl + "/api/tags", maxConcurrent, failureThreshold);
+            case OPENAI -> new ModelEndpoint(name, backend,
+                    OpenAiChatModel.builder()
+                            .openAiApi(OpenAiApi.builder()
+                                    .baseUrl(baseUrl)
+                                    .apiKey(StringUtils.hasText(properties.apiKey()) ? properties.apiKey() : "_")
+                                    .restClientBuilder(restClientBuilder)
+                                    .webClientBuilder(webClientBuilder)
+                                    .build())
+                            .defaultOptions(OpenAiChatOptions.builder().model(properties.model()).build())
+                            .retryTemplate(NO_RETRY)
+                            .toolCallingManager(toolCallingManager)
+                            .build(),
+                    properties.model(), baseUrl + "/v1/models", maxConcurrent, failureThreshold);
+        };
+    }
+
+    public ChatResponse call(Prompt prompt) {
+        return chatModel.call(adapt(prompt));
+    }
+
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return chatModel.stream(adapt(prompt));
+    }
+
+    /**
+     * Claims one of this endpoint's concurrency slots. Every successful claim must be paired with
+     * {@link #release()}.
+     */
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = outstanding.get();
+            if (current >= maxConcurrent) {
+                return false;
+            }
+        } while (!outstanding.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+        healthy = true;
+    }
+
+    void recordFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            healthy = false;
+        }
+    }
+
+    void setHealthy(boolean healthy) {
+        if (healthy) {
+            consecutiveFailures.set(0);
+        }
+        this.healthy = healthy;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public String getHealthUrl() {
+        return healthUrl;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[" + backend + ", " + outstanding.get() + "/" + maxConcurrent + (healthy ? "" : ", down") + "]";
+    }
+
+    /**
+     * Rewrites the request options for this backend: the endpoint's model name wins over the requested one, and
+     * an OpenAI-compatible host only receives the portable options and the tools.
+     */
+    private Prompt adapt(Prompt prompt) {
+        ChatOptions requested = prompt.getOptions() != null ? prompt.getOptions() : ChatOptions.builder().build();
+        ChatOptions options = switch (backend) {
+            case OLLAMA -> ollamaOptions(requested);
+            case OPENAI -> OpenAiChatOptions.builder()
+                    .model(model != null ? model : requested.getModel())
+                    .temperature(requested.getTemperature())
+                    .topP(requested.getTopP())
+                    .maxTokens(requested.getMaxTokens())
+                    .build();
+        };
+        if (requested instanceof ToolCallingChatOptions tools && options instanceof ToolCallingChatOptions adapted) {
+            adapted.setToolCallbacks(tools.getToolCallbacks());
+            adapted.setToolNames(tools.getToolNames());
+            adapted.setToolContext(tools.getToolContext());
+            adapted.setInternalToolExecutionEnabled(tools.getInternalToolExecutionEnabled());
+        }
+        return new Prompt(prompt.getInstructions(), options);
+    }
+
+    private OllamaOptions ollamaOptions(ChatOptions requested) {
+        OllamaOptions options;
+        if (requested instanceof OllamaOptions ollama) {
+            options = OllamaOptions.fromOptions(ollama);
+        } else {
+            options = OllamaOptions.builder()
+                    .model(requested.getModel())
+                    .temperature(requested.getTemperature())
+                    .topP(requested.getTopP())
+                    .numPredict(requested.getMaxTokens())
+                    .build();
+        }
+        if (model != null) {
+            options.setModel(model);
+        }
+        return options;
+    }
+}
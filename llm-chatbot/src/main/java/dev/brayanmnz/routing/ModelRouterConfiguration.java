@@ -0,0 +1,63 @@
+package dev.brayanmnz.routing;
+
+import dev.brayanmnz.routing.ModelRouterProperties.Hedging;
+import dev.brayanmnz.transport.ModelTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+
+/**
+ * Replaces the auto-configured Ollama model with a {@link RoutingChatModel} over the endpoints listed under
+ * {@code chatbot.router.endpoints} when {@code chatbot.router.enabled=true}. Chat clients and everything built on
+ * them then route transparently. {@code chatbot.router.hedging.enabled=true} adds a {@link HedgePolicy}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = ModelRouterProperties.PREFIX, name = "enabled", havingValue = "true")
+public class ModelRouterConfiguration {
+
+    @Bean
+    @Primary
+    RoutingChatModel routingChatModel(Environment environment, ObjectProvider<MeterRegistry> meterRegistry,
+                                      ObjectProvider<RestClient.Builder> restClientBuilder,
+                                      ObjectProvider<WebClient.Builder> webClientBuilder,
+                                      ObjectProvider<ModelTransport> modelTransport,
+                                      ObjectProvider<ToolCallingManager> toolCallingManager) {
+        ModelRouterProperties properties = Binder.get(environment)
+                .bind(ModelRouterProperties.PREFIX, ModelRouterProperties.class)
+                .orElseGet(ModelRouterProperties::new);
+        List<ModelEndpoint> endpoints = properties.getEndpoints().stream()
+                // The builder beans are prototypes: every endpoint gets its own, on the shared transport
+                .map(endpoint -> ModelEndpoint.of(endpoint, properties.getFailureThreshold(),
+                        restClientBuilder.getIfAvailable(RestClient::builder),
+                        modelClient(webClientBuilder.getIfAvailable(WebClient::builder), modelTransport),
+                        toolCallingManager.getIfAvailable(() -> ToolCallingManager.builder().build())))
+                .toList();
+        Hedging hedging = properties.getHedging();
+        HedgePolicy hedgePolicy = hedging.isEnabled()
+                ? new HedgePolicy(hedging.getPercentile(), hedging.getMinDelay(), hedging.getMaxDelay(),
+                        hedging.getWindow(), meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                : null;
+        return new RoutingChatModel(endpoints, properties.getAcquireTimeout(), properties.getHealthCheckTimeout(),
+                hedgePolicy);
+    }
+
+    /**
+     * The builder with the model transport's NDJSON decoder, which only model clients decode with.
+     */
+    private static WebClient.Builder modelClient(WebClient.Builder builder,
+                                                 ObjectProvider<ModelTransport> modelTransport) {
+        ModelTransport transport = modelTransport.getIfAvailable();
+        return transport != null ? transport.configure(builder) : builder;
+    }
+}
@@ -0,0 +1,145 @@
+package dev.brayanmnz.routing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model endpoints bound from {@code chatbot.router.*}. Every endpoint is either an Ollama server or an
+ * OpenAI-compatible one such as Docker Model Runner's llama.cpp engine.
+ */
+public class ModelRouterProperties {
+
+    public static final String PREFIX = "chatbot.router";
+
+    private boolean enabled;
+    private List<EndpointProperties> endpoints = new ArrayList<>();
+    private int failureThreshold = 2;
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+    private Duration healthCheckTimeout = Duration.ofSeconds(2);
+    private Hedging hedging = new Hedging();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<EndpointProperties> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(List<EndpointProperties> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public Duration getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public void setAcquireTimeout(Duration acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    public Duration getHealthCheckTimeout() {
+        return healthCheckTimeout;
+    }
+
+    public void setHealthCheckTimeout(Duration healthCheckTimeout) {
+        this.healthCheckTimeout = healthCheckTimeout;
+    }
+
+    public Hedging getHedging() {
+        return hedging;
+    }
+
+    /**
+     * Requests the endpoints can serve at once: the sum of their {@code maxConcurrent}.
+     */
+    public int getCapacity() {
+        return endpoints.stream()
+                .mapToInt(endpoint -> endpoint.maxConcurrent() != null
+                        ? endpoint.maxConcurrent()
+                        : ModelEndpoint.DEFAULT_MAX_CONCURRENT)
+                .sum();
+    }
+
+    public void setHedging(Hedging hedging) {
+        this.hedging = hedging;
+    }
+
+    public enum Backend {
+        OLLAMA, OPENAI
+    }
+
+    /**
+     * One model host. {@code model} overrides the model name of the incoming request, since the same model is
+     * usually published under different names by each backend. {@code maxConcurrent} caps the requests the
+     * router keeps in flight against this host.
+     */
+    public record EndpointProperties(String name, Backend backend, String baseUrl, String model, String apiKey,
+                                     Integer maxConcurrent) {
+    }
+
+    /**
+     * When a stream is hedged on a second endpoint, see {@link HedgePolicy}.
+     */
+    public static class Hedging {
+
+        private boolean enabled;
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(250);
+        private Duration maxDelay = Duration.ofSeconds(5);
+        private int window = 500;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        public int getWindow() {
+            return window;
+        }
+
+        public void setWindow(int window) {
+            this.window = window;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package dev.brayanmnz.routing;
+
+import dev.brayanmnz.common.metrics.LlmMetricsAdvisor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ChatModel} that fronts several model hosts. Each request goes to the healthy endpoint with the fewest
+ * requests in flight that still has a free slot under its own cap; when every slot is taken the request waits up
+ * to {@code acquireTimeout} for one. A request that fails before its first token is retried on another endpoint,
+ * and since every turn carries the whole conversation, a session simply continues on whichever host serves its
+ * next turn. Endpoints are marked down after {@code failureThreshold} consecutive failures and come back once
+ * {@link #checkHealth()} reaches them again.
+ * <p>
+ * With a {@link HedgePolicy}, a stream that has not produced a token within the policy's delay is also sent to a
+ * second endpoint and the first of the two to produce a token wins.
+ * <p>
+ * Listeners added with {@link #addResponseListener} learn which endpoint answered each request, on its answer or
+ * its first token. The answer, or the first chunk of a stream, also names the endpoint in its
+ * {@link LlmMetricsAdvisor#BACKEND} metadata.
+ */
+public class RoutingChatModel implements ChatModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingChatModel.class);
+
+    private static final Comparator<ModelEndpoint> LEAST_OUTSTANDING =
+            Comparator.comparingInt(ModelEndpoint::getOutstanding);
+
+    private final List<ModelEndpoint> endpoints;
+    private final Duration acquireTimeout;
+    private final RestClient healthClient;
+    private final HedgePolicy hedgePolicy;
+    private final List<Consumer<ModelEndpoint>> responseListeners = new CopyOnWriteArrayList<>();
+
+    public RoutingChatModel(List<ModelEndpoint> endpoints, Duration acquireTimeout, Duration healthCheckTimeout) {
+        this(endpoints, acquireTimeout, healthCheckTimeout, null);
+    }
+
+    /**
+     * @param hedgePolicy when to hedge streams on a second endpoint, or {@code null} to never hedge
+     */
+    public RoutingChatModel(List<ModelEndpoint> endpoints, Duration acquireTimeout, Duration healthCheckTimeout,
+                            HedgePolicy hedgePolicy) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("The model router needs at least one endpoint");
+        }
+        this.endpoints = List.copyOf(endpoints);
+        this.acquireTimeout = acquireTimeout;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(healthCheckTimeout);
+        requestFactory.setReadTimeout(healthCheckTimeout);
+        this.healthClient = RestClient.builder().requestFactory(requestFactory).build();
+        this.hedgePolicy = hedgePolicy;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        Set<ModelEndpoint> tried = new HashSet<>();
+        RuntimeException lastError = null;
+        while (tried.size() < endpoints.size()) {
+            ModelEndpoint endpoint = reserve(tried).block();
+            try {
+                ChatResponse response = endpoint.call(prompt);
+                endpoint.recordSuccess();
+                responded(endpoint);
+                return servedBy(response, endpoint);
+            } catch (RuntimeException e) {
+                endpoint.recordFailure();
+                tried.add(endpoint);
+                lastError = e;
+                logger.warn("Model endpoint {} failed, {} left to try: {}",
+                        endpoint, endpoints.size() - tried.size(), e.getMessage());
+            } finally {
+                endpoint.release();
+            }
+        }
+        throw lastError;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        if (hedgePolicy != null && endpoints.size() > 1) {
+            return Flux.defer(() -> hedged(prompt));
+        }
+        return Flux.defer(() -> stream(prompt, new HashSet<>(), new AtomicReference<>()));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().build();
+    }
+
+    public List<ModelEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Calls {@code listener} with the endpoint that answered, for every successful call and stream.
+     */
+    public void addResponseListener(Consumer<ModelEndpoint> listener) {
+        responseListeners.add(listener);
+    }
+
+    /**
+     * Probes every endpoint's model listing and marks it up or down accordingly.
+     */
+    @Scheduled(fixedDelayString = "${chatbot.router.health-check-interval:10s}")
+    public void checkHealth() {
+        for (ModelEndpoint endpoint : endpoints) {
+            boolean wasHealthy = endpoint.isHealthy();
+            boolean healthy;
+            try {
+                healthClient.get().uri(endpoint.getHealthUrl()).retrieve().toBodilessEntity();
+                healthy = true;
+            } catch (RuntimeException e) {
+                healthy = false;
+            }
+            endpoint.setHealthy(healthy);
+            if (healthy != wasHealthy) {
+                logger.info("Model endpoint {} is {}", endpoint.getName(), healthy ? "back up" : "down");
+            }
+        }
+    }
+
+    /**
+     * Streams from the best endpoint and, when it has not produced a token within the hedge delay, also from the
+     * best other one. Whichever produces a token first is streamed to the caller; the other is cancelled, which
+     * releases its slot and stops its generation.
+     */
+    private Flux<ChatResponse> hedged(Prompt prompt) {
+        long start = System.nanoTime();
+        AtomicReference<ModelEndpoint> primaryEndpoint = new AtomicReference<>();
+        AtomicBoolean hedgeSent = new AtomicBoolean();
+        AtomicBoolean hedgeFirst = new AtomicBoolean();
+        Flux<ChatResponse> primary = stream(prompt, new HashSet<>(), primaryEndpoint);
+        Flux<ChatResponse> hedge = Mono.delay(hedgePolicy.delay())
+                .flatMapMany(tick -> {
+                    Set<ModelEndpoint> avoid = new HashSet<>();
+                    if (primaryEndpoint.get() != null) {
+                        avoid.add(primaryEndpoint.get());
+                    }
+                    hedgeSent.set(true);
+                    logger.debug("No token from {} after {} ms, hedging on another endpoint", primaryEndpoint.get(),
+                            (System.nanoTime() - start) / 1_000_000);
+                    return stream(prompt, avoid, new AtomicReference<>());
+                })
+                .doOnNext(response -> hedgeFirst.compareAndSet(false, true));
+        AtomicBoolean first = new AtomicBoolean();
+        return Flux.firstWithValue(primary, hedge)
+                .doOnNext(response -> {
+                    if (first.compareAndSet(false, true)) {
+                        hedgePolicy.record(System.nanoTime() - start, hedgeSent.get(), hedgeFirst.get());
+                    }
+                });
+    }
+
+    /**
+     * Streams from the best endpoint not in {@code tried}, failing over to the next one while no token has been
+     * emitted. {@code current} is kept pointing at the endpoint being streamed from.
+     */
+    private Flux<ChatResponse> stream(Prompt prompt, Set<ModelEndpoint> tried,
+                                      AtomicReference<ModelEndpoint> current) {
+        return reserve(tried).flatMapMany(endpoint -> {
+            current.set(endpoint);
+            AtomicBoolean emitted = new AtomicBoolean();
+            AtomicBoolean released = new AtomicBoolean();
+            // Released before the terminal signal travels on, so the caller's next turn sees the real load
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    endpoint.release();
+                }
+            };
+            return endpoint.stream(prompt)
+                    .map(response -> {
+                        if (emitted.compareAndSet(false, true)) {
+                            endpoint.recordSuccess();
+                            responded(endpoint);
+                            return servedBy(response, endpoint);
+                        }
+                        return response;
+                    })
+                    .doOnError(error -> endpoint.recordFailure())
+                    .doOnTerminate(release)
+                    .doOnCancel(release)
+                    // Once tokens reached the caller the answer cannot be spliced with another host's
+                    .onErrorResume(error -> !emitted.get() && tried.size() + 1 < endpoints.size(), error -> {
+                        tried.add(endpoint);
+                        logger.warn("Model endpoint {} failed before the first token, failing over: {}",
+                                endpoint.getName(), error.getMessage());
+                        return stream(prompt, tried, current);
+                    });
+        });
+    }
+
+    /**
+     * Claims a slot on the best endpoint not in {@code tried}: the least loaded healthy one, or the least loaded
+     * of the rest when none is healthy. Waits with backoff while all candidates are at their cap.
+     */
+    private Mono<ModelEndpoint> reserve(Set<ModelEndpoint> tried) {
+        return Mono.fromCallable(() -> {
+                    List<ModelEndpoint> candidates = endpoints.stream()
+                            .filter(endpoint -> !tried.contains(endpoint))
+                            .toList();
+                    List<ModelEndpoint> healthy = candidates.stream().filter(ModelEndpoint::isHealthy).toList();
+                    List<ModelEndpoint> ordered = (healthy.isEmpty() ? candidates : healthy).stream()
+                            .sorted(LEAST_OUTSTANDING)
+                            .toList();
+                    for (ModelEndpoint endpoint : ordered) {
+                        if (endpoint.tryAcquire()) {
+                            return endpoint;
+                        }
+                    }
+                    throw new EndpointsSaturatedException();
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(5))
+                        .maxBackoff(Duration.ofMillis(100))
+                        .filter(EndpointsSaturatedException.class::isInstance))
+                .timeout(acquireTimeout, Mono.error(() -> new IllegalStateException(
+                        "No model endpoint had a free slot within " + acquireTimeout + ": " + endpoints)))
+                .doOnDiscard(ModelEndpoint.class, ModelEndpoint::release);
+    }
+
+    /**
+     * Names the endpoint in the response's {@link LlmMetricsAdvisor#BACKEND} metadata, so the request's metrics
+     * are tagged with the host that served it. Only the first chunk of a stream carries it.
+     */
+    private static ChatResponse servedBy(ChatResponse response, ModelEndpoint endpoint) {
+        return ChatResponse.builder().from(response).metadata(LlmMetricsAdvisor.BACKEND, endpoint.getName()).build();
+    }
+
+    private void responded(ModelEndpoint endpoint) {
+        for (Consumer<ModelEndpoint> listener : responseListeners) {
+            listener.accept(endpoint);
+        }
+    }
+
+    private static final class EndpointsSaturatedException extends RuntimeException {
+        EndpointsSaturatedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package dev.brayanmnz.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.embedding.EmbeddingModel;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ChatAssistantService} decorator that answers repeated questions from a {@link ResponseCache}. The exact
+ * tier matches the normalized prompt within the same conversation context; the optional semantic tier embeds the
+ * prompt and accepts the closest cached answer of the same context above a similarity threshold. Hits are
+ * replayed as a word-chunked {@link Flux}, so callers stream them exactly like a model response.
+ * <p>
+ * An answer built from tool results is kept no longer than the shortest {@code ttl} of those tools, as recorded on
+ * the {@link ToolUsage} of its generation, and not at all when one of them may not be reused.
+ */
+public class CachingChatAssistantService implements ChatAssistantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingChatAssistantService.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern REPLAY_CHUNKS = Pattern.compile("(?<=\\s)");
+
+    private final ChatAssistantService delegate;
+    private final ResponseCache cache;
+    private final EmbeddingModel embeddingModel;
+    private final double minSimilarity;
+
+    private final Counter exactHits;
+    private final Counter semanticHits;
+    private final Counter misses;
+    private final Timer latencySaved;
+
+    /**
+     * @param embeddingModel model for the semantic tier, or {@code null} to use the exact tier only
+     */
+    public CachingChatAssistantService(ChatAssistantService delegate, ResponseCache cache,
+                                       EmbeddingModel embeddingModel, double minSimilarity,
+                                       MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.embeddingModel = embeddingModel;
+        this.minSimilarity = minSimilarity;
+        this.exactHits = meterRegistry.counter("chatbot.cache.requests", "result", "hit-exact");
+        this.semanticHits = meterRegistry.counter("chatbot.cache.requests", "result", "hit-semantic");
+        this.misses = meterRegistry.counter("chatbot.cache.requests", "result", "miss");
+        this.latencySaved = meterRegistry.timer("chatbot.cache.latency.saved");
+        meterRegistry.gauge("chatbot.cache.entries", cache, ResponseCache::size);
+    }
+
+    @Override
+    public Flux<String> streamChatResponse(String prompt, List<Message> conversationHistory) {
+        String normalizedPrompt = normalize(prompt);
+        String contextHash = contextHash(conversationHistory);
+        String key = contextHash + '|' + normalizedPrompt;
+
+        ResponseCache.Entry exact = cache.get(key);
+        if (exact != null) {
+            return replay(exact, exactHits);
+        }
+        if (embeddingModel == null) {
+            misses.increment();
+            return generateAndStore(prompt, conversationHistory, key, contextHash, null);
+        }
+        return Mono.fromCallable(() -> Optional.of(ResponseCache.normalize(embeddingModel.embed(normalizedPrompt))))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(error -> {
+                    logger.warn("Could not embed prompt for the semantic cache tier: {}", error.getMessage());
+                    return Mono.just(Optional.empty());
+                })
+                .flatMapMany(embedding -> {
+                    ResponseCache.Entry similar = embedding
+                            .map(e -> cache.findSimilar(contextHash, e, minSimilarity))
+                            .orElse(null);
+                    if (similar != null) {
+                        return replay(similar, semanticHits);
+                    }
+                    misses.increment();
+                    return generateAndStore(prompt, conversationHistory, key, contextHash, embedding.orElse(null));
+                });
+    }
+
+    @Override
+    public Optional<Flux<String>> joinRunning(String prompt, List<Message> conversationHistory) {
+        return delegate.joinRunning(prompt, conversationHistory);
+    }
+
+    public double getHitRatio() {
+        double hits = exactHits.count() + semanticHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    public Duration getLatencySaved() {
+        return Duration.ofNanos((long) latencySaved.totalTime(TimeUnit.NANOSECONDS));
+    }
+
+    private Flux<String> replay(ResponseCache.Entry entry, Counter tier) {
+        tier.increment();
+        latencySaved.record(entry.generationTime());
+        logger.info("Response cache hit ({}), saved ~{} ms. Hit ratio {}, total saved {} s",
+                tier == exactHits ? "exact" : "semantic", entry.generationTime().toMillis(),
+                String.format("%.2f", getHitRatio()), getLatencySaved().toSeconds());
+        return Flux.fromArray(REPLAY_CHUNKS.split(entry.text()));
+    }
+
+    private Flux<String> generateAndStore(String prompt, List<Message> conversationHistory, String key,
+                                          String contextHash, float[] embedding) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            StringBuilder answer = new StringBuilder();
+            ToolUsage tools = new ToolUsage();
+            return delegate.streamChatResponse(prompt, conversationHistory)
+                    .doOnNext(answer::append)
+                    .doOnComplete(() -> {
+                        Duration ttl = tools.cap(cache.getTtl());
+                        if (!answer.toString().isBlank() && ttl.isPositive()) {
+                            cache.put(key, contextHash, embedding, answer.toString(),
+                                    Duration.ofNanos(System.nanoTime() - start), ttl);
+                        }
+                    })
+                    .contextWrite(Context.of(ToolUsage.CONTEXT_KEY, tools));
+        });
+    }
+
+    static String normalize(String prompt) {
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(prompt, Normalizer.Form.NFD)).replaceAll("");
+        return NON_WORD.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    static String contextHash(List<Message> conversationHistory) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Message message : conversationHistory) {
+                digest.update(message.getMessageType().name().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(String.valueOf(message.getText()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()).substring(0, 22);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dev.brayanmnz.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Assembles the {@link ChatAssistantService} the views talk to: the model-backed
+ * {@link ChatAssistantServiceImpl} wrapped by the enabled decorators.
+ */
+@Configuration
+public class ChatAssistantConfiguration {
+
+    @Bean
+    @Primary
+    ChatAssistantService chatAssistantService(ChatAssistantServiceImpl modelService, ChatClientRegistry chatClients,
+                                              ObjectProvider<EmbeddingModel> embeddingModel,
+                                              ObjectProvider<MeterRegistry> meterRegistry,
+                                              @Value("${chatbot.tiering.enabled:false}") boolean tieringEnabled,
+                                              @Value("${chatbot.tiering.small-profile:small}") String smallProfile,
+                                              @Value("${chatbot.tiering.threshold:0.35}") double tieringThreshold,
+                                              @Value("${chatbot.tiering.guard-chars:160}") int guardChars,
+                                              @Value("${chatbot.coalescing.enabled:true}") boolean coalescingEnabled,
+                                              @Value("${chatbot.cache.enabled:true}") boolean cacheEnabled,
+                                              @Value("${chatbot.cache.max-entries:500}") int cacheMaxEntries,
+                                              @Value("${chatbot.cache.max-chars:2000000}") long cacheMaxChars,
+                                              @Value("${chatbot.cache.ttl:10m}") Duration cacheTtl,
+                                              @Value("${chatbot.cache.semantic.enabled:false}") boolean semanticEnabled,
+                                              @Value("${chatbot.cache.semantic.min-similarity:0.92}") double minSimilarity) {
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        ChatAssistantService service = modelService;
+        if (tieringEnabled) {
+            service = new TieredChatAssistantService(modelService, chatClients, new PromptComplexityClassifier(),
+                    smallProfile, tieringThreshold, guardChars, registry);
+        }
+        if (coalescingEnabled) {
+            service = new CoalescingChatAssistantService(service, registry);
+        }
+        if (cacheEnabled) {
+            service = new CachingChatAssistantService(service,
+                    new ResponseCache(cacheMaxEntries, cacheMaxChars, cacheTtl, Clock.systemUTC()),
+                    semanticEnabled ? embeddingModel.getIfAvailable() : null, minSimilarity, registry);
+        }
+        return service;
+    }
+}
@@ -4,14 +4,23 @@ import org.springframework.ai.chat.messages.Message;
 import reactor.core.publisher.Flux;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ChatAssistantService {
     /**
      * Streams a chat response from the AI assistant.
      *
-     * @param conversationHistory The complete conversation history, including the latest user message
-     *                            that the AI needs to respond to.
+     * @param prompt              The latest user message that the AI needs to respond to.
+     * @param conversationHistory The prior turns of the conversation, oldest first, not including {@code prompt}.
      * @return A Flux emitting chunks of the AI's response.
      */
     Flux<String> streamChatResponse(String prompt, List<Message> conversationHistory);
+
+    /**
+     * The response of an identical request that is being generated right now, which a caller can stream without
+     * waiting for capacity to start a generation of its own. Empty unless a decorator shares running generations.
+     */
+    default Optional<Flux<String>> joinRunning(String prompt, List<Message> conversationHistory) {
+        return Optional.empty();
+    }
 }
@@ -1,26 +1,56 @@
 package dev.brayanmnz.service;
 
+import dev.brayanmnz.common.metrics.LlmMetricsAdvisor;
+import dev.brayanmnz.service.ChatProfilesProperties.ChatProfile;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ChatAssistantServiceImpl implements ChatAssistantService {
 
-    private final ChatClient.Builder builder;
+    private final ChatClientRegistry chatClients;
+    private final PromptAssembler promptAssembler;
+    private final ChatExecution chatExecution;
+    private final GenerationTracker generationTracker;
+    private final GenerationGuard generationGuard;
 
-    public ChatAssistantServiceImpl(ChatClient.Builder chatClientBuilder) {
-        this.builder = chatClientBuilder;
+    public ChatAssistantServiceImpl(ChatClientRegistry chatClients, PromptAssembler promptAssembler,
+                                    ChatExecution chatExecution, GenerationTracker generationTracker,
+                                    GenerationGuard generationGuard) {
+        this.chatClients = chatClients;
+        this.promptAssembler = promptAssembler;
+        this.chatExecution = chatExecution;
+        this.generationTracker = generationTracker;
+        this.generationGuard = generationGuard;
     }
 
     @Override
     public Flux<String> streamChatResponse(String prompt, List<Message> conversationHistory) {
-        ChatClient chatClient = builder.build();
-        return chatClient.prompt(prompt)
-                .messages(conversationHistory)
-                .stream()
-                .content();
+        return streamChatResponse(prompt, conversationHistory, chatClients.getDefaultProfile());
+    }
+
+    /**
+     * Streams the answer from the chat client of the given profile (or model), falling back to the default one.
+     */
+    public Flux<String> streamChatResponse(String prompt, List<Message> conversationHistory, String profile) {
+        ChatClient chatClient = chatClients.get(profile);
+        ChatProfile limits = chatClients.resolve(profile);
+        return Flux.deferContextual(context -> {
+            long submittedAt = System.nanoTime();
+            ChatClient.ChatClientRequestSpec request = chatClient
+                    .prompt(promptAssembler.assemble(conversationHistory, prompt))
+                    .advisors(advisor -> advisor.param(LlmMetricsAdvisor.SUBMITTED_AT, submittedAt));
+            // Lets the tools report how long their results may be reused to whoever keeps the answer
+            ToolUsage.from(context).ifPresent(usage -> request.toolContext(Map.of(ToolUsage.CONTEXT_KEY, usage)));
+            Flux<String> generation = request.stream().content();
+            // Cancelling the returned Flux closes the HTTP response, which makes the model host stop generating
+            // The guard cancels a runaway generation the same way, and it is counted as cancelled. It runs inside
+            // the limit, so its deadline starts once the request holds a backend permit, not while it queues
+            return chatExecution.limit(generationGuard.guard(generationTracker.track(generation), limits));
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.service.ChatProfilesProperties.ChatProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Holds one immutable, pre-built {@link ChatClient} per model profile so the request path never assembles a
+ * client. Profiles are re-bound from the {@link Environment} on {@link #refresh()}; only changed profiles are
+ * rebuilt and the whole set is swapped atomically, so in-flight requests keep the client they started with.
+ */
+@Service
+public class ChatClientRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatClientRegistry.class);
+
+    private final ChatClient.Builder builder;
+    private final Environment environment;
+
+    private volatile Snapshot snapshot = new Snapshot("default", Map.of());
+
+    public ChatClientRegistry(ChatClient.Builder chatClientBuilder, Environment environment) {
+        this.builder = chatClientBuilder;
+        this.environment = environment;
+        refresh();
+    }
+
+    /**
+     * Returns the client of the given profile name, or of the first profile configured for that model name
+     * (e.g. {@code gemma3:4b}). Unknown keys resolve to the default profile.
+     */
+    public ChatClient get(String profileOrModel) {
+        return entry(profileOrModel).client;
+    }
+
+    /**
+     * Returns the profile {@link #get(String)} resolves {@code profileOrModel} to.
+     */
+    public ChatProfile resolve(String profileOrModel) {
+        return entry(profileOrModel).profile;
+    }
+
+    public ChatClient getDefault() {
+        Snapshot current = snapshot;
+        return current.entries.get(current.defaultProfile).client;
+    }
+
+    public String getDefaultProfile() {
+        return snapshot.defaultProfile;
+    }
+
+    public Set<String> getProfiles() {
+        return snapshot.entries.keySet();
+    }
+
+    public ChatProfile getProfile(String profile) {
+        Entry entry = snapshot.entries.get(profile);
+        return entry != null ? entry.profile : null;
+    }
+
+    @Scheduled(fixedDelayString = "${chatbot.chat.refresh-interval:30s}",
+            initialDelayString = "${chatbot.chat.refresh-interval:30s}")
+    public synchronized void refresh() {
+        ChatProfilesProperties properties = Binder.get(environment)
+                .bind(ChatProfilesProperties.PREFIX, ChatProfilesProperties.class)
+                .orElseGet(ChatProfilesProperties::new);
+        Map<String, ChatProfile> profiles = new LinkedHashMap<>(properties.getProfiles());
+        profiles.putIfAbsent(properties.getDefaultProfile(), new ChatProfile(null, null, null, null, null, null, null));
+
+        Snapshot previous = snapshot;
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        int rebuilt = 0;
+        for (Map.Entry<String, ChatProfile> profile : profiles.entrySet()) {
+            Entry existing = previous.entries.get(profile.getKey());
+            if (existing != null && existing.profile.equals(profile.getValue())) {
+                entries.put(profile.getKey(), existing);
+            } else {
+                entries.put(profile.getKey(), new Entry(profile.getValue(), build(profile.getValue())));
+                rebuilt++;
+            }
+        }
+        if (rebuilt > 0 || entries.size() != previous.entries.size()
+                || !properties.getDefaultProfile().equals(previous.defaultProfile)) {
+            snapshot = new Snapshot(properties.getDefaultProfile(), Collections.unmodifiableMap(entries));
+            logger.info("Chat client registry now holds profiles {} (default '{}', {} rebuilt)",
+                    entries.keySet(), properties.getDefaultProfile(), rebuilt);
+        }
+    }
+
+    private Entry entry(String profileOrModel) {
+        Snapshot current = snapshot;
+        Entry entry = current.entries.get(profileOrModel);
+        if (entry == null) {
+            entry = current.entries.values().stream()
+                    .filter(e -> Objects.equals(e.profile.model(), profileOrModel))
+                    .findFirst()
+                    .orElse(current.entries.get(current.defaultProfile));
+        }
+        return entry;
+    }
+
+    private ChatClient build(ChatProfile profile) {
+        OllamaOptions options = OllamaOptions.builder()
+                .model(profile.model())
+                .temperature(profile.temperature())
+                .topP(profile.topP())
+                .numCtx(profile.numCtx())
+                .keepAlive(profile.keepAlive())
+                // The model host stops at the cap by itself; the GenerationGuard covers hosts that ignore it
+                .numPredict(profile.maxTokens())
+                .build();
+        return builder.clone()
+                .defaultOptions(options)
+                .build();
+    }
+
+    private record Entry(ChatProfile profile, ChatClient client) {
+    }
+
+    private record Snapshot(String defaultProfile, Map<String, Entry> entries) {
+    }
+}
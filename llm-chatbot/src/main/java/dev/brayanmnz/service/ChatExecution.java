@@ -0,0 +1,143 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.routing.ModelRouterProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decides where chat work runs. With {@code spring.threads.virtual.enabled=true} model calls, UI pushes and
+ * persistence run on virtual threads; otherwise on Reactor's bounded elastic pool and platform threads. In both
+ * modes {@link #limit(Flux)} caps the number of requests in flight against the model backend, so thousands of
+ * sessions queue on cheap parked threads instead of piling up on the model server.
+ * <p>
+ * The cap is the backends' capacity, the one concurrency limit of the app: with the model router on, the sum of
+ * its endpoints' {@code max-concurrent}, otherwise {@code chatbot.execution.max-concurrent-requests}. The
+ * {@link ChatRequestScheduler} admits as many requests by default.
+ */
+@Component
+public class ChatExecution implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatExecution.class);
+
+    private final boolean virtualThreads;
+    private final ExecutorService virtualThreadExecutor;
+    private final Scheduler scheduler;
+    private final Semaphore backendPermits;
+    private final int maxConcurrentRequests;
+
+    @Autowired
+    public ChatExecution(Environment environment) {
+        this(environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false),
+                backendCapacity(environment));
+    }
+
+    public ChatExecution(boolean virtualThreads, int maxConcurrentRequests) {
+        this.virtualThreads = virtualThreads;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.backendPermits = new Semaphore(maxConcurrentRequests, true);
+        if (virtualThreads) {
+            virtualThreadExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-vt-", 0).factory());
+            scheduler = Schedulers.fromExecutorService(virtualThreadExecutor, "chat-vt");
+        } else {
+            virtualThreadExecutor = null;
+            scheduler = Schedulers.boundedElastic();
+        }
+        logger.info("Chat work runs on {} threads with at most {} concurrent model requests",
+                virtualThreads ? "virtual" : "platform", maxConcurrentRequests);
+    }
+
+    /**
+     * Requests the model backends can serve at once: the router's capacity when it is on, otherwise
+     * {@code chatbot.execution.max-concurrent-requests}.
+     */
+    static int backendCapacity(Environment environment) {
+        ModelRouterProperties router = Binder.get(environment)
+                .bind(ModelRouterProperties.PREFIX, ModelRouterProperties.class)
+                .orElseGet(ModelRouterProperties::new);
+        if (router.isEnabled() && !router.getEndpoints().isEmpty()) {
+            return router.getCapacity();
+        }
+        return environment.getProperty("chatbot.execution.max-concurrent-requests", Integer.class, 8);
+    }
+
+    /**
+     * Scheduler for blocking work around a chat request: waiting for a backend permit, model I/O and UI pushes.
+     */
+    public Scheduler scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Thread factory for long-lived single-purpose workers such as the history writer.
+     */
+    public ThreadFactory threadFactory(String name) {
+        if (virtualThreads) {
+            return Thread.ofVirtual().name(name).factory();
+        }
+        return Thread.ofPlatform().name(name).daemon(true).factory();
+    }
+
+    /**
+     * Subscribes to {@code request} only once a backend permit is available and releases it when the stream
+     * terminates or is cancelled.
+     */
+    public <T> Flux<T> limit(Flux<T> request) {
+        return Mono.fromCallable(() -> {
+                    backendPermits.acquire();
+                    return new Permit(backendPermits);
+                })
+                .subscribeOn(scheduler)
+                .doOnDiscard(Permit.class, Permit::release)
+                .flatMapMany(permit -> request.doFinally(signal -> permit.release()));
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getInFlightRequests() {
+        return maxConcurrentRequests - backendPermits.availablePermits();
+    }
+
+    @Override
+    public void destroy() {
+        if (virtualThreadExecutor != null) {
+            scheduler.dispose();
+            virtualThreadExecutor.shutdownNow();
+        }
+    }
+
+    private static final class Permit {
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+}
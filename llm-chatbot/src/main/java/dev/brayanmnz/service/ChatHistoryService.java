@@ -0,0 +1,214 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.data.ChatMessage;
+import dev.brayanmnz.data.ChatMessageRepository;
+import dev.brayanmnz.data.Conversation;
+import dev.brayanmnz.data.ConversationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConversationStateStore} in the application database, with write-behind: {@link #append} only queues the
+ * message; {@link #flush} writes everything queued so far in batched inserts on a background writer. Views flush
+ * once a response stream finishes, so a whole turn costs one transaction.
+ * <p>
+ * Each batch reserves the sequence numbers of its messages from the {@link Conversation} rows of their chats, one
+ * update per chat in the same transaction as the inserts, so instances sharing the database never hand out the
+ * same number and a batch that fails gives its numbers back.
+ */
+@Service
+public class ChatHistoryService implements ConversationStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatHistoryService.class);
+
+    private final ChatMessageRepository repository;
+    private final ConversationRepository conversations;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int windowSize;
+    private final int pageSize;
+
+    private final Queue<ChatMessage> pending = new ConcurrentLinkedQueue<>();
+    private final ExecutorService writer;
+
+    public ChatHistoryService(ChatMessageRepository repository, ConversationRepository conversations,
+                              PlatformTransactionManager transactionManager, ChatExecution chatExecution,
+                              @Value("${chatbot.history.batch-size:50}") int batchSize,
+                              @Value("${chatbot.history.window-size:50}") int windowSize,
+                              @Value("${chatbot.history.page-size:20}") int pageSize) {
+        this.repository = repository;
+        this.conversations = conversations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.windowSize = windowSize;
+        this.pageSize = pageSize;
+        this.writer = Executors.newSingleThreadExecutor(chatExecution.threadFactory("chat-history-writer"));
+    }
+
+    @Override
+    public List<String> chatIds(String ownerId) {
+        return conversations.findChatIds(ConversationStateStore.chatId(ownerId, "%"));
+    }
+
+    /**
+     * Queues the message for the next flush, which assigns its sequence number.
+     */
+    @Override
+    public ChatMessage append(String chatId, ChatMessage.Role role, String author, String text, Instant createdAt) {
+        ChatMessage message = new ChatMessage(chatId, 0, role, author, text, createdAt);
+        pending.add(message);
+        return message;
+    }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(this::drain, writer);
+    }
+
+    @Override
+    public HistoryPage loadRecent(String chatId) {
+        return loadBefore(chatId, Long.MAX_VALUE, windowSize, true);
+    }
+
+    @Override
+    public HistoryPage loadOlder(String chatId, long beforeSeq) {
+        return loadBefore(chatId, beforeSeq, pageSize, false);
+    }
+
+    @Override
+    public List<ChatMessage> loadAfter(String chatId, long afterSeq) {
+        return repository.findByChatIdAndSeqGreaterThanOrderBySeq(chatId, afterSeq);
+    }
+
+    @Override
+    public long lastSeq(String chatId) {
+        return repository.findMaxSeq(chatId);
+    }
+
+    @Override
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    @Override
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Scheduled(fixedDelayString = "${chatbot.history.flush-interval:5s}")
+    void flushPeriodically() {
+        if (!pending.isEmpty()) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        flush().join();
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private HistoryPage loadBefore(String chatId, long beforeSeq, int limit, boolean withPending) {
+        Slice<ChatMessage> slice = repository.findByChatIdAndSeqLessThanOrderBySeqDesc(
+                chatId, beforeSeq, PageRequest.ofSize(limit));
+        List<ChatMessage> messages = new ArrayList<>(slice.getContent());
+        messages.sort(Comparator.comparingLong(ChatMessage::getSeq));
+        if (withPending) {
+            // Messages of a stream that has not been flushed yet are only in the write-behind queue, after every
+            // written one
+            for (ChatMessage message : pending) {
+                if (message.getChatId().equals(chatId)) {
+                    messages.add(message);
+                }
+            }
+        }
+        boolean hasOlder = slice.hasNext();
+        if (messages.size() > limit) {
+            messages = new ArrayList<>(messages.subList(messages.size() - limit, messages.size()));
+            hasOlder = true;
+        }
+        return new HistoryPage(messages, hasOlder);
+    }
+
+    private void drain() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        int written = 0;
+        ChatMessage message;
+        while ((message = pending.poll()) != null) {
+            batch.add(message);
+            if (batch.size() == batchSize) {
+                written += write(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            written += write(batch);
+        }
+        if (written > 0) {
+            logger.debug("Persisted {} chat messages", written);
+        }
+    }
+
+    private int write(List<ChatMessage> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                assignSeqs(batch);
+                repository.saveAll(batch);
+            });
+            return batch.size();
+        } catch (RuntimeException e) {
+            logger.error("Could not persist {} chat messages, retrying on next flush: {}", batch.size(), e.getMessage(), e);
+            batch.forEach(message -> message.setSeq(0));
+            pending.addAll(batch);
+            return 0;
+        }
+    }
+
+    private void assignSeqs(List<ChatMessage> batch) {
+        Map<String, List<ChatMessage>> byChat = new LinkedHashMap<>();
+        for (ChatMessage message : batch) {
+            byChat.computeIfAbsent(message.getChatId(), chatId -> new ArrayList<>()).add(message);
+        }
+        byChat.forEach((chatId, messages) -> {
+            long seq = reserveSeqs(chatId, messages.size()) - messages.size();
+            for (ChatMessage message : messages) {
+                message.setSeq(++seq);
+            }
+        });
+    }
+
+    private long reserveSeqs(String chatId, int count) {
+        Long last = conversations.reserveSeqs(chatId, count);
+        if (last != null) {
+            return last;
+        }
+        // A new chat, or one from before the counter: carry on from its stored messages. Should another instance
+        // insert the row first, the batch fails and is retried on the next flush.
+        last = repository.findMaxSeq(chatId) + count;
+        conversations.insert(chatId, last, Instant.now());
+        return last;
+    }
+
+}
@@ -0,0 +1,116 @@
+package dev.brayanmnz.service;
+
+import jakarta.servlet.http.Cookie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Who owns the chats of a browser: a random owner id carried in a long-lived cookie, signed with
+ * {@code chatbot.owner.secret} so a browser cannot claim another owner's chats. Any instance with the same secret
+ * accepts the cookie, so the chats of a browser are found after a reload on another instance, a restart or an
+ * expired session (see {@link ConversationStateStore} for how chats are keyed by owner).
+ * <p>
+ * Without a configured secret each instance signs with a random one of its own, which only suits a single instance
+ * that is never restarted.
+ */
+@Component
+public class ChatOwnerCookie {
+
+    public static final String NAME = "chatbot-owner";
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatOwnerCookie.class);
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final Duration maxAge;
+
+    public ChatOwnerCookie(@Value("${chatbot.owner.secret:}") String secret,
+                           @Value("${chatbot.owner.max-age:400d}") Duration maxAge) {
+        byte[] keyBytes;
+        if (secret.isBlank()) {
+            logger.warn("chatbot.owner.secret is not set: chat owner cookies are only valid on this instance until "
+                    + "it restarts");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * The owner of the request's cookie or, when it has none with a valid signature, a new owner whose cookie is
+     * handed to {@code response}.
+     *
+     * @param secure whether the request came over HTTPS, so the cookie is only sent back that way
+     */
+    public String resolve(Cookie[] cookies, boolean secure, Consumer<Cookie> response) {
+        return ownerId(cookies).orElseGet(() -> {
+            String ownerId = UUID.randomUUID().toString();
+            response.accept(issue(ownerId, secure));
+            return ownerId;
+        });
+    }
+
+    /**
+     * The owner of the request's cookie, if it has one with a valid signature.
+     */
+    public Optional<String> ownerId(Cookie[] cookies) {
+        if (cookies == null) {
+            return Optional.empty();
+        }
+        for (Cookie cookie : cookies) {
+            if (NAME.equals(cookie.getName())) {
+                return verify(cookie.getValue());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Cookie issue(String ownerId, boolean secure) {
+        Cookie cookie = new Cookie(NAME, ownerId + "." + sign(ownerId));
+        cookie.setPath("/");
+        cookie.setMaxAge((int) maxAge.toSeconds());
+        cookie.setHttpOnly(true);
+        cookie.setSecure(secure);
+        cookie.setAttribute("SameSite", "Lax");
+        return cookie;
+    }
+
+    private Optional<String> verify(String value) {
+        int dot = value.lastIndexOf('.');
+        if (dot <= 0) {
+            return Optional.empty();
+        }
+        String ownerId = value.substring(0, dot);
+        byte[] expected = sign(ownerId).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = value.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual) ? Optional.of(ownerId) : Optional.empty();
+    }
+
+    private String sign(String ownerId) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] signature = mac.doFinal(ownerId.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign chat owner cookies", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package dev.brayanmnz.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Model profiles bound from {@code chatbot.chat.*}. Each profile describes the model and generation options of
+ * one pre-built {@code ChatClient}.
+ */
+public class ChatProfilesProperties {
+
+    public static final String PREFIX = "chatbot.chat";
+
+    private String defaultProfile = "default";
+    private Map<String, ChatProfile> profiles = new LinkedHashMap<>();
+
+    public String getDefaultProfile() {
+        return defaultProfile;
+    }
+
+    public void setDefaultProfile(String defaultProfile) {
+        this.defaultProfile = defaultProfile;
+    }
+
+    public Map<String, ChatProfile> getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(Map<String, ChatProfile> profiles) {
+        this.profiles = profiles;
+    }
+
+    /**
+     * Options of one model profile. Unset values fall back to the {@code spring.ai.ollama.chat.options.*}
+     * defaults of the auto-configured model, and {@code maxTokens} and {@code timeout} to the
+     * {@code chatbot.generation.*} limits of the {@link GenerationGuard}.
+     */
+    public record ChatProfile(String model, Double temperature, Double topP, Integer numCtx, String keepAlive,
+                              Integer maxTokens, Duration timeout) {
+    }
+}
@@ -0,0 +1,11 @@
+package dev.brayanmnz.service;
+
+/**
+ * Thrown to a new chat request when the {@link ChatRequestScheduler} already has its maximum of requests waiting.
+ */
+public class ChatQueueFullException extends RuntimeException {
+
+    public ChatQueueFullException(int maxQueue) {
+        super("Hay demasiadas consultas en espera (" + maxQueue + "), inténtalo de nuevo en unos momentos.");
+    }
+}
@@ -0,0 +1,292 @@
+package dev.brayanmnz.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Admission control between the views and the {@link ChatAssistantService}. At most {@code max-concurrent}
+ * requests stream at once (by default the backend capacity of {@link ChatExecution}) and each session (browser
+ * tab) has at most one of them; the rest wait in a queue bounded by {@code max-queue} and are dispatched
+ * round-robin across sessions, so one busy tab cannot starve the others. Cancelling the returned {@link Flux}
+ * removes a waiting request or stops a running one.
+ * <p>
+ * A request identical to one being generated (see {@link ChatAssistantService#joinRunning}) joins that generation
+ * straight away: it neither waits in the queue nor takes a slot, since it adds no load on the model.
+ */
+@Service
+public class ChatRequestScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatRequestScheduler.class);
+
+    private final ChatAssistantService chatAssistantService;
+    private final int maxConcurrent;
+    private final int maxQueue;
+
+    private final Map<String, Deque<Job>> waiting = new HashMap<>();
+    private final Deque<String> rotation = new ArrayDeque<>();
+    private final Set<String> runningSessions = new HashSet<>();
+    private int queued;
+    private int running;
+
+    private final Timer queueWait;
+    private final Counter rejected;
+    private final Counter joined;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param maxConcurrent requests streaming at once, or {@code 0} for the backend capacity
+     */
+    @Autowired
+    public ChatRequestScheduler(ChatAssistantService chatAssistantService,
+                                ObjectProvider<MeterRegistry> meterRegistry, ChatExecution chatExecution,
+                                @Value("${chatbot.scheduler.max-concurrent:0}") int maxConcurrent,
+                                @Value("${chatbot.scheduler.max-queue:100}") int maxQueue) {
+        this(chatAssistantService, meterRegistry,
+                maxConcurrent > 0 ? maxConcurrent : chatExecution.getMaxConcurrentRequests(), maxQueue);
+    }
+
+    public ChatRequestScheduler(ChatAssistantService chatAssistantService,
+                                ObjectProvider<MeterRegistry> meterRegistry, int maxConcurrent, int maxQueue) {
+        this.chatAssistantService = chatAssistantService;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.queueWait = this.meterRegistry.timer("chatbot.scheduler.queue.wait");
+        this.rejected = this.meterRegistry.counter("chatbot.scheduler.rejected");
+        this.joined = this.meterRegistry.counter("chatbot.scheduler.joined");
+        this.meterRegistry.gauge("chatbot.scheduler.queue.size", this, ChatRequestScheduler::getQueued);
+        this.meterRegistry.gauge("chatbot.scheduler.in.flight", this, ChatRequestScheduler::getRunning);
+    }
+
+    /**
+     * Queues a chat request of {@code sessionId} on subscription and streams its response once it is dispatched.
+     * Fails with {@link ChatQueueFullException} when the queue is full.
+     *
+     * @param queuePosition notified with the 1-based position while the request waits and with 0 when it starts
+     */
+    public Flux<String> submit(String sessionId, String prompt, List<Message> conversationHistory,
+                               IntConsumer queuePosition) {
+        return Flux.defer(() -> chatAssistantService.joinRunning(prompt, conversationHistory)
+                .map(running -> {
+                    joined.increment();
+                    queuePosition.accept(0);
+                    return running;
+                })
+                .orElseGet(() -> Flux.create(sink -> {
+                    Job job = new Job(sessionId, prompt, conversationHistory, queuePosition, sink);
+                    sink.onCancel(() -> cancel(job));
+                    enqueue(job);
+                })));
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    private void enqueue(Job job) {
+        List<Runnable> notifications;
+        synchronized (this) {
+            if (queued >= maxQueue) {
+                rejected.increment();
+                job.sink.error(new ChatQueueFullException(maxQueue));
+                return;
+            }
+            Deque<Job> sessionQueue = waiting.computeIfAbsent(job.sessionId, id -> new ArrayDeque<>());
+            if (sessionQueue.isEmpty()) {
+                rotation.addLast(job.sessionId);
+            }
+            sessionQueue.addLast(job);
+            queued++;
+            notifications = dispatch();
+        }
+        notifications.forEach(Runnable::run);
+    }
+
+    private void cancel(Job job) {
+        List<Runnable> notifications;
+        Disposable upstream;
+        synchronized (this) {
+            if (job.state == State.WAITING) {
+                Deque<Job> sessionQueue = waiting.get(job.sessionId);
+                sessionQueue.remove(job);
+                if (sessionQueue.isEmpty()) {
+                    waiting.remove(job.sessionId);
+                    rotation.remove(job.sessionId);
+                }
+                queued--;
+                job.state = State.DONE;
+                logger.debug("Chat request of session {} cancelled while queued", job.sessionId);
+                notifications = dispatch();
+                upstream = null;
+            } else {
+                notifications = List.of();
+                upstream = job.upstream;
+            }
+        }
+        notifications.forEach(Runnable::run);
+        if (upstream != null) {
+            upstream.dispose();
+            finish(job, "cancelled");
+        }
+    }
+
+    private void finish(Job job, String outcome) {
+        List<Runnable> notifications;
+        synchronized (this) {
+            if (job.state != State.RUNNING) {
+                return;
+            }
+            job.state = State.DONE;
+            running--;
+            runningSessions.remove(job.sessionId);
+            // The session just had its turn, so its next request goes behind the other sessions
+            if (rotation.remove(job.sessionId)) {
+                rotation.addLast(job.sessionId);
+            }
+            notifications = dispatch();
+        }
+        Timer.builder("chatbot.scheduler.service.time")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - job.startedAt, TimeUnit.NANOSECONDS);
+        notifications.forEach(Runnable::run);
+    }
+
+    /**
+     * Starts waiting requests while there is capacity, visiting sessions round-robin and skipping those that
+     * already have a request running, then refreshes the queue positions. Returns the callbacks to run once the
+     * lock is released.
+     */
+    private List<Runnable> dispatch() {
+        List<Runnable> actions = new ArrayList<>();
+        int visited = 0;
+        while (running < maxConcurrent && visited < rotation.size()) {
+            String sessionId = rotation.pollFirst();
+            if (runningSessions.contains(sessionId)) {
+                rotation.addLast(sessionId);
+                visited++;
+                continue;
+            }
+            Deque<Job> sessionQueue = waiting.get(sessionId);
+            Job job = sessionQueue.pollFirst();
+            if (sessionQueue.isEmpty()) {
+                waiting.remove(sessionId);
+            } else {
+                rotation.addLast(sessionId);
+            }
+            queued--;
+            running++;
+            runningSessions.add(sessionId);
+            job.state = State.RUNNING;
+            job.startedAt = System.nanoTime();
+            queueWait.record(job.startedAt - job.enqueuedAt, TimeUnit.NANOSECONDS);
+            actions.add(() -> start(job));
+            visited = 0;
+        }
+        actions.addAll(positionUpdates());
+        return actions;
+    }
+
+    /**
+     * Positions follow the round-robin order: first the head of every session's queue, then the second request of
+     * every session, and so on. Sessions with a request running are served last in each round, as they move to the
+     * back of the rotation once it finishes.
+     */
+    private List<Runnable> positionUpdates() {
+        List<String> order = new ArrayList<>(rotation.size());
+        rotation.stream().filter(sessionId -> !runningSessions.contains(sessionId)).forEach(order::add);
+        rotation.stream().filter(runningSessions::contains).forEach(order::add);
+
+        List<Runnable> updates = new ArrayList<>();
+        int position = 0;
+        for (int depth = 0; position < queued; depth++) {
+            for (String sessionId : order) {
+                Deque<Job> sessionQueue = waiting.get(sessionId);
+                if (sessionQueue.size() > depth) {
+                    Job job = sessionQueue.stream().skip(depth).findFirst().orElseThrow();
+                    int jobPosition = ++position;
+                    if (job.position != jobPosition) {
+                        job.position = jobPosition;
+                        updates.add(() -> job.queuePosition.accept(jobPosition));
+                    }
+                }
+            }
+        }
+        return updates;
+    }
+
+    private void start(Job job) {
+        job.queuePosition.accept(0);
+        Disposable upstream = chatAssistantService.streamChatResponse(job.prompt, job.conversationHistory)
+                .subscribe(job.sink::next,
+                        error -> {
+                            finish(job, "error");
+                            job.sink.error(error);
+                        },
+                        () -> {
+                            finish(job, "completed");
+                            job.sink.complete();
+                        });
+        synchronized (this) {
+            job.upstream = upstream;
+        }
+        if (job.sink.isCancelled()) {
+            upstream.dispose();
+            finish(job, "cancelled");
+        }
+    }
+
+    private enum State {
+        WAITING, RUNNING, DONE
+    }
+
+    private static final class Job {
+        private final String sessionId;
+        private final String prompt;
+        private final List<Message> conversationHistory;
+        private final IntConsumer queuePosition;
+        private final FluxSink<String> sink;
+        private final long enqueuedAt = System.nanoTime();
+
+        private State state = State.WAITING;
+        private long startedAt;
+        private int position;
+        private Disposable upstream;
+
+        private Job(String sessionId, String prompt, List<Message> conversationHistory, IntConsumer queuePosition,
+                    FluxSink<String> sink) {
+            this.sessionId = sessionId;
+            this.prompt = prompt;
+            this.conversationHistory = conversationHistory;
+            this.queuePosition = queuePosition;
+            this.sink = sink;
+        }
+    }
+}
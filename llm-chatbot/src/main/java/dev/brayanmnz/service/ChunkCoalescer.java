@@ -0,0 +1,51 @@
+package dev.brayanmnz.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Folds the token chunks of a model stream into frames so the UI is updated at most once per frame interval
+ * (or once every {@code maxChunksPerFrame} chunks) instead of once per token. Each emitted element is the text
+ * appended since the previous frame, never the accumulated response.
+ */
+@Component
+public class ChunkCoalescer {
+
+    private final Duration frameInterval;
+    private final int maxChunksPerFrame;
+
+    public ChunkCoalescer(@Value("${chatbot.streaming.frame-interval:50ms}") Duration frameInterval,
+                          @Value("${chatbot.streaming.max-chunks-per-frame:256}") int maxChunksPerFrame) {
+        this.frameInterval = frameInterval;
+        this.maxChunksPerFrame = maxChunksPerFrame;
+    }
+
+    public Flux<String> coalesce(Flux<String> chunks, StreamingStats stats) {
+        return chunks
+                .bufferTimeout(maxChunksPerFrame, frameInterval)
+                .map(frame -> {
+                    stats.recordFrame(frame.size());
+                    return join(frame);
+                })
+                .filter(delta -> !delta.isEmpty());
+    }
+
+    private static String join(List<String> frame) {
+        if (frame.size() == 1) {
+            return frame.getFirst();
+        }
+        int length = 0;
+        for (String chunk : frame) {
+            length += chunk.length();
+        }
+        StringBuilder delta = new StringBuilder(length);
+        for (String chunk : frame) {
+            delta.append(chunk);
+        }
+        return delta.toString();
+    }
+}
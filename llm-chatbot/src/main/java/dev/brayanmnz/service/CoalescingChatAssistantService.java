@@ -0,0 +1,99 @@
+package dev.brayanmnz.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.messages.Message;
+import reactor.core.publisher.Flux;
+import reactor.util.context.Context;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link ChatAssistantService} decorator that lets identical requests share one generation while it is running
+ * (single flight). Requests are identical when their normalized prompt and conversation context match, as for the
+ * {@link CachingChatAssistantService} exact tier.
+ * <p>
+ * The first request starts the generation; requests arriving while it streams join it and get the chunks already
+ * generated followed by the live ones. The generation is only cancelled once every request sharing it has
+ * cancelled, and it stops being joinable as soon as it ends, so a later request starts a fresh one (or hits the
+ * response cache in front of this decorator).
+ */
+public class CoalescingChatAssistantService implements ChatAssistantService {
+
+    private final ChatAssistantService delegate;
+    private final Map<String, Flux<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter generations;
+    private final Counter joined;
+
+    public CoalescingChatAssistantService(ChatAssistantService delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.generations = meterRegistry.counter("chatbot.coalescing.requests", "result", "generated");
+        this.joined = meterRegistry.counter("chatbot.coalescing.requests", "result", "joined");
+        meterRegistry.gaugeMapSize("chatbot.coalescing.in-flight", List.of(), inFlight);
+    }
+
+    @Override
+    public Flux<String> streamChatResponse(String prompt, List<Message> conversationHistory) {
+        String key = key(prompt, conversationHistory);
+        return Flux.defer(() -> {
+            Flux<String> running = inFlight.get(key);
+            if (running != null) {
+                joined.increment();
+                return running;
+            }
+            AtomicReference<Flux<String>> self = new AtomicReference<>();
+            // The generation runs in the context of whoever started it, so its tool calls are recorded on its own
+            // ToolUsage and passed on to every request sharing it
+            ToolUsage tools = new ToolUsage();
+            // Buffers every chunk for late joiners and cancels upstream when the last subscriber leaves
+            // Unregistered before subscribers see the end, so nobody can join a finished generation
+            Flux<String> shared = delegate.streamChatResponse(prompt, conversationHistory)
+                    .contextWrite(Context.of(ToolUsage.CONTEXT_KEY, tools))
+                    .doOnTerminate(() -> inFlight.remove(key, self.get()))
+                    .doOnCancel(() -> inFlight.remove(key, self.get()))
+                    .replay()
+                    .refCount()
+                    .transformDeferredContextual((flux, context) -> flux.doOnComplete(() ->
+                            ToolUsage.from(context).ifPresent(usage -> usage.addAll(tools))));
+            self.set(shared);
+            running = inFlight.putIfAbsent(key, shared);
+            if (running != null) {
+                joined.increment();
+                return running;
+            }
+            generations.increment();
+            return shared;
+        });
+    }
+
+    /**
+     * The running generation of an identical request, so the {@link ChatRequestScheduler} can let a request join
+     * it without taking a slot.
+     */
+    @Override
+    public Optional<Flux<String>> joinRunning(String prompt, List<Message> conversationHistory) {
+        Flux<String> running = inFlight.get(key(prompt, conversationHistory));
+        if (running == null) {
+            return Optional.empty();
+        }
+        joined.increment();
+        return Optional.of(running);
+    }
+
+    /**
+     * Number of generations currently shared.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private static String key(String prompt, List<Message> conversationHistory) {
+        return CachingChatAssistantService.contextHash(conversationHistory) + '|'
+                + CachingChatAssistantService.normalize(prompt);
+    }
+}
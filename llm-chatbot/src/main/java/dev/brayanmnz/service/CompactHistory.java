@@ -0,0 +1,88 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.data.ChatMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The messages of an idle chat packed into one direct buffer, outside the Java heap: per message its seq, time,
+ * {@link InternedAuthors author id} and UTF-8 text, back to back. What stays on the heap is the buffer object and
+ * one offset per message, so an idle chat costs the heap a few bytes per message instead of the objects behind a
+ * {@link ChatMessage} and its model-side copy.
+ * <p>
+ * Messages are materialized one at a time from the offsets, only when a view or the model context needs them. The
+ * buffer is released with this object, when the collector finds it unreachable.
+ */
+final class CompactHistory {
+
+    // seq, epoch second, nano, author id, text length
+    private static final int HEADER_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private final String chatId;
+    private final InternedAuthors authors;
+    private final ByteBuffer segment;
+    private final int[] offsets;
+
+    private CompactHistory(String chatId, InternedAuthors authors, ByteBuffer segment, int[] offsets) {
+        this.chatId = chatId;
+        this.authors = authors;
+        this.segment = segment;
+        this.offsets = offsets;
+    }
+
+    static CompactHistory of(String chatId, List<ChatMessage> messages, InternedAuthors authors) {
+        List<byte[]> texts = new ArrayList<>(messages.size());
+        int bytes = 0;
+        for (ChatMessage message : messages) {
+            byte[] text = message.getText().getBytes(StandardCharsets.UTF_8);
+            texts.add(text);
+            bytes += HEADER_BYTES + text.length;
+        }
+        ByteBuffer segment = ByteBuffer.allocateDirect(bytes);
+        int[] offsets = new int[messages.size()];
+        for (int i = 0; i < messages.size(); i++) {
+            ChatMessage message = messages.get(i);
+            offsets[i] = segment.position();
+            segment.putLong(message.getSeq())
+                    .putLong(message.getCreatedAt().getEpochSecond())
+                    .putInt(message.getCreatedAt().getNano())
+                    .putInt(authors.idOf(message.getRole(), message.getAuthor()))
+                    .putInt(texts.get(i).length)
+                    .put(texts.get(i));
+        }
+        return new CompactHistory(chatId, authors, segment.asReadOnlyBuffer(), offsets);
+    }
+
+    int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Bytes held outside the heap.
+     */
+    int offHeapBytes() {
+        return segment.capacity();
+    }
+
+    ChatMessage message(int index) {
+        int offset = offsets[index];
+        InternedAuthors.Author author = authors.get(segment.getInt(offset + 20));
+        byte[] text = new byte[segment.getInt(offset + 24)];
+        segment.get(offset + HEADER_BYTES, text);
+        return new ChatMessage(chatId, segment.getLong(offset), author.role(), author.name(),
+                new String(text, StandardCharsets.UTF_8),
+                Instant.ofEpochSecond(segment.getLong(offset + 8), segment.getInt(offset + 16)));
+    }
+
+    List<ChatMessage> messages() {
+        List<ChatMessage> messages = new ArrayList<>(offsets.length);
+        for (int i = 0; i < offsets.length; i++) {
+            messages.add(message(i));
+        }
+        return messages;
+    }
+}
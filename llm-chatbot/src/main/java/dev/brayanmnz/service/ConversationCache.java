@@ -0,0 +1,304 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.data.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This instance's near-cache of the {@link ConversationStateStore}: a chat is loaded the first time it is read
+ * and kept, with its {@link ConversationContext}, for every view on this instance. A read more than
+ * {@code revalidateInterval} after the last check asks the store for the chat's latest sequence number and, when
+ * other instances have written to the chat since, loads just those messages. Past {@code maxChats} the chat used
+ * least recently is dropped. Chats are cached by their store id, which includes the owner, so owners never share a
+ * cached chat or its context.
+ * <p>
+ * A chat not read for {@code compactAfter} is compacted: its messages move into a {@link CompactHistory} off the
+ * heap and its context is dropped. The next read materializes them again and rebuilds the context from them, as a
+ * load from the store would.
+ * <p>
+ * Counts {@code chatbot.conversation.cache} reads by {@code result}: {@code hit}, {@code miss} (loaded from the
+ * store), {@code refresh} (brought up to date with other instances' messages) and {@code expand} (materialized from
+ * its compacted form). {@code chatbot.conversation.compacted.bytes} gauges the memory held off the heap.
+ */
+@Service
+public class ConversationCache {
+
+    private final ConversationStateStore store;
+    private final ConversationContextManager contextManager;
+    private final long revalidateNanos;
+    private final long compactAfterNanos;
+    private final Map<String, CachedConversation> conversations;
+    private final InternedAuthors authors = new InternedAuthors();
+    private final AtomicLong compactedBytes = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter refreshes;
+    private final Counter expansions;
+
+    public ConversationCache(ConversationStateStore store, ConversationContextManager contextManager,
+                             @Value("${chatbot.conversation.revalidate-interval:1s}") Duration revalidateInterval,
+                             @Value("${chatbot.conversation.max-chats:1000}") int maxChats,
+                             @Value("${chatbot.conversation.compact-after:5m}") Duration compactAfter,
+                             ObjectProvider<MeterRegistry> meterRegistry) {
+        this.store = store;
+        this.contextManager = contextManager;
+        this.revalidateNanos = revalidateInterval.toNanos();
+        this.compactAfterNanos = compactAfter.toNanos();
+        this.conversations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedConversation> eldest) {
+                if (size() <= maxChats) {
+                    return false;
+                }
+                eldest.getValue().release();
+                return true;
+            }
+        };
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.hits = registry.counter("chatbot.conversation.cache", "result", "hit");
+        this.misses = registry.counter("chatbot.conversation.cache", "result", "miss");
+        this.refreshes = registry.counter("chatbot.conversation.cache", "result", "refresh");
+        this.expansions = registry.counter("chatbot.conversation.cache", "result", "expand");
+        registry.gauge("chatbot.conversation.compacted.bytes", compactedBytes);
+    }
+
+    public List<String> chatIds(String ownerId) {
+        return store.chatIds(ownerId);
+    }
+
+    /**
+     * The chat as this instance knows it, loaded or brought up to date first when needed.
+     */
+    public CachedConversation get(String chatId) {
+        CachedConversation conversation;
+        synchronized (conversations) {
+            conversation = conversations.computeIfAbsent(chatId, CachedConversation::new);
+        }
+        // Store reads happen under the chat's own lock, so a slow load never holds up other chats
+        synchronized (conversation) {
+            conversation.readAt = System.nanoTime();
+            if (conversation.compacted != null) {
+                conversation.expand();
+                expansions.increment();
+            }
+            if (!conversation.loaded) {
+                conversation.load();
+                misses.increment();
+            } else if (System.nanoTime() - conversation.checkedAt >= revalidateNanos && conversation.refresh()) {
+                refreshes.increment();
+            } else {
+                hits.increment();
+            }
+        }
+        return conversation;
+    }
+
+    /**
+     * Stores a message of this instance and adds it to the cached chat. Unlike messages from other instances it is
+     * not added to the {@link CachedConversation#context() context}: the caller appends what the model should see,
+     * which may differ from what is shown.
+     */
+    public ChatMessage append(String chatId, ChatMessage.Role role, String author, String text, Instant createdAt) {
+        CachedConversation conversation = get(chatId);
+        synchronized (conversation) {
+            ChatMessage message = store.append(chatId, role, author, text, createdAt);
+            conversation.local.add(message);
+            conversation.add(message);
+            return message;
+        }
+    }
+
+    /**
+     * Drops the cached chat; the next read loads it from the store again.
+     */
+    public void invalidate(String chatId) {
+        CachedConversation removed;
+        synchronized (conversations) {
+            removed = conversations.remove(chatId);
+        }
+        if (removed != null) {
+            removed.release();
+        }
+    }
+
+    /**
+     * Compacts the chats not read for {@code compactAfter}. Chats with messages not written yet wait for the next
+     * round, so a message of this instance is never confused with its stored copy.
+     */
+    @Scheduled(fixedDelayString = "${chatbot.conversation.compact-after:5m}")
+    void compactIdle() {
+        List<CachedConversation> cached;
+        synchronized (conversations) {
+            cached = new ArrayList<>(conversations.values());
+        }
+        long now = System.nanoTime();
+        for (CachedConversation conversation : cached) {
+            synchronized (conversation) {
+                if (conversation.loaded && conversation.compacted == null
+                        && now - conversation.readAt >= compactAfterNanos) {
+                    conversation.compact();
+                }
+            }
+        }
+    }
+
+    // Messages not written yet have no seq but come after every written one
+    private static long order(ChatMessage message) {
+        return message.getSeq() == 0 ? Long.MAX_VALUE : message.getSeq();
+    }
+
+    /**
+     * One chat as cached on this instance: its most recent messages and the model-side context.
+     */
+    public final class CachedConversation {
+
+        private final String chatId;
+        // Appended on this instance and not yet read back from the store, so the stored copies are not taken for
+        // another instance's messages
+        private final List<ChatMessage> local = new ArrayList<>();
+        private List<ChatMessage> messages = new ArrayList<>();
+        private ConversationContext context;
+        private CompactHistory compacted;
+        private boolean hasOlder;
+        private boolean loaded;
+        private long syncedSeq;
+        private long checkedAt;
+        private long readAt;
+
+        private CachedConversation(String chatId) {
+            this.chatId = chatId;
+        }
+
+        /**
+         * The most recent messages, oldest first.
+         */
+        public synchronized List<ChatMessage> messages() {
+            if (compacted != null) {
+                return List.copyOf(compacted.messages());
+            }
+            return List.copyOf(messages);
+        }
+
+        public synchronized ConversationContext context() {
+            // Only a caller that held on to this chat while it went idle finds it compacted
+            if (compacted != null) {
+                expand();
+                expansions.increment();
+            }
+            return context;
+        }
+
+        /**
+         * Whether the chat has messages before the first of {@link #messages()}.
+         */
+        public synchronized boolean hasOlder() {
+            return hasOlder;
+        }
+
+        private void load() {
+            // Read before the messages: anything written in between is fetched again and skipped as known
+            syncedSeq = store.lastSeq(chatId);
+            ConversationStateStore.HistoryPage page = store.loadRecent(chatId);
+            context = contextManager.newContext();
+            hasOlder = page.hasOlder();
+            page.messages().forEach(this::add);
+            page.messages().forEach(this::appendToContext);
+            page.messages().stream().filter(message -> message.getSeq() == 0).forEach(local::add);
+            loaded = true;
+            checkedAt = System.nanoTime();
+        }
+
+        private synchronized void compact() {
+            if (messages.stream().anyMatch(message -> message.getSeq() == 0)) {
+                return;
+            }
+            compacted = CompactHistory.of(chatId, messages, authors);
+            compactedBytes.addAndGet(compacted.offHeapBytes());
+            messages = new ArrayList<>(0);
+            context = null;
+            // Every local message is written: once expanded, refresh recognizes its stored copy by seq
+            local.clear();
+        }
+
+        private synchronized void expand() {
+            messages = compacted.messages();
+            context = contextManager.newContext();
+            messages.forEach(this::appendToContext);
+            release();
+        }
+
+        private synchronized void release() {
+            if (compacted != null) {
+                compactedBytes.addAndGet(-compacted.offHeapBytes());
+                compacted = null;
+            }
+        }
+
+        private boolean refresh() {
+            checkedAt = System.nanoTime();
+            long latest = store.lastSeq(chatId);
+            if (latest <= syncedSeq) {
+                return false;
+            }
+            boolean changed = false;
+            for (ChatMessage message : store.loadAfter(chatId, syncedSeq)) {
+                latest = Math.max(latest, message.getSeq());
+                // The writer numbers a message before committing it, so a local one read back has its seq by now
+                if (!removeLocal(message.getSeq()) && !contains(message.getSeq())) {
+                    add(message);
+                    appendToContext(message);
+                    changed = true;
+                }
+            }
+            syncedSeq = latest;
+            return changed;
+        }
+
+        private synchronized void add(ChatMessage message) {
+            messages.add(message);
+            if (messages.size() > 1 && order(messages.get(messages.size() - 2)) > order(message)) {
+                messages.sort(Comparator.comparingLong(ConversationCache::order));
+            }
+            // Older turns stay in the store; only the most recent window is kept per chat
+            while (messages.size() > store.getWindowSize()) {
+                messages.removeFirst();
+                hasOlder = true;
+            }
+        }
+
+        private boolean removeLocal(long seq) {
+            return local.removeIf(message -> message.getSeq() == seq);
+        }
+
+        private boolean contains(long seq) {
+            for (ChatMessage message : messages) {
+                if (message.getSeq() == seq) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void appendToContext(ChatMessage message) {
+            if (message.getRole() == ChatMessage.Role.USER) {
+                context.appendUser(message.getText());
+            } else {
+                context.appendAssistant(message.getText());
+            }
+        }
+    }
+}
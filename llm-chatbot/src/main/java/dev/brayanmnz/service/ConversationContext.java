@@ -0,0 +1,109 @@
+package dev.brayanmnz.service;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Model-side history of one chat. Messages are converted once when appended and their token estimate is kept
+ * alongside, so building the context of a new turn never walks the UI history again.
+ * <p>
+ * When the window exceeds the token budget the oldest turns are dropped down to {@code trimRatio} of the budget
+ * in one step rather than one message per turn; the window then keeps the same first message for several turns,
+ * which keeps the prompt prefix stable for the model server. Dropped turns are released at the same time, so a long
+ * chat keeps only its window.
+ */
+public class ConversationContext {
+
+    private final TokenEstimator tokenEstimator;
+    private final int maxTokens;
+    private final int trimTarget;
+
+    private final List<Message> messages = new ArrayList<>();
+    private int[] tokens = new int[16];
+    private int start;
+    private int windowTokens;
+    private int trimmedMessages;
+    private int released;
+
+    ConversationContext(TokenEstimator tokenEstimator, int maxTokens, double trimRatio) {
+        this.tokenEstimator = tokenEstimator;
+        this.maxTokens = maxTokens;
+        this.trimTarget = (int) (maxTokens * trimRatio);
+    }
+
+    public synchronized void appendUser(String text) {
+        append(new UserMessage(text), text);
+    }
+
+    public synchronized void appendAssistant(String text) {
+        append(new AssistantMessage(text), text);
+    }
+
+    public synchronized ContextWindow window() {
+        return new ContextWindow(List.copyOf(messages.subList(start, messages.size())), windowTokens, trimmedMessages);
+    }
+
+    /**
+     * How many messages were appended, including the trimmed ones.
+     */
+    public synchronized int size() {
+        return released + messages.size();
+    }
+
+    private void append(Message message, String text) {
+        int index = messages.size();
+        if (index == tokens.length) {
+            tokens = Arrays.copyOf(tokens, index * 2);
+        }
+        tokens[index] = tokenEstimator.estimateMessage(text);
+        messages.add(message);
+        windowTokens += tokens[index];
+        if (windowTokens > maxTokens) {
+            trim();
+        }
+    }
+
+    private void trim() {
+        int last = messages.size() - 1;
+        while (start < last && windowTokens > trimTarget) {
+            dropOldest();
+        }
+        // A window should open with a user turn, never with an orphaned answer
+        while (start < last && messages.get(start).getMessageType() != MessageType.USER) {
+            dropOldest();
+        }
+        messages.subList(0, start).clear();
+        System.arraycopy(tokens, start, tokens, 0, messages.size());
+        released += start;
+        start = 0;
+    }
+
+    private void dropOldest() {
+        windowTokens -= tokens[start];
+        start++;
+        trimmedMessages++;
+    }
+
+    /**
+     * The messages to send for one request.
+     *
+     * @param messages        the retained turns, oldest first, ending with the latest appended message
+     * @param promptTokens    estimated prompt tokens of {@code messages}
+     * @param trimmedMessages how many older messages fell out of the window so far
+     */
+    public record ContextWindow(List<Message> messages, int promptTokens, int trimmedMessages) {
+
+        /**
+         * The retained turns before the latest appended message.
+         */
+        public List<Message> priorTurns() {
+            return messages.subList(0, Math.max(0, messages.size() - 1));
+        }
+    }
+}
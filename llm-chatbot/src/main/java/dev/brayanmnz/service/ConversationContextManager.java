@@ -0,0 +1,31 @@
+package dev.brayanmnz.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Creates the per-chat {@link ConversationContext}s with the configured token budget.
+ */
+@Service
+public class ConversationContextManager {
+
+    private final TokenEstimator tokenEstimator;
+    private final int maxTokens;
+    private final double trimRatio;
+
+    public ConversationContextManager(TokenEstimator tokenEstimator,
+                                      @Value("${chatbot.context.max-tokens:4096}") int maxTokens,
+                                      @Value("${chatbot.context.trim-ratio:0.75}") double trimRatio) {
+        this.tokenEstimator = tokenEstimator;
+        this.maxTokens = maxTokens;
+        this.trimRatio = trimRatio;
+    }
+
+    public ConversationContext newContext() {
+        return new ConversationContext(tokenEstimator, maxTokens, trimRatio);
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+}
@@ -0,0 +1,86 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.data.ChatMessage;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where the conversations live, outside any one application instance: the chats, their messages and the order
+ * of those messages. Every instance reading the same store sees the same chats, so a browser session can be
+ * served by any of them. {@link ChatHistoryService} keeps them in the application database; another store is
+ * plugged in by declaring a {@code @Primary} bean of this type.
+ * <p>
+ * Every chat belongs to an owner, such as a browser session: its id is the owner id, a {@code /} and the chat's
+ * name, as {@link #chatId} builds it, so two owners with a chat of the same name never share its messages.
+ * <p>
+ * Writes may be deferred until {@link #flush}; until then other instances do not see them.
+ */
+public interface ConversationStateStore {
+
+    /**
+     * The id the chat of an owner is stored under. Owner ids are opaque, like a UUID, and contain no {@code /}.
+     */
+    static String chatId(String ownerId, String chatName) {
+        return ownerId + "/" + chatName;
+    }
+
+    /**
+     * The name of the chat stored under {@code chatId}.
+     */
+    static String chatName(String chatId) {
+        return chatId.substring(chatId.indexOf('/') + 1);
+    }
+
+    /**
+     * The chats of one owner, oldest first.
+     */
+    List<String> chatIds(String ownerId);
+
+    /**
+     * Stores a message. Its sequence number is assigned when it is written: numbers are unique and increasing per
+     * chat across every instance sharing the store, in the order the messages reach it.
+     */
+    ChatMessage append(String chatId, ChatMessage.Role role, String author, String text, Instant createdAt);
+
+    /**
+     * Writes every message appended before this call. The returned future completes once they are visible to
+     * other instances.
+     */
+    CompletableFuture<Void> flush();
+
+    /**
+     * Returns the most recent {@link #getWindowSize()} messages of a chat, oldest first, including the ones this
+     * instance has not written yet.
+     */
+    HistoryPage loadRecent(String chatId);
+
+    /**
+     * Returns up to {@link #getPageSize()} messages older than {@code beforeSeq}, oldest first.
+     */
+    HistoryPage loadOlder(String chatId, long beforeSeq);
+
+    /**
+     * Returns the written messages after {@code afterSeq}, oldest first.
+     */
+    List<ChatMessage> loadAfter(String chatId, long afterSeq);
+
+    /**
+     * The sequence number of the latest written message of a chat, 0 when it has none. Comparing it with the last
+     * one seen tells whether a copy of the chat is still current.
+     */
+    long lastSeq(String chatId);
+
+    int getWindowSize();
+
+    int getPageSize();
+
+    /**
+     * A page of chat messages, oldest first.
+     *
+     * @param hasOlder whether the chat has messages before the first one of this page
+     */
+    record HistoryPage(List<ChatMessage> messages, boolean hasOlder) {
+    }
+}
@@ -0,0 +1,83 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.service.ChatProfilesProperties.ChatProfile;
+import dev.brayanmnz.service.GenerationTruncatedException.Reason;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stops generations that run away: more tokens than the profile's {@code max-tokens}, longer than its
+ * {@code timeout}, or stuck repeating themselves (see {@link RepetitionDetector}). A stopped generation is
+ * cancelled upstream, so the model host stops generating and the backend permit is released, and ends with a
+ * {@link GenerationTruncatedException} after the chunks it produced. Chunks are counted as tokens, as in
+ * {@link GenerationTracker}.
+ * <p>
+ * Meter: {@code chatbot.generation.truncated} by {@code reason}.
+ */
+@Component
+public class GenerationGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationGuard.class);
+
+    private final int defaultMaxTokens;
+    private final Duration defaultTimeout;
+    private final int ngram;
+    private final int maxRepeats;
+    private final MeterRegistry meterRegistry;
+
+    public GenerationGuard(ObjectProvider<MeterRegistry> meterRegistry,
+                           @Value("${chatbot.generation.max-tokens:1024}") int defaultMaxTokens,
+                           @Value("${chatbot.generation.timeout:2m}") Duration defaultTimeout,
+                           @Value("${chatbot.generation.repetition.ngram:10}") int ngram,
+                           @Value("${chatbot.generation.repetition.max-repeats:3}") int maxRepeats) {
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.defaultMaxTokens = defaultMaxTokens;
+        this.defaultTimeout = defaultTimeout;
+        this.ngram = ngram;
+        this.maxRepeats = maxRepeats;
+    }
+
+    /**
+     * Applies the limits of {@code profile}, or the defaults for the ones it does not set. The deadline starts on
+     * subscription, so a generation behind {@link ChatExecution#limit} is guarded inside it, not around it.
+     */
+    public Flux<String> guard(Flux<String> generation, ChatProfile profile) {
+        int maxTokens = profile.maxTokens() != null ? profile.maxTokens() : defaultMaxTokens;
+        Duration timeout = profile.timeout() != null ? profile.timeout() : defaultTimeout;
+        return Flux.defer(() -> {
+            RepetitionDetector repetition = new RepetitionDetector(ngram, maxRepeats);
+            int[] tokens = {0};
+            AtomicBoolean expired = new AtomicBoolean();
+            return generation
+                    .takeUntilOther(Mono.delay(timeout).doOnNext(tick -> expired.set(true)))
+                    .<String>handle((chunk, sink) -> {
+                        sink.next(chunk);
+                        tokens[0]++;
+                        if (repetition.accept(chunk)) {
+                            sink.error(truncated(Reason.REPETITION, tokens[0]));
+                        } else if (tokens[0] >= maxTokens) {
+                            sink.error(truncated(Reason.MAX_TOKENS, tokens[0]));
+                        }
+                    })
+                    .concatWith(Mono.defer(() -> expired.get()
+                            ? Mono.error(truncated(Reason.DEADLINE, tokens[0]))
+                            : Mono.empty()));
+        });
+    }
+
+    private GenerationTruncatedException truncated(Reason reason, int tokens) {
+        meterRegistry.counter("chatbot.generation.truncated", "reason", reason.name().toLowerCase()).increment();
+        logger.warn("Generation stopped after {} tokens: {}", tokens, reason);
+        return new GenerationTruncatedException(reason, tokens);
+    }
+}
@@ -0,0 +1,76 @@
+package dev.brayanmnz.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accounts for model generations that were cancelled before they finished. Ollama and llama.cpp stream one token
+ * per chunk, so the chunks of completed answers give the average answer length and a cancelled generation is
+ * credited with the tokens it did not get to produce ({@code chatbot.generation.tokens.saved}).
+ */
+@Component
+public class GenerationTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationTracker.class);
+
+    private final int initialExpectedTokens;
+    private final Counter completed;
+    private final Counter cancelled;
+    private final Counter tokensSaved;
+
+    private long completedTokens;
+    private long completedGenerations;
+
+    public GenerationTracker(ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${chatbot.generation.expected-tokens:256}") int initialExpectedTokens) {
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.initialExpectedTokens = initialExpectedTokens;
+        this.completed = registry.counter("chatbot.generation.requests", "outcome", "completed");
+        this.cancelled = registry.counter("chatbot.generation.requests", "outcome", "cancelled");
+        this.tokensSaved = registry.counter("chatbot.generation.tokens.saved");
+    }
+
+    /**
+     * Counts the chunks of one generation and records how it ended.
+     */
+    public Flux<String> track(Flux<String> generation) {
+        return Flux.defer(() -> {
+            AtomicInteger tokens = new AtomicInteger();
+            return generation
+                    .doOnNext(chunk -> tokens.incrementAndGet())
+                    .doOnComplete(() -> recordCompleted(tokens.get()))
+                    .doOnCancel(() -> recordCancelled(tokens.get()));
+        });
+    }
+
+    public synchronized double getExpectedTokens() {
+        return completedGenerations == 0 ? initialExpectedTokens : (double) completedTokens / completedGenerations;
+    }
+
+    public double getTokensSaved() {
+        return tokensSaved.count();
+    }
+
+    private synchronized void recordCompleted(int tokens) {
+        completed.increment();
+        completedTokens += tokens;
+        completedGenerations++;
+    }
+
+    private void recordCancelled(int tokens) {
+        double saved = Math.max(0, getExpectedTokens() - tokens);
+        cancelled.increment();
+        tokensSaved.increment(saved);
+        logger.info("Generation cancelled after {} tokens, ~{} tokens saved ({} in total)",
+                tokens, Math.round(saved), Math.round(tokensSaved.count()));
+    }
+}
@@ -0,0 +1,30 @@
+package dev.brayanmnz.service;
+
+/**
+ * Ends a generation the {@link GenerationGuard} stopped. The chunks emitted before it are a usable, if incomplete,
+ * answer.
+ */
+public class GenerationTruncatedException extends RuntimeException {
+
+    public enum Reason {
+        MAX_TOKENS, DEADLINE, REPETITION
+    }
+
+    private final Reason reason;
+    private final int tokens;
+
+    public GenerationTruncatedException(Reason reason, int tokens) {
+        super("Respuesta truncada (" + reason.name().toLowerCase().replace('_', ' ') + ") tras " + tokens
+                + " tokens");
+        this.reason = reason;
+        this.tokens = tokens;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public int getTokens() {
+        return tokens;
+    }
+}
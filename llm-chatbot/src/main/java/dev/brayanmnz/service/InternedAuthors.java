@@ -0,0 +1,41 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.data.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The authors of the chats, each role and name kept once and referred to by a small id. A chat has a handful of
+ * authors and thousands of messages, so compacted messages store the id instead of the name.
+ */
+final class InternedAuthors {
+
+    private final Map<Author, Integer> ids = new ConcurrentHashMap<>();
+    private final List<Author> authors = new ArrayList<>();
+
+    int idOf(ChatMessage.Role role, String name) {
+        Integer id = ids.get(new Author(role, name));
+        return id != null ? id : register(new Author(role, name));
+    }
+
+    synchronized Author get(int id) {
+        return authors.get(id);
+    }
+
+    synchronized int size() {
+        return authors.size();
+    }
+
+    private synchronized int register(Author author) {
+        return ids.computeIfAbsent(author, key -> {
+            authors.add(key);
+            return authors.size() - 1;
+        });
+    }
+
+    record Author(ChatMessage.Role role, String name) {
+    }
+}
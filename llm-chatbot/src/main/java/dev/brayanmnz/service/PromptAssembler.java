@@ -0,0 +1,36 @@
+package dev.brayanmnz.service;
+
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lays out every request as system prompt, prior turns, new user turn. Nothing in the layout depends on the
+ * turn being answered, so the prompt of turn N is a byte-for-byte prefix of the prompt of turn N+1 and the
+ * model server can reuse the KV cache it built for the previous turn.
+ */
+@Component
+public class PromptAssembler {
+
+    private final SystemMessage systemMessage;
+
+    public PromptAssembler(@Value("${chatbot.chat.system-prompt:}") String systemPrompt) {
+        this.systemMessage = systemPrompt.isBlank() ? null : new SystemMessage(systemPrompt);
+    }
+
+    public Prompt assemble(List<Message> priorTurns, String userTurn) {
+        List<Message> messages = new ArrayList<>(priorTurns.size() + 2);
+        if (systemMessage != null) {
+            messages.add(systemMessage);
+        }
+        messages.addAll(priorTurns);
+        messages.add(new UserMessage(userTurn));
+        return new Prompt(messages);
+    }
+}
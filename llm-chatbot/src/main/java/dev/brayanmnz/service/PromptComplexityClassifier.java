@@ -0,0 +1,53 @@
+package dev.brayanmnz.service;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Scores how demanding a chat turn is, from 0 (a greeting) to 1 (a multi-part question that needs reasoning),
+ * with cheap text heuristics: length, the number of questions, wording that asks for explanations, comparisons or
+ * calculations, figures, and how deep into the conversation the turn is. Scoring takes microseconds, so it costs
+ * nothing next to either model.
+ */
+public class PromptComplexityClassifier {
+
+    private static final Pattern SMALL_TALK = Pattern.compile(
+            "(hola|buen[oa]s (dias|tardes|noches)|gracias|muchas gracias|ok|vale|perfecto|adios|hasta luego|"
+                    + "chao|saludos|entendido|de acuerdo|si|no)( .{0,20})?");
+    private static final Pattern REASONING = Pattern.compile(
+            "\\b(por que|explica\\w*|compar\\w*|diferencia\\w*|calcul\\w*|analiz\\w*|ventajas?|desventajas?|"
+                    + "conviene|recomiend\\w*|paso a paso|simul\\w*|proyecci\\w*|estrategia\\w*|cuanto (pagaria|"
+                    + "ganaria|me costaria|tendria)|que pasa si|en que casos)\\b");
+    private static final Pattern FIGURES = Pattern.compile("\\d+([.,]\\d+)?\\s*(%|por ciento|rd\\$|us\\$|\\$|pesos|"
+            + "dolares|meses|anos)|\\$\\s*\\d");
+
+    /**
+     * Scores the user's turn, given the prior turns of the conversation.
+     */
+    public double score(String prompt, List<Message> conversationHistory) {
+        String text = CachingChatAssistantService.normalize(prompt);
+        if (text.isEmpty() || SMALL_TALK.matcher(text).matches()) {
+            return 0;
+        }
+        int words = text.split(" ").length;
+        double score = Math.min(0.4, words / 100.0);
+        long questions = prompt.chars().filter(c -> c == '?').count();
+        if (questions > 1) {
+            score += 0.2;
+        }
+        score += Math.min(0.5, REASONING.matcher(text).results().count() * 0.3);
+        if (FIGURES.matcher(prompt.toLowerCase()).find() || FIGURES.matcher(text).find()) {
+            score += 0.2;
+        }
+        if (prompt.contains("\n")) {
+            score += 0.1;
+        }
+        // Deep into a conversation a short follow-up ("¿y en dólares?") leans on everything said before
+        if (conversationHistory.size() >= 6) {
+            score += 0.15;
+        }
+        return Math.min(1, score);
+    }
+}
@@ -0,0 +1,74 @@
+package dev.brayanmnz.service;
+
+import java.util.Arrays;
+
+/**
+ * Spots a generation stuck in a loop, one token at a time: a rolling hash over the last {@code ngram} tokens is
+ * counted in a small open-addressing table, and the detector fires once any n-gram has been seen
+ * {@code maxRepeats} times. Each token costs a few arithmetic operations and no allocation; the text is never
+ * rescanned. When the table is half full it is cleared, which only forgets n-grams far behind the current one.
+ */
+class RepetitionDetector {
+
+    private static final long BASE = 1_000_003L;
+    private static final int CAPACITY = 1024;
+
+    private final int ngram;
+    private final int maxRepeats;
+    private final long topPower;
+
+    private final int[] window;
+    private int position;
+    private int tokens;
+    private long hash;
+
+    private final long[] keys = new long[CAPACITY];
+    private final byte[] counts = new byte[CAPACITY];
+    private int size;
+
+    RepetitionDetector(int ngram, int maxRepeats) {
+        this.ngram = ngram;
+        this.maxRepeats = Math.min(maxRepeats, Byte.MAX_VALUE);
+        this.window = new int[ngram];
+        long power = 1;
+        for (int i = 1; i < ngram; i++) {
+            power *= BASE;
+        }
+        this.topPower = power;
+    }
+
+    /**
+     * Adds the next token and tells whether the n-gram it completes has now repeated {@code maxRepeats} times.
+     */
+    boolean accept(String token) {
+        // String caches its hash code, so the same token string is hashed once
+        int tokenHash = token.hashCode();
+        if (tokens >= ngram) {
+            hash -= window[position] * topPower;
+        }
+        hash = hash * BASE + tokenHash;
+        window[position] = tokenHash;
+        position = (position + 1) % ngram;
+        tokens++;
+        return tokens >= ngram && count(hash) >= maxRepeats;
+    }
+
+    private int count(long key) {
+        if (size >= CAPACITY / 2) {
+            Arrays.fill(counts, (byte) 0);
+            size = 0;
+        }
+        int slot = (int) (key ^ (key >>> 32)) & (CAPACITY - 1);
+        while (counts[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & (CAPACITY - 1);
+        }
+        if (counts[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        if (counts[slot] < Byte.MAX_VALUE) {
+            counts[slot]++;
+        }
+        return counts[slot];
+    }
+}
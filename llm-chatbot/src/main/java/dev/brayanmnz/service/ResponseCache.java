@@ -0,0 +1,140 @@
+package dev.brayanmnz.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Bounded LRU store of complete assistant answers. Entries are looked up either by exact key (normalized prompt
+ * plus context hash) or, when they carry an embedding, by cosine similarity among the entries of the same
+ * context. Entries expire after the TTL, or their own shorter one, and the least recently used ones are evicted
+ * once either the entry or the character limit is exceeded.
+ */
+public class ResponseCache {
+
+    private final int maxEntries;
+    private final long maxChars;
+    private final Duration ttl;
+    private final Clock clock;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long chars;
+
+    public ResponseCache(int maxEntries, long maxChars, Duration ttl, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the most similar live entry of the given context whose similarity to {@code embedding} reaches
+     * {@code minSimilarity}, or {@code null}. Embeddings are expected to be L2-normalized.
+     */
+    public synchronized Entry findSimilar(String contextHash, float[] embedding, double minSimilarity) {
+        Entry best = null;
+        double bestSimilarity = minSimilarity;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (isExpired(entry)) {
+                chars -= entry.text.length();
+                it.remove();
+                continue;
+            }
+            if (entry.embedding == null || !entry.contextHash.equals(contextHash)
+                    || entry.embedding.length != embedding.length) {
+                continue;
+            }
+            double similarity = dot(entry.embedding, embedding);
+            if (similarity >= bestSimilarity) {
+                bestSimilarity = similarity;
+                best = entry;
+            }
+        }
+        if (best != null) {
+            entries.get(best.key); // refresh LRU position
+        }
+        return best;
+    }
+
+    public void put(String key, String contextHash, float[] embedding, String text, Duration generationTime) {
+        put(key, contextHash, embedding, text, generationTime, ttl);
+    }
+
+    /**
+     * Stores an answer that may only be reused for {@code ttl}, when that is shorter than the cache's.
+     */
+    public synchronized void put(String key, String contextHash, float[] embedding, String text,
+                                 Duration generationTime, Duration ttl) {
+        Duration entryTtl = ttl.compareTo(this.ttl) < 0 ? ttl : this.ttl;
+        Entry entry = new Entry(key, contextHash, embedding, text, generationTime, clock.millis(), entryTtl);
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            chars -= previous.text.length();
+        }
+        chars += text.length();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || chars > maxChars) && eldest.hasNext()) {
+            Entry evicted = eldest.next();
+            chars -= evicted.text.length();
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            chars -= removed.text.length();
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return clock.millis() - entry.createdAt > entry.ttl.toMillis();
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        if (norm == 0) {
+            return vector;
+        }
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public record Entry(String key, String contextHash, float[] embedding, String text, Duration generationTime,
+                        long createdAt, Duration ttl) {
+    }
+}
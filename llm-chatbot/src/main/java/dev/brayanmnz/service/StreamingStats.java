@@ -0,0 +1,62 @@
+package dev.brayanmnz.service;
+
+/**
+ * Per-response counters for a coalesced token stream: how many chunks the model produced, how many UI pushes
+ * they were folded into and how many bytes of text were pushed to the client.
+ */
+public class StreamingStats {
+
+    private long chunks;
+    private long pushes;
+    private long pushedBytes;
+
+    synchronized void recordFrame(int chunksInFrame) {
+        chunks += chunksInFrame;
+    }
+
+    public synchronized void recordPush(CharSequence delta) {
+        pushes++;
+        pushedBytes += utf8Length(delta);
+    }
+
+    public synchronized long getChunks() {
+        return chunks;
+    }
+
+    public synchronized long getPushes() {
+        return pushes;
+    }
+
+    public synchronized long getPushedBytes() {
+        return pushedBytes;
+    }
+
+    public synchronized double getChunksPerPush() {
+        return pushes == 0 ? 0 : (double) chunks / pushes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d chunks in %d pushes (%.1f chunks/push, %d bytes pushed)",
+                chunks, pushes, getChunksPerPush(), pushedBytes);
+    }
+
+    static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
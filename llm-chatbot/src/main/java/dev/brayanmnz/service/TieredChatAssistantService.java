@@ -0,0 +1,154 @@
+package dev.brayanmnz.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ChatAssistantService} decorator that answers simple turns with a small model profile and everything else
+ * with the default (large) profile, according to the {@link PromptComplexityClassifier} score.
+ * <p>
+ * A small-model answer is held back until its first {@code guardChars} characters (or all of it, if shorter) pass
+ * a quality guard: not empty, no "I don't know" or apology, and in Spanish. An answer that fails, or a small model
+ * that errors or returns nothing, is escalated to the large profile before anything reaches the user.
+ * <p>
+ * The small profile must be configured: without it every turn would silently go to the default profile, so
+ * construction fails instead.
+ * <p>
+ * Meters: {@code chatbot.tiering.requests} by {@code tier}, {@code chatbot.tiering.escalations} by {@code reason}
+ * and the {@code chatbot.tiering.score} distribution.
+ */
+public class TieredChatAssistantService implements ChatAssistantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredChatAssistantService.class);
+
+    private static final Pattern UNSURE = Pattern.compile(
+            "\\b(no (lo )?se|no estoy segur[oa]|no tengo (esa )?informacion|no puedo (ayudar|responder)|lo siento|"
+                    + "disculpa|i don ?t know|i m sorry|i am sorry|as an ai|i cannot)\\b");
+    private static final Set<String> SPANISH_WORDS = Set.of("de", "la", "el", "que", "en", "y", "los", "las", "un",
+            "una", "es", "por", "para", "con", "su", "se", "del", "al", "lo", "como", "puede", "hola");
+    private static final Set<String> ENGLISH_WORDS = Set.of("the", "and", "is", "of", "to", "you", "your", "in",
+            "for", "are", "with", "can", "this", "it", "hello");
+
+    private final ChatAssistantServiceImpl delegate;
+    private final PromptComplexityClassifier classifier;
+    private final String smallProfile;
+    private final double threshold;
+    private final int guardChars;
+
+    private final Counter smallRequests;
+    private final Counter largeRequests;
+    private final DistributionSummary scores;
+    private final MeterRegistry meterRegistry;
+
+    public TieredChatAssistantService(ChatAssistantServiceImpl delegate, ChatClientRegistry chatClients,
+                                      PromptComplexityClassifier classifier, String smallProfile, double threshold,
+                                      int guardChars, MeterRegistry meterRegistry) {
+        if (chatClients.getProfile(smallProfile) == null) {
+            throw new IllegalStateException("Tiering needs the chat profile '" + smallProfile
+                    + "' (chatbot.chat.profiles." + smallProfile + ".model); configured profiles: "
+                    + chatClients.getProfiles());
+        }
+        this.delegate = delegate;
+        this.classifier = classifier;
+        this.smallProfile = smallProfile;
+        this.threshold = threshold;
+        this.guardChars = guardChars;
+        this.meterRegistry = meterRegistry;
+        this.smallRequests = meterRegistry.counter("chatbot.tiering.requests", "tier", "small");
+        this.largeRequests = meterRegistry.counter("chatbot.tiering.requests", "tier", "large");
+        this.scores = meterRegistry.summary("chatbot.tiering.score");
+    }
+
+    @Override
+    public Flux<String> streamChatResponse(String prompt, List<Message> conversationHistory) {
+        double score = classifier.score(prompt, conversationHistory);
+        scores.record(score);
+        if (score >= threshold) {
+            largeRequests.increment();
+            return delegate.streamChatResponse(prompt, conversationHistory);
+        }
+        smallRequests.increment();
+        return guarded(prompt, conversationHistory);
+    }
+
+    /**
+     * Share of the turns answered by the small profile without escalating.
+     */
+    public double getSmallRatio() {
+        double small = smallRequests.count() - escalations();
+        double total = smallRequests.count() + largeRequests.count();
+        return total == 0 ? 0 : small / total;
+    }
+
+    private double escalations() {
+        return meterRegistry.find("chatbot.tiering.escalations").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private Flux<String> guarded(String prompt, List<Message> conversationHistory) {
+        return Flux.defer(() -> {
+            StringBuilder head = new StringBuilder();
+            return delegate.streamChatResponse(prompt, conversationHistory, smallProfile)
+                    // The first buffer is the guarded head; every later chunk is passed on as it comes
+                    .bufferUntil(chunk -> {
+                        if (head.length() < guardChars) {
+                            head.append(chunk);
+                            return head.length() >= guardChars;
+                        }
+                        return true;
+                    })
+                    .switchOnFirst((first, chunks) -> {
+                        String reason;
+                        if (first.isOnError()) {
+                            reason = "error";
+                            logger.warn("Small model failed, escalating: {}", first.getThrowable().getMessage());
+                        } else if (!first.hasValue()) {
+                            reason = "empty";
+                        } else {
+                            reason = rejection(String.join("", first.get()));
+                        }
+                        if (reason == null) {
+                            return chunks.concatMapIterable(buffer -> buffer);
+                        }
+                        meterRegistry.counter("chatbot.tiering.escalations", "reason", reason).increment();
+                        logger.debug("Escalating to the large model ({}): {}", reason, prompt);
+                        // take(0) cancels the small model's generation before the large one starts
+                        return chunks.take(0).thenMany(delegate.streamChatResponse(prompt, conversationHistory));
+                    });
+        });
+    }
+
+    /**
+     * Why the start of a small-model answer is not good enough, or {@code null} if it is.
+     */
+    static String rejection(String head) {
+        String text = CachingChatAssistantService.normalize(head);
+        if (text.isEmpty()) {
+            return "empty";
+        }
+        if (UNSURE.matcher(text).find()) {
+            return "unsure";
+        }
+        int spanish = 0;
+        int english = 0;
+        for (String word : text.toLowerCase(Locale.ROOT).split(" ")) {
+            if (SPANISH_WORDS.contains(word)) {
+                spanish++;
+            } else if (ENGLISH_WORDS.contains(word)) {
+                english++;
+            }
+        }
+        return english > spanish ? "language" : null;
+    }
+}
@@ -0,0 +1,37 @@
+package dev.brayanmnz.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Cheap local approximation of a BPE tokenizer: every run of letters or digits costs one token per four
+ * characters (rounded up), every other visible character costs one token and whitespace is free. It tends to
+ * over-count slightly, which is the safe direction for staying inside a context window.
+ */
+@Component
+public class TokenEstimator {
+
+    /** Role markers and separators the chat template adds around every message. */
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    public int estimate(CharSequence text) {
+        int tokens = 0;
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                run++;
+                continue;
+            }
+            tokens += (run + 3) / 4;
+            run = 0;
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+        return tokens + (run + 3) / 4;
+    }
+
+    public int estimateMessage(CharSequence text) {
+        return estimate(text) + MESSAGE_OVERHEAD;
+    }
+}
@@ -0,0 +1,52 @@
+package dev.brayanmnz.service;
+
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The tools that ran for one answer, as far as reusing the answer is concerned: the shortest time any of their
+ * results may be reused. A decorator that keeps answers puts one in the Reactor context of the generation under
+ * {@link #CONTEXT_KEY}; {@link ChatAssistantServiceImpl} hands it to the tools in their tool context, where the
+ * tool calling manager records every call.
+ */
+public final class ToolUsage {
+
+    public static final String CONTEXT_KEY = ToolUsage.class.getName();
+
+    private Duration shortestTtl;
+
+    public static Optional<ToolUsage> from(ContextView context) {
+        return context.getOrEmpty(CONTEXT_KEY);
+    }
+
+    /**
+     * Records a tool call whose result may be reused for {@code ttl}.
+     */
+    public synchronized void record(Duration ttl) {
+        if (shortestTtl == null || ttl.compareTo(shortestTtl) < 0) {
+            shortestTtl = ttl;
+        }
+    }
+
+    /**
+     * Records the tool calls of another generation this answer was taken from.
+     */
+    public void addAll(ToolUsage other) {
+        Duration ttl;
+        synchronized (other) {
+            ttl = other.shortestTtl;
+        }
+        if (ttl != null) {
+            record(ttl);
+        }
+    }
+
+    /**
+     * How long the answer may be kept: {@code maxTtl}, or less when a tool's result may not be reused that long.
+     */
+    public synchronized Duration cap(Duration maxTtl) {
+        return shortestTtl == null || shortestTtl.compareTo(maxTtl) >= 0 ? maxTtl : shortestTtl;
+    }
+}
@@ -0,0 +1,24 @@
+package dev.brayanmnz.tools;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Source of the fees of the bank's account types for the {@link FinancialTools}.
+ */
+public interface AccountFeeProvider {
+
+    /**
+     * @throws IllegalArgumentException when the account type is unknown
+     */
+    AccountFees fees(String accountType);
+
+    List<String> accountTypes();
+
+    /**
+     * @param conditions what waives the fees, in the words of the bank's fee sheet
+     */
+    record AccountFees(String accountType, BigDecimal monthlyFee, BigDecimal transferFee, String currency,
+                       String conditions) {
+    }
+}
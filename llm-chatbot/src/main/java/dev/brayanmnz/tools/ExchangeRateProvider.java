@@ -0,0 +1,20 @@
+package dev.brayanmnz.tools;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Source of currency exchange rates for the {@link FinancialTools}.
+ */
+public interface ExchangeRateProvider {
+
+    /**
+     * Units of {@code quote} one unit of {@code base} buys, both ISO 4217 codes.
+     *
+     * @throws IllegalArgumentException when either currency is unknown
+     */
+    ExchangeRate rate(String base, String quote);
+
+    record ExchangeRate(String base, String quote, BigDecimal rate, Instant asOf) {
+    }
+}
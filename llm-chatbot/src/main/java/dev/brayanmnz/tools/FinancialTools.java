@@ -0,0 +1,67 @@
+package dev.brayanmnz.tools;
+
+import dev.brayanmnz.tools.AccountFeeProvider.AccountFees;
+import dev.brayanmnz.tools.ExchangeRateProvider.ExchangeRate;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * The tools the assistant may call for figures it must not make up: exchange rates, account fees and loan
+ * payments. Rates and fees come from their providers; the loan calculator runs locally.
+ */
+public class FinancialTools {
+
+    private final ExchangeRateProvider exchangeRates;
+    private final AccountFeeProvider accountFees;
+
+    public FinancialTools(ExchangeRateProvider exchangeRates, AccountFeeProvider accountFees) {
+        this.exchangeRates = exchangeRates;
+        this.accountFees = accountFees;
+    }
+
+    @Tool(description = "Current exchange rate: how many units of the quote currency one unit of the base "
+            + "currency buys")
+    public ExchangeRate exchangeRate(@ToolParam(description = "ISO 4217 code of the base currency, e.g. USD")
+                                     String base,
+                                     @ToolParam(description = "ISO 4217 code of the quote currency, e.g. DOP")
+                                     String quote) {
+        return exchangeRates.rate(base, quote);
+    }
+
+    @Tool(description = "Monthly maintenance fee, transfer fee and fee waiver conditions of a bank account type")
+    public AccountFees accountFees(@ToolParam(description = "Account type: nomina, ahorro, joven or empresa")
+                                   String accountType) {
+        return accountFees.fees(accountType);
+    }
+
+    @Tool(description = "Monthly payment, total paid and total interest of a fixed-rate loan repaid in equal "
+            + "monthly installments")
+    public LoanQuote loanPayment(@ToolParam(description = "Amount borrowed") BigDecimal principal,
+                                 @ToolParam(description = "Nominal annual interest rate in percent, e.g. 7.5")
+                                 BigDecimal annualRatePercent,
+                                 @ToolParam(description = "Number of monthly installments") int months) {
+        if (principal.signum() <= 0 || annualRatePercent.signum() < 0 || months <= 0) {
+            throw new IllegalArgumentException("The amount and term must be positive and the rate not negative");
+        }
+        BigDecimal monthlyRate = annualRatePercent.divide(BigDecimal.valueOf(1200), MathContext.DECIMAL64);
+        BigDecimal payment;
+        if (monthlyRate.signum() == 0) {
+            payment = principal.divide(BigDecimal.valueOf(months), MathContext.DECIMAL64);
+        } else {
+            // principal * r / (1 - (1 + r)^-n)
+            BigDecimal growth = BigDecimal.ONE.add(monthlyRate).pow(months, MathContext.DECIMAL64);
+            payment = principal.multiply(monthlyRate).multiply(growth)
+                    .divide(growth.subtract(BigDecimal.ONE), MathContext.DECIMAL64);
+        }
+        payment = payment.setScale(2, RoundingMode.HALF_UP);
+        BigDecimal totalPaid = payment.multiply(BigDecimal.valueOf(months));
+        return new LoanQuote(payment, totalPaid, totalPaid.subtract(principal).max(BigDecimal.ZERO));
+    }
+
+    public record LoanQuote(BigDecimal monthlyPayment, BigDecimal totalPaid, BigDecimal totalInterest) {
+    }
+}
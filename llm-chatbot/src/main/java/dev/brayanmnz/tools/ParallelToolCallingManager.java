@@ -0,0 +1,222 @@
+package dev.brayanmnz.tools;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.brayanmnz.service.ToolUsage;
+import dev.brayanmnz.tools.ToolsProperties.ToolPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.AssistantMessage.ToolCall;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage.ToolResponse;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link ToolCallingManager} that runs the tool calls of one model response at the same time, so a turn that
+ * needs three lookups waits for the slowest instead of their sum. Each call goes through its tool's
+ * {@link ToolPolicy}: results are shared through the {@link ToolResultCache}, keyed by tool and arguments, a
+ * semaphore bulkhead caps the calls in flight per tool and a timeout bounds each call. A call that fails, times out
+ * or finds its bulkhead full answers the model with what went wrong instead of failing the turn, as Spring AI's
+ * default processor does for tool exceptions.
+ * <p>
+ * Tools are taken from the request's tool callbacks; a response calling a tool known only by name goes to the
+ * {@code delegate}, which resolves it. Every call is recorded with its {@code ttl} on the {@link ToolUsage} in the
+ * tool context, if the request has one, so an answer built from a result is not kept longer than the result.
+ * Times {@code chatbot.tools.calls} by {@code tool} and {@code outcome}: {@code success}, {@code error},
+ * {@code timeout} and {@code rejected}.
+ */
+public class ParallelToolCallingManager implements ToolCallingManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelToolCallingManager.class);
+
+    // Arguments differing only in key order or spacing are the same lookup
+    private static final ObjectMapper CANONICAL_JSON = JsonMapper.builder()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private final ToolCallingManager delegate;
+    private final ToolsProperties properties;
+    private final ToolResultCache cache;
+    private final Scheduler scheduler;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Semaphore> bulkheads = new ConcurrentHashMap<>();
+
+    public ParallelToolCallingManager(ToolCallingManager delegate, ToolsProperties properties, ToolResultCache cache,
+                                      Scheduler scheduler, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return delegate.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+                .map(Generation::getOutput)
+                .filter(AssistantMessage::hasToolCalls)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No tool call requested by the chat model"));
+        Map<String, ToolCallback> callbacks = new HashMap<>();
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options) {
+            for (ToolCallback callback : options.getToolCallbacks()) {
+                callbacks.put(callback.getToolDefinition().name(), callback);
+            }
+        }
+        List<ToolCall> toolCalls = assistantMessage.getToolCalls();
+        toolUsage(prompt).ifPresent(usage ->
+                toolCalls.forEach(call -> usage.record(properties.policy(call.name()).ttl())));
+        if (!toolCalls.stream().allMatch(call -> callbacks.containsKey(call.name()))) {
+            return delegate.executeToolCalls(prompt, chatResponse);
+        }
+
+        ToolContext toolContext = toolContext(prompt, assistantMessage);
+        List<CompletableFuture<String>> results = toolCalls.stream()
+                .map(call -> execute(callbacks.get(call.name()), call.arguments(), toolContext))
+                .toList();
+        List<ToolResponse> responses = new ArrayList<>(toolCalls.size());
+        for (int i = 0; i < toolCalls.size(); i++) {
+            ToolCall call = toolCalls.get(i);
+            responses.add(new ToolResponse(call.id(), call.name(), results.get(i).join()));
+        }
+
+        List<Message> conversationHistory = new ArrayList<>(prompt.copy().getInstructions());
+        conversationHistory.add(assistantMessage);
+        conversationHistory.add(new ToolResponseMessage(responses, Map.of()));
+        boolean returnDirect = toolCalls.stream()
+                .allMatch(call -> callbacks.get(call.name()).getToolMetadata().returnDirect());
+        return ToolExecutionResult.builder()
+                .conversationHistory(conversationHistory)
+                .returnDirect(returnDirect)
+                .build();
+    }
+
+    /**
+     * Starts one tool call. The returned future always completes normally, with the result or the error text for
+     * the model.
+     */
+    CompletableFuture<String> execute(ToolCallback callback, String arguments, ToolContext toolContext) {
+        String tool = callback.getToolDefinition().name();
+        ToolPolicy policy = properties.policy(tool);
+        CompletableFuture<String> result = policy.ttl().isZero()
+                ? call(callback, tool, policy, arguments, toolContext)
+                : cache.get(tool + ':' + canonical(arguments), policy.ttl(), policy.staleWhileRevalidate(),
+                        () -> call(callback, tool, policy, arguments, toolContext));
+        return result.exceptionally(error -> failure(tool, policy, error));
+    }
+
+    private CompletableFuture<String> call(ToolCallback callback, String tool, ToolPolicy policy, String arguments,
+                                           ToolContext toolContext) {
+        Semaphore bulkhead = bulkheads.computeIfAbsent(tool, name -> new Semaphore(policy.maxConcurrent()));
+        long start = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+                    // Held while the tool runs, past a timeout too, so a hung provider cannot take more threads
+                    if (!bulkhead.tryAcquire()) {
+                        throw new RejectedExecutionException(policy.maxConcurrent() + " calls already in flight");
+                    }
+                    try {
+                        return callback.call(arguments, toolContext);
+                    } finally {
+                        bulkhead.release();
+                    }
+                }, scheduler::schedule)
+                // Gives up on the call without interrupting it; a late result is dropped
+                .orTimeout(policy.timeout().toNanos(), TimeUnit.NANOSECONDS)
+                .whenComplete((value, error) -> record(tool, error == null ? "success" : outcome(unwrap(error)),
+                        start));
+    }
+
+    private String failure(String tool, ToolPolicy policy, Throwable error) {
+        Throwable cause = unwrap(error);
+        String reason = switch (outcome(cause)) {
+            case "timeout" -> "no answer within " + policy.timeout().toMillis() + " ms";
+            case "rejected" -> "too many concurrent calls, " + cause.getMessage();
+            default -> cause.getCause() != null && cause.getCause().getMessage() != null
+                    ? cause.getCause().getMessage() : String.valueOf(cause.getMessage());
+        };
+        logger.warn("Tool {} failed: {}", tool, reason);
+        return "Tool " + tool + " is unavailable: " + reason + ". Answer without this data and say it could not "
+                + "be retrieved.";
+    }
+
+    private void record(String tool, String outcome, long start) {
+        Timer.builder("chatbot.tools.calls")
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static String outcome(Throwable error) {
+        if (error instanceof TimeoutException) {
+            return "timeout";
+        }
+        return error instanceof RejectedExecutionException ? "rejected" : "error";
+    }
+
+    private static Optional<ToolUsage> toolUsage(Prompt prompt) {
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options && options.getToolContext() != null
+                && options.getToolContext().get(ToolUsage.CONTEXT_KEY) instanceof ToolUsage usage) {
+            return Optional.of(usage);
+        }
+        return Optional.empty();
+    }
+
+    // As Spring AI's default manager: the tool context, when there is one, also carries the conversation so far
+    private static ToolContext toolContext(Prompt prompt, AssistantMessage assistantMessage) {
+        if (!(prompt.getOptions() instanceof ToolCallingChatOptions options)
+                || options.getToolContext() == null || options.getToolContext().isEmpty()) {
+            return null;
+        }
+        Map<String, Object> context = new HashMap<>(options.getToolContext());
+        List<Message> history = new ArrayList<>(prompt.copy().getInstructions());
+        history.add(assistantMessage);
+        context.put(ToolContext.TOOL_CALL_HISTORY, history);
+        return new ToolContext(context);
+    }
+
+    private static String canonical(String arguments) {
+        try {
+            return CANONICAL_JSON.writeValueAsString(CANONICAL_JSON.readValue(arguments, Object.class));
+        } catch (JsonProcessingException e) {
+            return arguments;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package dev.brayanmnz.tools;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A fixed fee sheet, answered after {@code latency} as the core banking service would. Stands in for it in local
+ * runs and tests.
+ */
+public class StubAccountFeeProvider implements AccountFeeProvider {
+
+    private static final Map<String, AccountFees> FEES = new LinkedHashMap<>();
+
+    static {
+        add(new AccountFees("nomina", BigDecimal.ZERO, BigDecimal.ZERO, "EUR",
+                "Sin comisiones domiciliando una nómina de al menos 600 € al mes; si no, 4 € al mes."));
+        add(new AccountFees("ahorro", BigDecimal.ZERO, new BigDecimal("1.50"), "EUR",
+                "Sin comisión de mantenimiento; las transferencias cuestan 1,50 € cada una."));
+        add(new AccountFees("joven", BigDecimal.ZERO, BigDecimal.ZERO, "EUR",
+                "Sin comisiones hasta los 30 años."));
+        add(new AccountFees("empresa", new BigDecimal("12.00"), new BigDecimal("0.50"), "EUR",
+                "12 € al mes; gratis el primer año para empresas de nueva creación."));
+    }
+
+    private final Duration latency;
+
+    public StubAccountFeeProvider(Duration latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public AccountFees fees(String accountType) {
+        AccountFees fees = FEES.get(accountType.toLowerCase(Locale.ROOT));
+        if (fees == null) {
+            throw new IllegalArgumentException("Unknown account type " + accountType + ", known: " + FEES.keySet());
+        }
+        StubLatency.sleep(latency);
+        return fees;
+    }
+
+    @Override
+    public List<String> accountTypes() {
+        return List.copyOf(FEES.keySet());
+    }
+
+    private static void add(AccountFees fees) {
+        FEES.put(fees.accountType(), fees);
+    }
+}
@@ -0,0 +1,51 @@
+package dev.brayanmnz.tools;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fixed reference rates from euros, answered after {@code latency} as a remote rates service would. Stands in for
+ * a live provider in local runs and tests.
+ */
+public class StubExchangeRateProvider implements ExchangeRateProvider {
+
+    private static final Map<String, BigDecimal> PER_EURO = Map.of(
+            "EUR", BigDecimal.ONE,
+            "USD", new BigDecimal("1.08"),
+            "GBP", new BigDecimal("0.85"),
+            "DOP", new BigDecimal("63.70"),
+            "MXN", new BigDecimal("19.60"),
+            "COP", new BigDecimal("4450"),
+            "ARS", new BigDecimal("1050"),
+            "CLP", new BigDecimal("1010"),
+            "PEN", new BigDecimal("4.05"));
+
+    private final Duration latency;
+    private final Clock clock;
+
+    public StubExchangeRateProvider(Duration latency, Clock clock) {
+        this.latency = latency;
+        this.clock = clock;
+    }
+
+    @Override
+    public ExchangeRate rate(String base, String quote) {
+        BigDecimal basePerEuro = perEuro(base);
+        BigDecimal quotePerEuro = perEuro(quote);
+        StubLatency.sleep(latency);
+        return new ExchangeRate(base.toUpperCase(Locale.ROOT), quote.toUpperCase(Locale.ROOT),
+                quotePerEuro.divide(basePerEuro, MathContext.DECIMAL64), clock.instant());
+    }
+
+    private static BigDecimal perEuro(String currency) {
+        BigDecimal rate = PER_EURO.get(currency.toUpperCase(Locale.ROOT));
+        if (rate == null) {
+            throw new IllegalArgumentException("Unknown currency " + currency + ", known: " + PER_EURO.keySet());
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,21 @@
+package dev.brayanmnz.tools;
+
+import java.time.Duration;
+
+final class StubLatency {
+
+    private StubLatency() {
+    }
+
+    /**
+     * Waits like a remote call. An interrupt, as from a tool timeout, ends the call the way it would end I/O.
+     */
+    static void sleep(Duration latency) {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the provider", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package dev.brayanmnz.tools;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of tool results with stale-while-revalidate. A result younger than the TTL is returned as is;
+ * one older but still within the stale window is returned at once while a single background load replaces it; an
+ * older or missing one is loaded, and callers asking for the same key meanwhile share that load. A failed refresh
+ * keeps the stale result.
+ * <p>
+ * Counts {@code chatbot.tools.cache} lookups by {@code result}: {@code hit}, {@code stale} and {@code miss}.
+ */
+public class ToolResultCache {
+
+    private final int maxEntries;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+
+    public ToolResultCache(int maxEntries, Clock clock, MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.hits = meterRegistry.counter("chatbot.tools.cache", "result", "hit");
+        this.staleHits = meterRegistry.counter("chatbot.tools.cache", "result", "stale");
+        this.misses = meterRegistry.counter("chatbot.tools.cache", "result", "miss");
+    }
+
+    public CompletableFuture<String> get(String key, Duration ttl, Duration staleWhileRevalidate,
+                                         Supplier<CompletableFuture<String>> loader) {
+        Entry entry;
+        CompletableFuture<String> loading;
+        String stale = null;
+        boolean load = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.value != null) {
+                long age = clock.millis() - entry.loadedAt;
+                if (age <= ttl.toMillis()) {
+                    hits.increment();
+                    return CompletableFuture.completedFuture(entry.value);
+                }
+                if (age <= ttl.plus(staleWhileRevalidate).toMillis()) {
+                    stale = entry.value;
+                }
+            }
+            if (stale != null) {
+                staleHits.increment();
+            } else {
+                misses.increment();
+            }
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                evict();
+            }
+            if (entry.loading == null) {
+                entry.loading = new CompletableFuture<>();
+                load = true;
+            }
+            loading = entry.loading;
+        }
+        if (load) {
+            Entry loaded = entry;
+            try {
+                loader.get().whenComplete((value, error) -> complete(key, loaded, value, error));
+            } catch (RuntimeException e) {
+                complete(key, loaded, null, e);
+            }
+        }
+        return stale != null ? CompletableFuture.completedFuture(stale) : loading;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void complete(String key, Entry entry, String value, Throwable error) {
+        CompletableFuture<String> loading;
+        synchronized (this) {
+            loading = entry.loading;
+            entry.loading = null;
+            if (error == null) {
+                entry.value = value;
+                entry.loadedAt = clock.millis();
+            } else if (entry.value == null && entries.get(key) == entry) {
+                // Nothing to serve stale: the next caller loads again
+                entries.remove(key);
+            }
+        }
+        if (error == null) {
+            loading.complete(value);
+        } else {
+            loading.completeExceptionally(error);
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    // Guarded by the cache
+    private static final class Entry {
+        private String value;
+        private long loadedAt;
+        private CompletableFuture<String> loading;
+    }
+}
@@ -0,0 +1,62 @@
+package dev.brayanmnz.tools;
+
+import dev.brayanmnz.service.ChatExecution;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.ai.chat.client.ChatClientCustomizer;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Clock;
+
+/**
+ * Gives every {@code ChatClient} built from the auto-configured builder the {@link FinancialTools}, and every
+ * chat model the {@link ParallelToolCallingManager} that runs them, when {@code chatbot.tools.enabled=true}. The
+ * model must support tool calling. Rates and fees come from local stubs; a real provider replaces the stub bean.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = ToolsProperties.PREFIX, name = "enabled", havingValue = "true")
+public class ToolsConfiguration {
+
+    @Bean
+    ToolsProperties toolsProperties(Environment environment) {
+        return Binder.get(environment)
+                .bind(ToolsProperties.PREFIX, ToolsProperties.class)
+                .orElseGet(ToolsProperties::new);
+    }
+
+    @Bean
+    ExchangeRateProvider exchangeRateProvider(ToolsProperties toolsProperties) {
+        return new StubExchangeRateProvider(toolsProperties.getStubLatency(), Clock.systemUTC());
+    }
+
+    @Bean
+    AccountFeeProvider accountFeeProvider(ToolsProperties toolsProperties) {
+        return new StubAccountFeeProvider(toolsProperties.getStubLatency());
+    }
+
+    @Bean
+    FinancialTools financialTools(ExchangeRateProvider exchangeRateProvider, AccountFeeProvider accountFeeProvider) {
+        return new FinancialTools(exchangeRateProvider, accountFeeProvider);
+    }
+
+    // Takes the place of Spring AI's default manager in the auto-configured model and in the router's endpoints
+    @Bean
+    ToolCallingManager toolCallingManager(ToolsProperties toolsProperties, ChatExecution chatExecution,
+                                          ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        return new ParallelToolCallingManager(ToolCallingManager.builder().build(), toolsProperties,
+                new ToolResultCache(toolsProperties.getCacheMaxEntries(), Clock.systemUTC(), registry),
+                chatExecution.scheduler(), registry);
+    }
+
+    @Bean
+    ChatClientCustomizer toolsChatClientCustomizer(FinancialTools financialTools) {
+        return builder -> builder.defaultTools(financialTools);
+    }
+}
@@ -0,0 +1,110 @@
+package dev.brayanmnz.tools;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tool calling bound from {@code chatbot.tools.*}. The top-level {@code timeout}, {@code maxConcurrent},
+ * {@code ttl} and {@code staleWhileRevalidate} apply to every tool; {@code policies.<tool>} overrides them for one
+ * tool, by its name as the model sees it.
+ */
+public class ToolsProperties {
+
+    public static final String PREFIX = "chatbot.tools";
+
+    private boolean enabled;
+    private Duration timeout = Duration.ofSeconds(2);
+    private int maxConcurrent = 8;
+    private Duration ttl = Duration.ofMinutes(1);
+    private Duration staleWhileRevalidate = Duration.ofMinutes(10);
+    private int cacheMaxEntries = 1000;
+    private Duration stubLatency = Duration.ofMillis(150);
+    private Map<String, ToolPolicy> policies = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public Duration getStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    public void setStaleWhileRevalidate(Duration staleWhileRevalidate) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    public Duration getStubLatency() {
+        return stubLatency;
+    }
+
+    public void setStubLatency(Duration stubLatency) {
+        this.stubLatency = stubLatency;
+    }
+
+    public Map<String, ToolPolicy> getPolicies() {
+        return policies;
+    }
+
+    public void setPolicies(Map<String, ToolPolicy> policies) {
+        this.policies = policies;
+    }
+
+    /**
+     * The policy of one tool, its unset values taken from the defaults.
+     */
+    public ToolPolicy policy(String tool) {
+        ToolPolicy policy = policies.get(tool);
+        if (policy == null) {
+            return new ToolPolicy(timeout, maxConcurrent, ttl, staleWhileRevalidate);
+        }
+        return new ToolPolicy(policy.timeout() != null ? policy.timeout() : timeout,
+                policy.maxConcurrent() != null ? policy.maxConcurrent() : maxConcurrent,
+                policy.ttl() != null ? policy.ttl() : ttl,
+                policy.staleWhileRevalidate() != null ? policy.staleWhileRevalidate() : staleWhileRevalidate);
+    }
+
+    /**
+     * How one tool is called: {@code timeout} bounds a call, {@code maxConcurrent} is its bulkhead, results are
+     * reused for {@code ttl} (0 disables caching) and served stale for up to {@code staleWhileRevalidate} more
+     * while a fresh one is fetched.
+     */
+    public record ToolPolicy(Duration timeout, Integer maxConcurrent, Duration ttl, Duration staleWhileRevalidate) {
+    }
+}
@@ -0,0 +1,86 @@
+package dev.brayanmnz.views.chat;
+
+import com.vaadin.flow.component.messages.MessageList;
+import com.vaadin.flow.component.messages.MessageListItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the {@link MessageList} of the chat view in step with the conversation one item at a time. Appending sends
+ * only the new item to the browser and streamed text is patched in place with {@link MessageListItem#appendText},
+ * so the cost of a message no longer grows with the length of the chat.
+ * <p>
+ * Opening a chat renders only its last {@code visibleItems} messages; older ones are rendered a page at a time when
+ * the user asks for them, first from the chat's in-memory history and then from the database.
+ */
+class ChatTranscript {
+
+    private final MessageList messageList;
+    private final int visibleItems;
+    private List<MessageListItem> history = List.of();
+
+    ChatTranscript(MessageList messageList, int visibleItems) {
+        this.messageList = messageList;
+        this.visibleItems = visibleItems;
+    }
+
+    /**
+     * Renders the most recent messages of a chat in place of the current ones. {@code history} is kept by
+     * reference, so items the view appends to it later are found by {@link #hiddenItems(int)}.
+     */
+    void show(List<MessageListItem> history) {
+        this.history = history;
+        messageList.setItems(history.subList(Math.max(0, history.size() - visibleItems), history.size()));
+    }
+
+    void append(MessageListItem item) {
+        messageList.addItem(item);
+    }
+
+    /**
+     * Swaps a rendered item for another one, or appends the replacement when the item is not rendered. The web
+     * component cannot remove a single item, so this re-sends the rendered items; it is only used for errors.
+     */
+    void replace(MessageListItem item, MessageListItem replacement) {
+        List<MessageListItem> items = new ArrayList<>(messageList.getItems());
+        int index = items.indexOf(item);
+        if (index < 0) {
+            messageList.addItem(replacement);
+            return;
+        }
+        items.set(index, replacement);
+        messageList.setItems(items);
+    }
+
+    /**
+     * Renders older messages above the current ones. Like {@link #replace} this re-sends the rendered items, but
+     * only when the user asks for more history.
+     */
+    void prepend(List<MessageListItem> older) {
+        if (older.isEmpty()) {
+            return;
+        }
+        List<MessageListItem> displayed = messageList.getItems();
+        List<MessageListItem> items = new ArrayList<>(older.size() + displayed.size());
+        items.addAll(older);
+        items.addAll(displayed);
+        messageList.setItems(items);
+    }
+
+    /**
+     * Up to {@code max} messages of the in-memory history older than the first rendered one, oldest first.
+     */
+    List<MessageListItem> hiddenItems(int max) {
+        List<MessageListItem> displayed = messageList.getItems();
+        int firstDisplayed = displayed.isEmpty() ? history.size() : history.indexOf(displayed.getFirst());
+        if (firstDisplayed <= 0) {
+            return List.of();
+        }
+        return List.copyOf(history.subList(Math.max(0, firstDisplayed - max), firstDisplayed));
+    }
+
+    List<MessageListItem> getItems() {
+        return messageList.getItems();
+    }
+}
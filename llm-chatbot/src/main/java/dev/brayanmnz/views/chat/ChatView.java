@@ -1,7 +1,10 @@
 package dev.brayanmnz.views.chat;
 
 import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.messages.MessageInput;
 import com.vaadin.flow.component.messages.MessageInputI18n;
@@ -13,9 +16,16 @@ import com.vaadin.flow.component.page.Page;
 import com.vaadin.flow.component.tabs.Tab;
 import com.vaadin.flow.component.tabs.Tabs;
 import com.vaadin.flow.component.tabs.Tabs.Orientation;
+import com.vaadin.flow.router.BeforeEnterEvent;
+import com.vaadin.flow.router.BeforeEnterObserver;
+import com.vaadin.flow.router.Location;
 import com.vaadin.flow.router.Menu;
 import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.QueryParameters;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
+import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.theme.lumo.LumoUtility;
 import com.vaadin.flow.theme.lumo.LumoUtility.Display;
 import com.vaadin.flow.theme.lumo.LumoUtility.Flex;
@@ -23,30 +33,45 @@ import com.vaadin.flow.theme.lumo.LumoUtility.JustifyContent;
 import com.vaadin.flow.theme.lumo.LumoUtility.Overflow;
 import com.vaadin.flow.theme.lumo.LumoUtility.Width;
 import com.vaadin.collaborationengine.UserInfo;
-import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-
-import dev.brayanmnz.service.ChatAssistantService;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import dev.brayanmnz.data.ChatMessage;
+import dev.brayanmnz.service.ChatExecution;
+import dev.brayanmnz.service.ChatOwnerCookie;
+import dev.brayanmnz.service.ChatRequestScheduler;
+import dev.brayanmnz.service.ChunkCoalescer;
+import dev.brayanmnz.service.ConversationCache;
+import dev.brayanmnz.service.ConversationCache.CachedConversation;
+import dev.brayanmnz.service.ConversationContext;
+import dev.brayanmnz.service.ConversationContext.ContextWindow;
+import dev.brayanmnz.service.ConversationStateStore;
+import dev.brayanmnz.service.ConversationStateStore.HistoryPage;
+import dev.brayanmnz.service.GenerationTruncatedException;
+import dev.brayanmnz.service.StreamingStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.ai.chat.messages.AssistantMessage;
-import org.springframework.ai.chat.messages.Message;
-import org.springframework.ai.chat.messages.UserMessage;
 import org.vaadin.lineawesome.LineAwesomeIconUrl;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
 
 @PageTitle("Asistente Financiero Inteligente 🤖 🇩🇴")
 @Route("")
 @Menu(order = 0, icon = LineAwesomeIconUrl.COMMENTS)
-public class ChatView extends HorizontalLayout {
+public class ChatView extends HorizontalLayout implements BeforeEnterObserver {
 
     transient Logger logger = LoggerFactory.getLogger(ChatView.class);
 
     private MessageInput input;
     private MessageList messageList;
+    private ChatTranscript transcript;
+    private Button loadOlderButton;
     private VerticalLayout chatContainer;
 
     private UserInfo humanUserInfo;
@@ -56,8 +81,18 @@ public class ChatView extends HorizontalLayout {
             "https://png.pngtree.com/png-clipart/20210311/original/pngtree-cute-robot-mascot-logo-png-image_6023574.jpg"
     );
 
-    private transient Map<String, List<MessageListItem>> chatHistories;
-    private final ChatAssistantService chatAssistantService;
+    private static final String TRUNCATED_MARK = " … (respuesta truncada)";
+    private static final String DEFAULT_CHAT = "general";
+    private static final String CHAT_PARAMETER = "chat";
+    private static final String OWNER_ATTRIBUTE = "chatbot.owner";
+
+    private transient Map<MessageListItem, ChatMessage> persistedMessages;
+    private final transient Map<String, Disposable> activeResponses = new ConcurrentHashMap<>();
+    private final ChatRequestScheduler chatRequestScheduler;
+    private final ChunkCoalescer chunkCoalescer;
+    private final ConversationCache conversationCache;
+    private final ConversationStateStore conversationStore;
+    private final ChatExecution chatExecution;
 
     public static class ChatTab extends Tab {
         private final transient ChatInfo chatInfo;
@@ -72,15 +107,21 @@ public class ChatView extends HorizontalLayout {
     }
 
     public static class ChatInfo {
+        private String chatId;
         private String name;
         private int unread;
         private Span unreadBadge;
 
-        private ChatInfo(String name, int unread) {
+        private ChatInfo(String chatId, String name, int unread) {
+            this.chatId = chatId;
             this.name = name;
             this.unread = unread;
         }
 
+        public String getChatId() {
+            return chatId;
+        }
+
         public String getName() {
             return name;
         }
@@ -104,22 +145,40 @@ public class ChatView extends HorizontalLayout {
 
     }
 
-    private transient ChatInfo[] chats = new ChatInfo[]{new ChatInfo("general", 0)};
-    private transient ChatInfo currentChat = chats[0];
+    // The chats and their messages live in the conversation store, so any instance can serve this view; the
+    // selected chat is carried in the URL (?chat=) and survives a reload on another instance. Chats are stored
+    // under the owner id of the browser's signed cookie, so each browser only sees and continues its own, on any
+    // instance and after its session expires
+    private transient ChatInfo[] chats;
+    private transient ChatInfo currentChat;
     private Tabs tabs;
 
-    public ChatView(ChatAssistantService chatAssistantService) {
-        this.chatAssistantService = chatAssistantService;
+    public ChatView(ChatRequestScheduler chatRequestScheduler, ChunkCoalescer chunkCoalescer,
+                    ConversationCache conversationCache, ConversationStateStore conversationStore,
+                    ChatExecution chatExecution, ChatOwnerCookie chatOwnerCookie) {
+        this.chatRequestScheduler = chatRequestScheduler;
+        this.chunkCoalescer = chunkCoalescer;
+        this.conversationCache = conversationCache;
+        this.conversationStore = conversationStore;
+        this.chatExecution = chatExecution;
         addClassNames("chat-view", Width.FULL, Display.FLEX, Flex.AUTO);
         setSpacing(false);
 
         humanUserInfo = new UserInfo(UUID.randomUUID().toString(), "Brayan Muñoz");
 
         tabs = new Tabs();
-        chatHistories = new HashMap<>();
+        persistedMessages = new WeakHashMap<>();
+        String ownerId = ownerId(chatOwnerCookie);
+        List<String> chatIds = new ArrayList<>(conversationCache.chatIds(ownerId));
+        String defaultChatId = ConversationStateStore.chatId(ownerId, DEFAULT_CHAT);
+        if (!chatIds.contains(defaultChatId)) {
+            chatIds.addFirst(defaultChatId);
+        }
+        chats = chatIds.stream().map(chatId -> new ChatInfo(chatId, ConversationStateStore.chatName(chatId), 0))
+                .toArray(ChatInfo[]::new);
+        currentChat = chats[0];
 
         for (ChatInfo chat : chats) {
-            chatHistories.put(chat.getName(), new ArrayList<>());
             tabs.add(createTab(chat));
         }
         tabs.setOrientation(Orientation.VERTICAL);
@@ -128,6 +187,11 @@ public class ChatView extends HorizontalLayout {
         messageList = new MessageList();
         messageList.setMarkdown(true);
         messageList.setSizeFull();
+        transcript = new ChatTranscript(messageList, conversationStore.getPageSize());
+
+        loadOlderButton = new Button("Cargar mensajes anteriores", e -> loadOlderMessages());
+        loadOlderButton.addThemeVariants(ButtonVariant.LUMO_TERTIARY, ButtonVariant.LUMO_SMALL);
+        loadOlderButton.setVisible(false);
 
         input = new MessageInput();
         input.setTooltipText("Escribe tu consulta financiera");
@@ -140,8 +204,17 @@ public class ChatView extends HorizontalLayout {
                 return;
             }
 
-            MessageListItem userItem = createMessageListItem(userMessageText, humanUserInfo, false);
+            String chatId = currentChat.getChatId();
+            // The user moved on: stop generating the previous answer instead of letting it run to the end. Its
+            // partial answer closes the previous turn before this message opens the next one
+            Disposable superseded = activeResponses.remove(chatId);
+            if (superseded != null) {
+                logger.info("New message in chat '{}' supersedes the response still in progress", chatId);
+                superseded.dispose();
+            }
+            MessageListItem userItem = MessageListItems.create(userMessageText, humanUserInfo, false);
             logger.info("Created user message item: '{}'", userItem.getText());
+            persist(chatId, userItem, ChatMessage.Role.USER);
 
             final UI currentUI = UI.getCurrent();
             if (currentUI == null || !currentUI.isAttached()) {
@@ -151,30 +224,20 @@ public class ChatView extends HorizontalLayout {
 
             currentUI.access(() -> {
                 if (messageList != null && messageList.isAttached()) {
-                    List<MessageListItem> currentDisplayItems = new ArrayList<>(messageList.getItems());
-                    currentDisplayItems.add(userItem);
-                    messageList.setItems(currentDisplayItems);
+                    transcript.append(userItem);
 
                     logger.info("User message added to messageList. Total items now: {}. Last item: '{}'",
                             messageList.getItems().size(),
                             messageList.getItems().isEmpty() ? "N/A" : messageList.getItems().getLast().getText());
 
-                    if (currentChat != null && currentChat.getName() != null && chatHistories != null) {
-                        chatHistories.computeIfAbsent(currentChat.getName(), k -> new ArrayList<>()).add(userItem);
-                        logger.info("User item added to history for chat: {}. History size for this chat: {}",
-                                currentChat.getName(),
-                                chatHistories.get(currentChat.getName()).size());
-                    } else {
-                        logger.warn("Could not add user item to history. currentChat, its name, or chatHistories might be null/problematic.");
-                    }
-
                     scrollToBottomChatContainer(currentUI);
                 } else {
                     logger.error("MessageList is null or not attached when trying to add user message.");
                 }
             });
 
-            respondAsAiAssistant(userMessageText, currentChat.getName());
+            conversationContext(chatId).appendUser(userMessageText);
+            respondAsAiAssistant(userMessageText, chatId);
         });
 
         chatContainer = new VerticalLayout();
@@ -182,93 +245,192 @@ public class ChatView extends HorizontalLayout {
         chatContainer.setSpacing(false);
         chatContainer.setHeightFull();
 
-        chatContainer.add(messageList, input);
+        chatContainer.add(loadOlderButton, messageList, input);
         chatContainer.expand(messageList);
 
         add(tabs, chatContainer);
         expand(chatContainer);
         setSizeFull();
 
-        messageList.setItems(chatHistories.get(currentChat.getName()));
+        showHistory(currentChat.getChatId());
 
         tabs.addSelectedChangeListener(event -> {
             currentChat = ((ChatTab) event.getSelectedTab()).getChatInfo();
             currentChat.resetUnread();
-            messageList.setItems(chatHistories.getOrDefault(currentChat.getName(), new ArrayList<>()));
-            scrollToBottomChatContainer(UI.getCurrent());
+            showHistory(currentChat.getChatId());
+            UI ui = UI.getCurrent();
+            if (ui != null) {
+                ui.getPage().getHistory().replaceState(null, new Location("",
+                        QueryParameters.of(CHAT_PARAMETER, currentChat.getName())));
+            }
+            scrollToBottomChatContainer(ui);
         });
     }
 
-    private List<Message> convertToSpringAIMessages(List<MessageListItem> fullUiHistoryIncludingLatestUser) {
-        List<Message> aiMessages = new ArrayList<>();
-        for (MessageListItem uiItem : fullUiHistoryIncludingLatestUser) {
-            String messageText = uiItem.getText();
-            if (uiItem.getUserColorIndex() == 1) {
-                aiMessages.add(new UserMessage(messageText));
-            } else if (uiItem.getUserColorIndex() == 2 && (!"...".equals(messageText) && !messageText.isBlank())) {
-                aiMessages.add(new AssistantMessage(messageText));
-            }
+    /**
+     * The id every chat of this browser is stored under, from its owner cookie. The session keeps it too, so views
+     * opened before the browser has stored a new cookie share the owner.
+     */
+    private static String ownerId(ChatOwnerCookie chatOwnerCookie) {
+        VaadinSession session = VaadinSession.getCurrent();
+        String ownerId = (String) session.getAttribute(OWNER_ATTRIBUTE);
+        if (ownerId == null) {
+            VaadinRequest request = VaadinRequest.getCurrent();
+            ownerId = chatOwnerCookie.resolve(request.getCookies(), request.isSecure(),
+                    VaadinResponse.getCurrent()::addCookie);
+            session.setAttribute(OWNER_ATTRIBUTE, ownerId);
         }
-        return aiMessages;
+        return ownerId;
     }
 
-    private MessageListItem createMessageListItem(String text, UserInfo user, boolean isAssistant) {
-        MessageListItem item = new MessageListItem(text, Instant.now(), user.getName());
-        if (user.getImage() != null && !user.getImage().isEmpty()) {
-            item.setUserImage(user.getImage());
-        } else {
-            String name = user.getName();
-            if (name != null && !name.isEmpty()) {
-                String[] parts = name.split("\\s+");
-                if (parts.length > 1 && !parts[0].isEmpty() && !parts[1].isEmpty()) {
-                    item.setUserAbbreviation(String.valueOf(parts[0].charAt(0)) + parts[1].charAt(0));
-                } else {
-                    item.setUserAbbreviation(String.valueOf(name.charAt(0)));
+    @Override
+    public void beforeEnter(BeforeEnterEvent event) {
+        event.getLocation().getQueryParameters().getSingleParameter(CHAT_PARAMETER).ifPresent(chatName -> {
+            for (int i = 0; i < chats.length; i++) {
+                if (chats[i].getName().equals(chatName)) {
+                    tabs.setSelectedIndex(i);
                 }
-            } else {
-                item.setUserAbbreviation("?");
+            }
+        });
+    }
+
+    private ConversationContext conversationContext(String chatId) {
+        return conversationCache.get(chatId).context();
+    }
+
+    /**
+     * Shows the most recent window of a chat, as the conversation cache has it on this instance.
+     */
+    private void showHistory(String chatId) {
+        CachedConversation conversation = conversationCache.get(chatId);
+        List<ChatMessage> messages = conversation.messages();
+        List<MessageListItem> items = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            items.add(toMessageListItem(message));
+        }
+        transcript.show(items);
+        loadOlderButton.setVisible(hasOlderMessages());
+        logger.info("Showing {} messages of chat '{}' (older messages available: {})",
+                items.size(), chatId, conversation.hasOlder());
+    }
+
+    private void loadOlderMessages() {
+        List<MessageListItem> hidden = transcript.hiddenItems(conversationStore.getPageSize());
+        if (!hidden.isEmpty()) {
+            transcript.prepend(hidden);
+            loadOlderButton.setVisible(hasOlderMessages());
+            return;
+        }
+        long oldestSeq = oldestPersistedSeq(transcript.getItems());
+        HistoryPage page = conversationStore.loadOlder(currentChat.getChatId(), oldestSeq);
+        List<MessageListItem> older = new ArrayList<>(page.messages().size());
+        for (ChatMessage message : page.messages()) {
+            older.add(toMessageListItem(message));
+        }
+        transcript.prepend(older);
+        loadOlderButton.setVisible(page.hasOlder());
+    }
+
+    private boolean hasOlderMessages() {
+        return !transcript.hiddenItems(1).isEmpty() || oldestPersistedSeq(transcript.getItems()) > 1;
+    }
+
+    private long oldestPersistedSeq(List<MessageListItem> items) {
+        for (MessageListItem item : items) {
+            ChatMessage message = persistedMessages.get(item);
+            // Messages not written yet have no seq and come after every written one
+            if (message != null && message.getSeq() > 0) {
+                return message.getSeq();
             }
         }
-        item.setUserColorIndex(isAssistant ? 2 : 1);
-        return item;
+        return Long.MAX_VALUE;
     }
 
+    private void persist(String chatId, MessageListItem item, ChatMessage.Role role) {
+        ChatMessage stored = conversationCache.append(chatId, role, item.getUserName(), item.getText(),
+                item.getTime());
+        persistedMessages.put(item, stored);
+    }
+
+    /**
+     * Stores an answer without touching the UI, which may be detached by the time the answer ends.
+     */
+    private ChatMessage storeAnswer(String chatId, MessageListItem aiMessageItem, String text) {
+        return conversationCache.append(chatId, ChatMessage.Role.ASSISTANT, AI_USER_INFO.getName(), text,
+                aiMessageItem.getTime());
+    }
 
-    private void respondAsAiAssistant(String originalUserMessageText, String chatName) {
+    private MessageListItem toMessageListItem(ChatMessage message) {
+        boolean isAssistant = message.getRole() == ChatMessage.Role.ASSISTANT;
+        MessageListItem item = MessageListItems.create(message.getText(), isAssistant ? AI_USER_INFO : humanUserInfo,
+                isAssistant);
+        item.setTime(message.getCreatedAt());
+        persistedMessages.put(item, message);
+        return item;
+    }
+
+    private void respondAsAiAssistant(String originalUserMessageText, String chatId) {
         final UI currentUI = UI.getCurrent();
         if (currentUI == null) {
-            logger.error("Cannot respond as AI: UI is not available for chat '{}'", chatName);
+            logger.error("Cannot respond as AI: UI is not available for chat '{}'", chatId);
             return;
         }
 
-        MessageListItem aiMessageItem = createMessageListItem("...", AI_USER_INFO, true);
+        MessageListItem aiMessageItem = MessageListItems.create("...", AI_USER_INFO, true);
         addMessageToUI(currentUI, aiMessageItem);
 
-        List<MessageListItem> currentChatUIHistory = chatHistories.getOrDefault(chatName, new ArrayList<>());
-        List<Message> conversationHistoryForAI = convertToSpringAIMessages(new ArrayList<>(currentChatUIHistory));
+        ContextWindow contextWindow = conversationContext(chatId).window();
 
-        logger.info("Sending {} messages to AI as context for chat '{}'.",
-                conversationHistoryForAI.size(), chatName);
+        logger.info("Sending {} messages (~{} prompt tokens, {} older messages trimmed) to AI as context for chat '{}'.",
+                contextWindow.messages().size(), contextWindow.promptTokens(), contextWindow.trimmedMessages(), chatId);
 
         StringBuilder fullResponse = new StringBuilder();
-
-        chatAssistantService.streamChatResponse(originalUserMessageText, conversationHistoryForAI)
-                .doOnNext(chunk -> handleStreamingChunk(currentUI, aiMessageItem, fullResponse, chunk))
-                .doOnComplete(() -> handleStreamCompletion(currentUI, aiMessageItem, fullResponse, chatName))
-                .doOnError(error -> handleStreamError(currentUI, aiMessageItem, chatName, error))
+        StreamingStats stats = new StreamingStats();
+
+        // A guarded stop keeps what was generated: it completes the stream, so the last frame is still flushed
+        AtomicReference<GenerationTruncatedException> truncation = new AtomicReference<>();
+        Flux<String> response = chatRequestScheduler.submit(humanUserInfo.getId(), originalUserMessageText,
+                        contextWindow.priorTurns(), position -> handleQueuePosition(currentUI, aiMessageItem, position))
+                .onErrorResume(GenerationTruncatedException.class, truncated -> {
+                    truncation.set(truncated);
+                    return Flux.empty();
+                });
+
+        // UI.access may wait for the session lock, so frames are pushed from the chat scheduler, never the I/O threads.
+        // The answer is collected and stored there too, so it is kept when the UI is gone before it completes
+        Disposable.Swap subscription = Disposables.swap();
+        activeResponses.put(chatId, subscription);
+        subscription.update(chunkCoalescer.coalesce(response, stats)
+                .publishOn(chatExecution.scheduler())
+                .doOnNext(delta -> handleStreamingFrame(currentUI, aiMessageItem, fullResponse, delta, stats))
+                .doOnComplete(() -> handleStreamCompletion(currentUI, aiMessageItem, fullResponse, chatId, stats,
+                        truncation.get()))
+                .doOnError(error -> handleStreamError(currentUI, aiMessageItem, chatId, error))
+                .doOnCancel(() -> handleStreamCancelled(currentUI, aiMessageItem, fullResponse, chatId))
+                .doFinally(signal -> activeResponses.remove(chatId, subscription))
                 .subscribe(
                         content -> { /* Handled in doOnNext */ },
                         error -> { /* Handled in doOnError */ },
                         () -> { /* Handled in doOnComplete */ }
-                );
+                ));
+    }
+
+    private void handleQueuePosition(UI currentUI, MessageListItem aiMessageItem, int position) {
+        if (currentUI.isAttached()) {
+            currentUI.access(() -> {
+                if (position > 0) {
+                    aiMessageItem.setText("En cola, posición " + position + "...");
+                } else if (aiMessageItem.getText().startsWith("En cola")) {
+                    aiMessageItem.setText("...");
+                }
+            });
+        }
     }
 
     private void addMessageToUI(UI currentUI, MessageListItem item) {
         currentUI.access(() -> {
             if (messageList.isAttached()) {
-                List<MessageListItem> currentDisplayItems = new ArrayList<>(messageList.getItems());
-                currentDisplayItems.add(item);
-                messageList.setItems(currentDisplayItems);
+                transcript.append(item);
                 scrollToBottomChatContainer(currentUI);
             } else {
                 logger.warn("MessageList not attached when trying to add item: {}", item.getText());
@@ -276,82 +438,129 @@ public class ChatView extends HorizontalLayout {
         });
     }
 
-    private void handleStreamingChunk(UI currentUI, MessageListItem aiMessageItem, StringBuilder fullResponse, String chunk) {
+    private void handleStreamingFrame(UI currentUI, MessageListItem aiMessageItem, StringBuilder fullResponse,
+                                      String delta, StreamingStats stats) {
+        String text;
+        boolean first;
+        synchronized (fullResponse) {
+            text = fullResponse.isEmpty() ? delta.stripLeading() : delta;
+            if (text.isEmpty()) {
+                return; // Skip leading blank frames while the placeholder "..." is still shown
+            }
+            first = fullResponse.isEmpty();
+            fullResponse.append(text);
+        }
         if (currentUI.isAttached()) {
             currentUI.access(() -> {
                 if (messageList.isAttached() && aiMessageItem != null) {
-                    if (fullResponse.isEmpty() && chunk.isBlank() && aiMessageItem.getText().equals("...")) {
-                        return; // Skip leading blank chunks if placeholder is still "..."
+                    if (first) { // First frame replaces the placeholder
+                        aiMessageItem.setText(text);
+                    } else { // Subsequent frames only send the appended text to the client
+                        aiMessageItem.appendText(text);
                     }
-                    // Always set the full text as MessageListItem doesn't have appendText
-                    if (aiMessageItem.getText().equals("...")) { // First actual chunk
-                        fullResponse.append(chunk);
-                        aiMessageItem.setText(fullResponse.toString());
-                    } else { // Subsequent chunks
-                        fullResponse.append(chunk);
-                        aiMessageItem.setText(fullResponse.toString());
-                    }
-                    scrollToBottomChatContainer(currentUI);
+                    stats.recordPush(text);
+                    chatContainer.getElement().executeJs("this.scrollTop = this.scrollHeight");
                 }
             });
         }
     }
 
-    private void handleStreamCompletion(UI currentUI, MessageListItem aiMessageItem, StringBuilder fullResponse, String chatName) {
+    private void handleStreamCompletion(UI currentUI, MessageListItem aiMessageItem, StringBuilder fullResponse,
+                                        String chatId, StreamingStats stats,
+                                        GenerationTruncatedException truncated) {
+        String generated;
+        synchronized (fullResponse) {
+            generated = fullResponse.toString();
+        }
+        String finalResponseText = generated.trim();
+        if (truncated != null && !finalResponseText.isBlank()) {
+            // Stored with the mark too, so a reloaded chat still shows the answer is incomplete
+            finalResponseText += TRUNCATED_MARK;
+            logger.info("Response for chat '{}' truncated: {}", chatId, truncated.getMessage());
+        }
+        ChatMessage stored = null;
+        if (!finalResponseText.isBlank()) {
+            // Keep the answer exactly as generated so the next prompt extends this one byte for byte,
+            // unless it is a loop the model would only be nudged to continue
+            boolean looping = truncated != null
+                    && truncated.getReason() == GenerationTruncatedException.Reason.REPETITION;
+            if (!looping) {
+                conversationContext(chatId).appendAssistant(generated);
+            }
+            stored = storeAnswer(chatId, aiMessageItem, finalResponseText);
+        }
+        logger.info("AI Assistant (streamed) response completed for chat '{}'. Streaming: {}", chatId, stats);
+        conversationStore.flush();
+
+        String shownText = finalResponseText;
+        ChatMessage shownMessage = stored;
         if (currentUI.isAttached()) {
             currentUI.access(() -> {
                 if (messageList.isAttached() && aiMessageItem != null) {
-                    String finalResponseText = fullResponse.toString().trim();
-                    if (finalResponseText.isBlank() && aiMessageItem.getText().equals("...")) {
+                    if (shownText.isBlank() && aiMessageItem.getText().equals("...")) {
                         aiMessageItem.setText("(AI no generó respuesta)");
-                        logger.info("AI Assistant (streamed) produced empty response for chat '{}'", chatName);
-                    } else if (!finalResponseText.isBlank()) {
-                        aiMessageItem.setText(finalResponseText);
+                        logger.info("AI Assistant (streamed) produced empty response for chat '{}'", chatId);
+                    } else if (!shownText.isBlank() && !shownText.equals(aiMessageItem.getText())) {
+                        aiMessageItem.setText(shownText);
                     }
-
-                    List<MessageListItem> historyList = chatHistories.computeIfAbsent(chatName, k -> new ArrayList<>());
-                    if (!historyList.contains(aiMessageItem)) {
-                        // This ensures the updated aiMessageItem (by reference) is in history
-                        historyList.add(aiMessageItem);
+                    if (shownMessage != null) {
+                        persistedMessages.put(aiMessageItem, shownMessage);
                     }
-                    logger.info("AI Assistant (streamed) response completed for chat '{}'. History size: {}", chatName, historyList.size());
                     scrollToBottomChatContainer(currentUI);
                 } else {
-                    handleUIDetached("stream completion for " + chatName, null);
+                    handleUIDetached("stream completion for " + chatId, null);
                 }
             });
         } else {
-            handleUINotAvailable("stream completion for " + chatName, null);
+            handleUINotAvailable("stream completion for " + chatId, null);
         }
     }
 
-    private void handleStreamError(UI currentUI, MessageListItem aiMessageItem, String chatName, Throwable error) {
-        logger.error("Error streaming AI response for chat '{}': {}", chatName, error.getMessage(), error);
+    /**
+     * Closes the turn with what was generated before the answer was cancelled, so the next prompt does not carry a
+     * question without its answer, and keeps the partial answer in the chat history.
+     */
+    private void handleStreamCancelled(UI currentUI, MessageListItem aiMessageItem, StringBuilder fullResponse,
+                                       String chatId) {
+        String generated;
+        synchronized (fullResponse) {
+            generated = fullResponse.toString();
+        }
+        logger.info("Response for chat '{}' cancelled after {} characters", chatId, generated.length());
+        conversationContext(chatId).appendAssistant(generated);
+        String shownText = generated.isEmpty() ? "(respuesta cancelada)" : generated + " …";
+        ChatMessage stored = generated.isEmpty() ? null : storeAnswer(chatId, aiMessageItem, shownText);
+        conversationStore.flush();
         if (currentUI.isAttached()) {
             currentUI.access(() -> {
-                if (messageList.isAttached()) {
-                    List<MessageListItem> currentDisplayItems = new ArrayList<>(messageList.getItems());
-                    if (aiMessageItem != null && currentDisplayItems.contains(aiMessageItem)) {
-                        currentDisplayItems.remove(aiMessageItem);
-                        chatHistories.getOrDefault(chatName, new ArrayList<>()).remove(aiMessageItem);
-                    }
+                aiMessageItem.setText(shownText);
+                if (stored != null) {
+                    persistedMessages.put(aiMessageItem, stored);
+                }
+            });
+        }
+    }
 
-                    MessageListItem errorItem = createMessageListItem(
+    private void handleStreamError(UI currentUI, MessageListItem aiMessageItem, String chatId, Throwable error) {
+        logger.error("Error streaming AI response for chat '{}': {}", chatId, error.getMessage(), error);
+        conversationStore.flush();
+        if (currentUI.isAttached()) {
+            currentUI.access(() -> {
+                if (messageList.isAttached()) {
+                    MessageListItem errorItem = MessageListItems.create(
                             "Lo siento, ocurrió un error al intentar responder: " + error.getMessage(),
                             new UserInfo("system-error", "System Error"), true);
                     errorItem.setUserColorIndex(3);
 
-                    currentDisplayItems.add(errorItem);
-                    messageList.setItems(currentDisplayItems);
-
-                    chatHistories.computeIfAbsent(chatName, k -> new ArrayList<>()).add(errorItem);
+                    // The error takes the place of the placeholder answer
+                    transcript.replace(aiMessageItem, errorItem);
                     scrollToBottomChatContainer(currentUI);
                 } else {
-                    handleUIDetached("stream error for " + chatName, error);
+                    handleUIDetached("stream error for " + chatId, error);
                 }
             });
         } else {
-            handleUINotAvailable("stream error for " + chatName, error);
+            handleUINotAvailable("stream error for " + chatId, error);
         }
     }
 
@@ -378,6 +587,15 @@ public class ChatView extends HorizontalLayout {
         page.addBrowserWindowResizeListener(e -> setMobile(e.getWidth() < 740));
     }
 
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        // Nobody is watching the answers any more: drop queued requests and stop generation on the model host. What
+        // was generated so far is still stored, so the chat shows it when it is opened again
+        activeResponses.values().forEach(Disposable::dispose);
+        activeResponses.clear();
+        super.onDetach(detachEvent);
+    }
+
     private void setMobile(boolean mobile) {
         tabs.setOrientation(mobile ? Orientation.HORIZONTAL : Orientation.VERTICAL);
         if (mobile) {
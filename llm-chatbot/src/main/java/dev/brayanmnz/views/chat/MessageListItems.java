@@ -0,0 +1,38 @@
+package dev.brayanmnz.views.chat;
+
+import com.vaadin.collaborationengine.UserInfo;
+import com.vaadin.flow.component.messages.MessageListItem;
+
+import java.time.Instant;
+
+/**
+ * Builds the {@link MessageListItem}s shown in the chat: the author's image when there is one, otherwise the
+ * initials of the first two words of the name.
+ */
+public final class MessageListItems {
+
+    private MessageListItems() {
+    }
+
+    public static MessageListItem create(String text, UserInfo user, boolean isAssistant) {
+        MessageListItem item = new MessageListItem(text, Instant.now(), user.getName());
+        if (user.getImage() != null && !user.getImage().isEmpty()) {
+            item.setUserImage(user.getImage());
+        } else {
+            item.setUserAbbreviation(abbreviation(user.getName()));
+        }
+        item.setUserColorIndex(isAssistant ? 2 : 1);
+        return item;
+    }
+
+    static String abbreviation(String name) {
+        if (name == null || name.isEmpty()) {
+            return "?";
+        }
+        String[] parts = name.split("\\s+");
+        if (parts.length > 1 && !parts[0].isEmpty() && !parts[1].isEmpty()) {
+            return String.valueOf(parts[0].charAt(0)) + parts[1].charAt(0);
+        }
+        return String.valueOf(name.charAt(0));
+    }
+}
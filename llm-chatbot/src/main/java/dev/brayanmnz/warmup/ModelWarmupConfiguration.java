@@ -0,0 +1,93 @@
+package dev.brayanmnz.warmup;
+
+import dev.brayanmnz.common.warmup.ModelWarmup;
+import dev.brayanmnz.common.warmup.ModelWarmup.Target;
+import dev.brayanmnz.common.warmup.ModelWarmupProperties;
+import dev.brayanmnz.routing.ModelEndpoint;
+import dev.brayanmnz.routing.RoutingChatModel;
+import dev.brayanmnz.service.ChatProfilesProperties;
+import dev.brayanmnz.service.ChatProfilesProperties.ChatProfile;
+import org.springframework.ai.chat.client.ChatClientCustomizer;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the chat models warm with a {@link ModelWarmup} (health indicator {@code modelWarmup}): every endpoint of
+ * the model router when it is enabled, each kept warm by the traffic the router sends it, otherwise every distinct
+ * model of the {@code chatbot.chat.profiles}. Timing comes from {@code chatbot.warmup.*}; enabled unless
+ * {@code chatbot.warmup.enabled=false}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = ModelWarmupConfiguration.PREFIX, name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class ModelWarmupConfiguration {
+
+    static final String PREFIX = "chatbot.warmup";
+    static final String WARMUP_MESSAGE = "Hola";
+
+    @Bean
+    ModelWarmup modelWarmup(ChatModel chatModel, Environment environment) {
+        List<Target> targets = new ArrayList<>();
+        if (chatModel instanceof RoutingChatModel router) {
+            for (ModelEndpoint endpoint : router.getEndpoints()) {
+                // The endpoint puts its own model name on the request
+                targets.add(new Target(endpoint.getName(), endpoint::call, warmupPrompt(null, null)));
+            }
+        } else {
+            profileModels(environment).forEach((model, profile) -> targets.add(
+                    new Target(model, chatModel::call, warmupPrompt(profile.model(), profile.keepAlive()))));
+        }
+        ModelWarmupProperties properties = Binder.get(environment)
+                .bind(PREFIX, ModelWarmupProperties.class)
+                .orElseGet(ModelWarmupProperties::new);
+        ModelWarmup modelWarmup = new ModelWarmup(targets, properties);
+        if (chatModel instanceof RoutingChatModel router) {
+            // Targets are endpoints here, which the model name in a response does not tell apart
+            router.addResponseListener(endpoint -> modelWarmup.recordContact(endpoint.getName()));
+        }
+        return modelWarmup;
+    }
+
+    @Bean
+    ChatClientCustomizer modelActivityChatClientCustomizer(ModelWarmup modelWarmup) {
+        return builder -> builder.defaultAdvisors(modelWarmup.activityAdvisor());
+    }
+
+    /**
+     * The first profile of every model, keyed by model name. A profile without a model, like the default profile
+     * when it is not configured, uses the auto-configured model.
+     */
+    private static Map<String, ChatProfile> profileModels(Environment environment) {
+        ChatProfilesProperties properties = Binder.get(environment)
+                .bind(ChatProfilesProperties.PREFIX, ChatProfilesProperties.class)
+                .orElseGet(ChatProfilesProperties::new);
+        Map<String, ChatProfile> profiles = new LinkedHashMap<>(properties.getProfiles());
+        profiles.putIfAbsent(properties.getDefaultProfile(), new ChatProfile(null, null, null, null, null, null, null));
+        String defaultModel = environment.getProperty("spring.ai.ollama.chat.model", "default");
+        Map<String, ChatProfile> models = new LinkedHashMap<>();
+        for (ChatProfile profile : profiles.values()) {
+            models.putIfAbsent(profile.model() != null ? profile.model() : defaultModel, profile);
+        }
+        return models;
+    }
+
+    private static Prompt warmupPrompt(String model, String keepAlive) {
+        // A single generated token: the point is loading the weights, not the answer
+        return new Prompt(WARMUP_MESSAGE, OllamaOptions.builder()
+                .model(model)
+                .keepAlive(keepAlive)
+                .numPredict(1)
+                .build());
+    }
+}
@@ -0,0 +1,91 @@
+package dev.brayanmnz.metrics;
+
+import dev.brayanmnz.common.metrics.LlmMetricsAdvisor;
+import dev.brayanmnz.support.StubOllamaServer;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LlmMetricsAdvisorTest {
+
+    private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    private StubOllamaServer server;
+    private ChatClient chatClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubOllamaServer();
+        server.setAnswer("Las tasas de interés cambian cada mes.");
+        OllamaChatModel model = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(server.baseUrl()).build())
+                .defaultOptions(OllamaOptions.builder().model("gemma3:4b").build())
+                .build();
+        chatClient = ChatClient.builder(model)
+                .defaultAdvisors(new LlmMetricsAdvisor(registry, "ollama"))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void recordsLatencyAndTokensOfAStreamTaggedByModelAndBackend() {
+        long submittedAt = System.nanoTime();
+        List<String> chunks = chatClient.prompt("¿Cómo cambian las tasas?")
+                .advisors(advisor -> advisor.param(LlmMetricsAdvisor.SUBMITTED_AT, submittedAt))
+                .stream()
+                .content()
+                .filter(chunk -> !chunk.isEmpty())
+                .collectList()
+                .block();
+
+        assertThat(timer("llm.time.to.first.token").count()).isEqualTo(1);
+        assertThat(timer("llm.queue.time").count()).isEqualTo(1);
+        assertThat(timer("llm.inter.token.latency").count()).isEqualTo(chunks.size() - 1);
+        assertThat(registry.get("llm.request.tokens").tag("type", "prompt").summary().totalAmount()).isEqualTo(10);
+        assertThat(registry.get("llm.request.tokens").tag("type", "completion").summary().totalAmount())
+                .isEqualTo(5);
+        assertThat(registry.get("llm.tokens.per.second").summary().count()).isEqualTo(1);
+        assertThat(registry.get("llm.request.duration").tag("outcome", "completed").timer().count()).isEqualTo(1);
+        assertThat(registry.scrape())
+                .contains("llm_time_to_first_token_seconds_bucket{backend=\"ollama\",model=\"gemma3:4b\"");
+    }
+
+    @Test
+    void countsCancelledStreams() {
+        server.setChunkDelay(Duration.ofMillis(10));
+
+        chatClient.prompt("¿Cómo cambian las tasas?").stream().content().take(2).blockLast();
+
+        assertThat(registry.get("llm.request.duration").tag("outcome", "cancelled").timer().count()).isEqualTo(1);
+        assertThat(registry.get("llm.request.tokens").tag("type", "completion").summary().totalAmount())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void recordsBlockingCalls() {
+        String answer = chatClient.prompt("¿Cómo cambian las tasas?").call().content();
+
+        assertThat(answer).isEqualTo("Las tasas de interés cambian cada mes.");
+        assertThat(timer("llm.time.to.first.token").count()).isEqualTo(1);
+        assertThat(registry.get("llm.request.duration").tag("outcome", "completed").timer().count()).isEqualTo(1);
+    }
+
+    private Timer timer(String name) {
+        return registry.get(name).tags("model", "gemma3:4b", "backend", "ollama").timer();
+    }
+}
@@ -0,0 +1,138 @@
+package dev.brayanmnz.rag;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetrievalAdvisorTest {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger embeddedTexts = new AtomicInteger();
+    private final List<Prompt> prompts = new CopyOnWriteArrayList<>();
+    private Path documents;
+    private Path indexPath;
+    private DocumentIngestor ingestor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        documents = Files.createDirectories(directory.resolve("docs"));
+        indexPath = directory.resolve("rag.index");
+        Files.writeString(documents.resolve("comisiones.md"),
+                "La comisión por transferencia interbancaria es de 50 pesos por operación.");
+        Files.writeString(documents.resolve("horarios.txt"),
+                "Las sucursales abren de lunes a viernes de ocho de la mañana a cinco de la tarde.");
+        ingestor = new DocumentIngestor(new WordHashEmbeddingModel(), new TokenTextSplitter(), 16);
+    }
+
+    @Test
+    void addsTheRelevantChunksToTheLastUserMessageOnly() throws IOException {
+        VectorIndex index = ingestor.loadOrBuild(documents, indexPath);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ChatClient chatClient = ChatClient.builder(capturingModel())
+                .defaultAdvisors(new RetrievalAdvisor(new WordHashEmbeddingModel(), index, 4, 8, 0.3, registry))
+                .build();
+        List<Message> history = List.of(new UserMessage("Hola"), new AssistantMessage("¿En qué puedo ayudarle?"));
+
+        chatClient.prompt()
+                .messages(history)
+                .user("¿Cuánto cuesta una transferencia interbancaria?")
+                .stream()
+                .content()
+                .blockLast();
+
+        List<Message> sent = prompts.getFirst().getInstructions();
+        assertThat(sent.subList(0, 2)).isEqualTo(history);
+        assertThat(sent.getLast().getText())
+                .contains("[comisiones.md]", "50 pesos por operación")
+                .doesNotContain("sucursales")
+                .endsWith("Pregunta: ¿Cuánto cuesta una transferencia interbancaria?");
+        assertThat(registry.timer("chatbot.rag.retrieval").count()).isEqualTo(1);
+        assertThat(registry.summary("chatbot.rag.matches").totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    void reusesTheIndexUntilADocumentChanges() throws IOException {
+        ingestor.loadOrBuild(documents, indexPath);
+        int afterBuild = embeddedTexts.get();
+        assertThat(afterBuild).isEqualTo(2);
+
+        assertThat(ingestor.loadOrBuild(documents, indexPath).size()).isEqualTo(2);
+        assertThat(embeddedTexts.get()).isEqualTo(afterBuild);
+
+        Path added = Files.writeString(documents.resolve("tarjetas.md"), "La tarjeta de crédito no cobra anualidad.");
+        FileTime indexed = Files.getLastModifiedTime(indexPath);
+        Files.setLastModifiedTime(added, FileTime.from(indexed.toInstant().plusSeconds(1)));
+        assertThat(ingestor.loadOrBuild(documents, indexPath).size()).isEqualTo(3);
+    }
+
+    private ChatModel capturingModel() {
+        return new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                prompts.add(prompt);
+                return new ChatResponse(List.of(new Generation(new AssistantMessage("50 pesos"))));
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return Flux.just(call(prompt));
+            }
+        };
+    }
+
+    /**
+     * Bag of words hashed into 64 dimensions: texts sharing words are similar, which is all retrieval needs here.
+     */
+    private final class WordHashEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddedTexts.incrementAndGet();
+                float[] vector = new float[64];
+                for (String word : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+                    if (word.length() > 3) {
+                        vector[Math.floorMod(word.hashCode(), vector.length)] += 1;
+                    }
+                }
+                embeddings.add(new Embedding(vector, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
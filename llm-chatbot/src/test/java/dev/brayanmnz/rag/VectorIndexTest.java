@@ -0,0 +1,111 @@
+package dev.brayanmnz.rag;
+
+import dev.brayanmnz.rag.VectorIndex.Match;
+import dev.brayanmnz.rag.VectorIndexWriter.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recall of the IVF search against an exact scan, on a synthetic corpus of clustered embeddings.
+ */
+class VectorIndexTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorIndexTest.class);
+
+    private static final int DIMENSIONS = 64;
+    private static final int CORPUS = 5_000;
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void searchFindsMostOfTheExactNeighboursWhileScanningAFewLists() throws IOException {
+        Random random = new Random(7);
+        float[][] topics = new float[100][];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = gaussian(random, 1);
+        }
+        List<Entry> entries = new ArrayList<>(CORPUS);
+        for (int i = 0; i < CORPUS; i++) {
+            entries.add(new Entry("doc" + (i % 10) + ".md", "fragmento " + i,
+                    around(topics[random.nextInt(topics.length)], random, 0.9f)));
+        }
+        Path path = directory.resolve("corpus.index");
+        VectorIndexWriter.write(path, entries);
+        VectorIndex index = VectorIndex.open(path);
+        assertThat(index.size()).isEqualTo(CORPUS);
+        assertThat(index.lists()).isEqualTo(71);
+
+        for (int probes : List.of(1, 4, 8, 16)) {
+            logger.info("recall@{} with {} of {} lists probed: {}", K, probes, index.lists(),
+                    recall(index, topics, probes));
+        }
+        // chatbot.rag.probes defaults to 8
+        assertThat(recall(index, topics, 8)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void storesTheChunkTextsNextToTheVectors() throws IOException {
+        Path path = directory.resolve("small.index");
+        VectorIndexWriter.write(path, List.of(
+                new Entry("comisiones.md", "La comisión por transferencia es de 50 pesos.", new float[]{1, 0, 0}),
+                new Entry("cuentas.md", "Abrir una cuenta de ahorros no tiene costo.", new float[]{0, 1, 0}),
+                new Entry("tarjetas.md", "La tarjeta de crédito cobra una anualidad.", new float[]{0, 0, 2})));
+
+        List<Match> matches = VectorIndex.open(path).search(new float[]{0.1f, 0, 3}, 2, 3);
+
+        assertThat(matches).hasSize(2);
+        assertThat(matches.getFirst().source()).isEqualTo("tarjetas.md");
+        assertThat(matches.getFirst().text()).isEqualTo("La tarjeta de crédito cobra una anualidad.");
+        assertThat(matches.getFirst().score()).isGreaterThan(0.99f);
+        assertThat(matches.get(1).source()).isEqualTo("comisiones.md");
+    }
+
+    /**
+     * Questions are about the topics of the corpus, but looser than its chunks.
+     */
+    private static double recall(VectorIndex index, float[][] topics, int probes) {
+        Random random = new Random(11);
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = around(topics[random.nextInt(topics.length)], random, 1.2f);
+            Set<Integer> exact = ids(index.exactSearch(query, K));
+            found += (int) ids(index.search(query, K, probes)).stream().filter(exact::contains).count();
+        }
+        return (double) found / (QUERIES * K);
+    }
+
+    private static Set<Integer> ids(List<Match> matches) {
+        return matches.stream().map(Match::id).collect(Collectors.toSet());
+    }
+
+    private static float[] gaussian(Random random, float scale) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+
+    private static float[] around(float[] center, Random random, float spread) {
+        float[] vector = gaussian(random, spread);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] += center[d];
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,245 @@
+package dev.brayanmnz.routing;
+
+import dev.brayanmnz.common.metrics.LlmMetricsAdvisor;
+import dev.brayanmnz.routing.ModelRouterProperties.Backend;
+import dev.brayanmnz.routing.ModelRouterProperties.EndpointProperties;
+import dev.brayanmnz.support.StubOllamaServer;
+import dev.brayanmnz.support.StubOpenAiServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoutingChatModelTest {
+
+    private StubOllamaServer first;
+    private StubOllamaServer second;
+    private StubOpenAiServer openAi;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        first = new StubOllamaServer();
+        second = new StubOllamaServer();
+        openAi = new StubOpenAiServer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.close();
+        second.close();
+        openAi.close();
+    }
+
+    @Test
+    void spreadsConcurrentStreamsByOutstandingRequests() {
+        first.setDelay(Duration.ofMillis(200));
+        second.setDelay(Duration.ofMillis(200));
+        RoutingChatModel router = router(ollama("first", first, 8), ollama("second", second, 8));
+
+        List<String> answers = Flux.range(0, 6)
+                .flatMap(i -> text(router.stream(prompt("Pregunta " + i))), 6)
+                .collectList()
+                .block();
+
+        assertThat(answers).hasSize(6);
+        assertThat(first.requests()).hasSize(3);
+        assertThat(second.requests()).hasSize(3);
+        assertThat(router.getEndpoints()).allMatch(endpoint -> endpoint.getOutstanding() == 0);
+    }
+
+    @Test
+    void neverExceedsAnEndpointsConcurrencyCap() {
+        first.setDelay(Duration.ofMillis(100));
+        second.setDelay(Duration.ofMillis(100));
+        RoutingChatModel router = router(ollama("first", first, 1), ollama("second", second, 2));
+
+        List<String> answers = Flux.range(0, 9)
+                .flatMap(i -> text(router.stream(prompt("Pregunta " + i))), 9)
+                .collectList()
+                .block();
+
+        assertThat(answers).hasSize(9);
+        assertThat(first.maxInFlight()).isEqualTo(1);
+        assertThat(second.maxInFlight()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void failsOverToAnotherEndpointBeforeTheFirstToken() {
+        first.setFailing(true);
+        RoutingChatModel router = router(ollama("first", first, 4), ollama("second", second, 4));
+
+        String answer = text(router.stream(prompt("¿Cuál es la tasa?"))).block();
+        ChatResponse called = router.call(prompt("¿Y la comisión?"));
+
+        assertThat(answer).isEqualTo("Hola, soy un modelo de prueba.");
+        assertThat(called.getResult().getOutput().getText()).isEqualTo("Hola, soy un modelo de prueba.");
+        assertThat(second.requests()).hasSize(2);
+        ModelEndpoint failed = router.getEndpoints().getFirst();
+        assertThat(failed.isHealthy()).isFalse();
+        assertThat(failed.getOutstanding()).isZero();
+    }
+
+    @Test
+    void tagsMetricsWithTheEndpointThatServedTheCall() {
+        first.setFailing(true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ChatClient chatClient = ChatClient.builder(router(ollama("first", first, 4), ollama("second", second, 4)))
+                .defaultAdvisors(new LlmMetricsAdvisor(registry, "ollama"))
+                .build();
+
+        chatClient.prompt("¿Cuál es la tasa?").stream().content().blockLast();
+        chatClient.prompt("¿Y la comisión?").call().content();
+
+        assertThat(registry.get("llm.request.duration").tags("backend", "second", "outcome", "completed").timer()
+                .count()).isEqualTo(2);
+        assertThat(registry.find("llm.request.duration").tag("backend", "first").timers()).isEmpty();
+        assertThat(registry.find("llm.request.duration").tag("backend", "ollama").timers()).isEmpty();
+    }
+
+    @Test
+    void healthChecksTakeEndpointsOutOfRotationAndBackIn() {
+        RoutingChatModel router = router(ollama("first", first, 4), ollama("second", second, 4));
+        first.setFailing(true);
+        router.checkHealth();
+
+        IntStream.range(0, 3).forEach(i -> text(router.stream(prompt("Pregunta " + i))).block());
+        assertThat(first.requests()).isEmpty();
+        assertThat(second.requests()).hasSize(3);
+
+        first.setFailing(false);
+        router.checkHealth();
+        assertThat(router.getEndpoints()).allMatch(ModelEndpoint::isHealthy);
+        text(router.stream(prompt("Otra pregunta"))).block();
+        assertThat(first.requests()).hasSize(1);
+    }
+
+    @Test
+    void routesToOpenAiCompatibleEndpointsWithTheirOwnModelName() {
+        first.setFailing(true);
+        RoutingChatModel router = router(ollama("first", first, 4), new EndpointProperties(
+                "docker-model-runner", Backend.OPENAI, openAi.baseUrl(), "ai/smollm2", null, 4));
+
+        String answer = text(router.stream(prompt("Hola"))).block();
+
+        assertThat(answer).isEqualTo("Hola desde llama.cpp.");
+        assertThat(openAi.requests()).hasSize(1);
+        assertThat(openAi.requests().getFirst().path("model").asText()).isEqualTo("ai/smollm2");
+    }
+
+    @Test
+    void hedgesASlowStreamOnAnotherEndpointAndCancelsTheLoser() {
+        first.setDelay(Duration.ofSeconds(3));
+        HedgePolicy policy = hedgePolicy();
+        RoutingChatModel router = hedgingRouter(policy, ollama("first", first, 4), ollama("second", second, 4));
+
+        long start = System.nanoTime();
+        String answer = text(router.stream(prompt("¿Cuál es la tasa?"))).block();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(answer).isEqualTo("Hola, soy un modelo de prueba.");
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(2));
+        assertThat(first.requests()).hasSize(1);
+        assertThat(second.requests()).hasSize(1);
+        assertThat(policy.hedgeRate()).isEqualTo(1.0);
+        assertThat(router.getEndpoints()).allMatch(endpoint -> endpoint.getOutstanding() == 0);
+    }
+
+    @Test
+    void doesNotHedgeStreamsThatStartInTime() {
+        HedgePolicy policy = hedgePolicy();
+        RoutingChatModel router = hedgingRouter(policy, ollama("first", first, 4), ollama("second", second, 4));
+
+        IntStream.range(0, 3).forEach(i -> text(router.stream(prompt("Pregunta " + i))).block());
+
+        assertThat(first.requests().size() + second.requests().size()).isEqualTo(3);
+        assertThat(policy.hedgeRate()).isZero();
+    }
+
+    @Test
+    void hedgesOnTheOpenAiCompatibleEndpoint() {
+        first.setDelay(Duration.ofSeconds(3));
+        RoutingChatModel router = hedgingRouter(hedgePolicy(), ollama("first", first, 4), new EndpointProperties(
+                "docker-model-runner", Backend.OPENAI, openAi.baseUrl(), "ai/smollm2", null, 4));
+
+        assertThat(text(router.stream(prompt("Hola"))).block()).isEqualTo("Hola desde llama.cpp.");
+    }
+
+    @Test
+    void hedgeDelayFollowsThePercentileOfRecentFirstTokens() {
+        HedgePolicy policy = new HedgePolicy(0.95, Duration.ofMillis(50), Duration.ofSeconds(5), 100,
+                new SimpleMeterRegistry());
+        assertThat(policy.delay()).isEqualTo(Duration.ofSeconds(5));
+
+        for (int millis = 1; millis <= 100; millis++) {
+            policy.record(Duration.ofMillis(millis * 10L).toNanos(), false, false);
+        }
+        assertThat(policy.delay()).isEqualTo(Duration.ofMillis(950));
+
+        for (int i = 0; i < 100; i++) {
+            policy.record(Duration.ofMillis(5).toNanos(), false, false);
+        }
+        assertThat(policy.delay()).isEqualTo(Duration.ofMillis(50));
+    }
+
+    @Test
+    void hedgeWinsDoNotFeedTheDelay() {
+        HedgePolicy policy = new HedgePolicy(0.95, Duration.ofMillis(50), Duration.ofSeconds(5), 100,
+                new SimpleMeterRegistry());
+        for (int i = 0; i < 100; i++) {
+            policy.record(Duration.ofMillis(800).toNanos(), false, false);
+        }
+        for (int i = 0; i < 100; i++) {
+            policy.record(Duration.ofMillis(60).toNanos(), true, true);
+        }
+
+        assertThat(policy.delay()).isEqualTo(Duration.ofMillis(800));
+        assertThat(policy.getLatencySaved()).isEqualTo(Duration.ofMillis(100 * 740));
+    }
+
+    private static HedgePolicy hedgePolicy() {
+        return new HedgePolicy(0.95, Duration.ofMillis(100), Duration.ofMillis(200), 100, new SimpleMeterRegistry());
+    }
+
+    private static RoutingChatModel hedgingRouter(HedgePolicy policy, EndpointProperties... endpoints) {
+        return new RoutingChatModel(
+                Stream.of(endpoints).map(endpoint -> ModelEndpoint.of(endpoint, 1)).toList(),
+                Duration.ofSeconds(10), Duration.ofSeconds(1), policy);
+    }
+
+    private static RoutingChatModel router(EndpointProperties... endpoints) {
+        return new RoutingChatModel(
+                Stream.of(endpoints).map(endpoint -> ModelEndpoint.of(endpoint, 1)).toList(),
+                Duration.ofSeconds(10), Duration.ofSeconds(1));
+    }
+
+    private static EndpointProperties ollama(String name, StubOllamaServer server, int maxConcurrent) {
+        return new EndpointProperties(name, Backend.OLLAMA, server.baseUrl(), "gemma3:4b", null, maxConcurrent);
+    }
+
+    private static Prompt prompt(String text) {
+        return new Prompt(List.of(new UserMessage(text)), OllamaOptions.builder().model("gemma3:4b").build());
+    }
+
+    private static Mono<String> text(Flux<ChatResponse> responses) {
+        return responses
+                .map(response -> response.getResult() != null ? response.getResult().getOutput().getText() : null)
+                .filter(Objects::nonNull)
+                .collect(StringBuilder::new, StringBuilder::append)
+                .map(StringBuilder::toString);
+    }
+}
@@ -0,0 +1,146 @@
+package dev.brayanmnz.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.embedding.EmbeddingModel;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CachingChatAssistantServiceTest {
+
+    private final AtomicInteger generations = new AtomicInteger();
+    private final ChatAssistantService model = (prompt, history) -> {
+        generations.incrementAndGet();
+        return Flux.just("Puede abrir ", "una cuenta ", "en línea.");
+    };
+
+    private final AtomicLong now = new AtomicLong(Instant.parse("2025-06-02T12:00:00Z").toEpochMilli());
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now.get());
+        }
+    };
+
+    @Test
+    void replaysExactHitsForTheSameNormalizedPromptAndContext() {
+        CachingChatAssistantService service = newService(null);
+
+        String first = String.join("", service.streamChatResponse("¿Cómo abro una cuenta?", List.of())
+                .collectList().block());
+        List<String> replayed = service.streamChatResponse("como abro una CUENTA", List.of()).collectList().block();
+
+        assertThat(generations).hasValue(1);
+        assertThat(String.join("", replayed)).isEqualTo(first);
+        assertThat(replayed).hasSizeGreaterThan(1);
+        assertThat(service.getHitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void doesNotShareAnswersAcrossDifferentContexts() {
+        CachingChatAssistantService service = newService(null);
+        List<Message> context = List.of(new UserMessage("Hola"), new AssistantMessage("¡Hola!"));
+
+        service.streamChatResponse("¿Cómo abro una cuenta?", List.of()).blockLast();
+        service.streamChatResponse("¿Cómo abro una cuenta?", context).blockLast();
+
+        assertThat(generations).hasValue(2);
+    }
+
+    @Test
+    void semanticTierMatchesSimilarPrompts() {
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.embed(anyString())).thenAnswer(invocation -> {
+            String prompt = invocation.getArgument(0);
+            return prompt.contains("cuenta") ? new float[]{1f, 0.05f} : new float[]{0f, 1f};
+        });
+        CachingChatAssistantService service = newService(embeddingModel);
+
+        service.streamChatResponse("¿Cómo abro una cuenta?", List.of()).blockLast();
+        service.streamChatResponse("quiero abrir una cuenta nueva", List.of()).blockLast();
+        service.streamChatResponse("¿Cuál es la tasa del dólar?", List.of()).blockLast();
+
+        assertThat(generations).hasValue(2);
+    }
+
+    @Test
+    void doesNotKeepAnswersBuiltFromToolsThatMayNotBeReused() {
+        CachingChatAssistantService service = new CachingChatAssistantService(toolCalling(Duration.ZERO),
+                new ResponseCache(100, 100_000, Duration.ofMinutes(10), clock), null, 0.9, new SimpleMeterRegistry());
+
+        service.streamChatResponse("¿Cuánto es la cuota de un préstamo de RD$500,000?", List.of()).blockLast();
+        service.streamChatResponse("¿Cuánto es la cuota de un préstamo de RD$500,000?", List.of()).blockLast();
+
+        assertThat(generations).hasValue(2);
+    }
+
+    @Test
+    void keepsAnswersBuiltFromToolsNoLongerThanTheirResults() {
+        CachingChatAssistantService service = new CachingChatAssistantService(toolCalling(Duration.ofSeconds(30)),
+                new ResponseCache(100, 100_000, Duration.ofMinutes(10), clock), null, 0.9, new SimpleMeterRegistry());
+
+        service.streamChatResponse("¿A cuánto está el dólar?", List.of()).blockLast();
+        now.addAndGet(Duration.ofSeconds(20).toMillis());
+        service.streamChatResponse("¿A cuánto está el dólar?", List.of()).blockLast();
+        assertThat(generations).hasValue(1);
+
+        now.addAndGet(Duration.ofSeconds(11).toMillis());
+        service.streamChatResponse("¿A cuánto está el dólar?", List.of()).blockLast();
+        assertThat(generations).hasValue(2);
+    }
+
+    @Test
+    void requestsSharingAToolCallingGenerationDoNotKeepItsAnswerEither() {
+        ChatAssistantService slowTools = (prompt, history) -> toolCalling(Duration.ZERO)
+                .streamChatResponse(prompt, history)
+                .delayElements(Duration.ofMillis(50));
+        CachingChatAssistantService service = new CachingChatAssistantService(
+                new CoalescingChatAssistantService(slowTools, new SimpleMeterRegistry()),
+                new ResponseCache(100, 100_000, Duration.ofMinutes(10), clock), null, 0.9, new SimpleMeterRegistry());
+
+        Flux.merge(service.streamChatResponse("¿A cuánto está el dólar?", List.of()),
+                service.streamChatResponse("¿A cuánto está el dólar?", List.of())).blockLast();
+        service.streamChatResponse("¿A cuánto está el dólar?", List.of()).blockLast();
+
+        assertThat(generations).hasValue(2);
+    }
+
+    // Answers after one tool call whose result may be reused for ttl, as reported by the tool calling manager
+    private ChatAssistantService toolCalling(Duration ttl) {
+        return (prompt, history) -> Flux.deferContextual(context -> {
+            ToolUsage.from(context).ifPresent(usage -> usage.record(ttl));
+            return model.streamChatResponse(prompt, history);
+        });
+    }
+
+    private CachingChatAssistantService newService(EmbeddingModel embeddingModel) {
+        ResponseCache cache = new ResponseCache(100, 100_000, Duration.ofMinutes(10), Clock.systemUTC());
+        return new CachingChatAssistantService(model, cache, embeddingModel, 0.9, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,77 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.data.ChatMessage;
+import dev.brayanmnz.data.ChatMessageRepository;
+import dev.brayanmnz.service.ConversationStateStore.HistoryPage;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures write-behind throughput with many sessions appending and flushing concurrently, the way chat views do
+ * after each completed response, and checks that nothing is lost or reordered.
+ */
+@DataJpaTest
+@Import({ChatHistoryService.class, ChatExecution.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChatHistoryServiceThroughputTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatHistoryServiceThroughputTest.class);
+
+    private static final int SESSIONS = 32;
+    private static final int TURNS_PER_SESSION = 100;
+
+    @Autowired
+    private ChatHistoryService chatHistoryService;
+
+    @Autowired
+    private ChatMessageRepository repository;
+
+    @Test
+    void concurrentSessionsPersistEveryTurnInOrder() {
+        ExecutorService sessions = Executors.newFixedThreadPool(SESSIONS);
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int session = 0; session < SESSIONS; session++) {
+            String chatId = "chat-" + session;
+            done.add(CompletableFuture.runAsync(() -> {
+                for (int turn = 0; turn < TURNS_PER_SESSION; turn++) {
+                    chatHistoryService.append(chatId, ChatMessage.Role.USER, "user", "pregunta " + turn, Instant.now());
+                    chatHistoryService.append(chatId, ChatMessage.Role.ASSISTANT, "ai", "respuesta " + turn, Instant.now());
+                    chatHistoryService.flush();
+                }
+            }, sessions));
+        }
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).join();
+        chatHistoryService.flush().join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        sessions.shutdown();
+
+        long expected = (long) SESSIONS * TURNS_PER_SESSION * 2;
+        logger.info("Persisted {} messages from {} concurrent sessions in {} s ({} messages/s)",
+                expected, SESSIONS, String.format("%.2f", seconds), String.format("%.0f", expected / seconds));
+
+        assertThat(repository.count()).isEqualTo(expected);
+        HistoryPage recent = chatHistoryService.loadRecent("chat-7");
+        assertThat(recent.messages()).hasSize(chatHistoryService.getWindowSize());
+        assertThat(recent.hasOlder()).isTrue();
+        assertThat(recent.messages().getLast().getText()).isEqualTo("respuesta " + (TURNS_PER_SESSION - 1));
+        HistoryPage older = chatHistoryService.loadOlder("chat-7", recent.messages().getFirst().getSeq());
+        assertThat(older.messages()).hasSize(chatHistoryService.getPageSize());
+        assertThat(older.messages().getLast().getSeq()).isEqualTo(recent.messages().getFirst().getSeq() - 1);
+    }
+}
@@ -0,0 +1,155 @@
+package dev.brayanmnz.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatRequestSchedulerTest {
+
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final Map<String, Sinks.Many<String>> responses = new ConcurrentHashMap<>();
+    private final Map<String, Integer> positions = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ChatRequestScheduler scheduler;
+
+    // Every prompt streams from its own sink, so the test decides when each request finishes
+    private final ChatAssistantService model = (prompt, history) -> {
+        started.add(prompt);
+        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+        responses.put(prompt, sink);
+        return sink.asFlux();
+    };
+    private final StaticListableBeanFactory beans =
+            new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ChatRequestScheduler(model, beans.getBeanProvider(MeterRegistry.class), 1, 4);
+    }
+
+    @Test
+    void servesSessionsRoundRobinWithOneRequestInFlightEach() {
+        submit("a", "a1");
+        submit("a", "a2");
+        submit("a", "a3");
+        submit("b", "b1");
+        submit("c", "c1");
+
+        assertThat(started).containsExactly("a1");
+        assertThat(positions).containsEntry("b1", 1).containsEntry("c1", 2).containsEntry("a2", 3)
+                .containsEntry("a3", 4);
+
+        for (String prompt : List.of("a1", "b1", "c1", "a2")) {
+            complete(prompt);
+        }
+        assertThat(started).containsExactly("a1", "b1", "c1", "a2", "a3");
+        assertThat(positions).containsEntry("a3", 0);
+    }
+
+    @Test
+    void rejectsRequestsWhenTheQueueIsFull() {
+        submit("a", "running");
+        for (int i = 0; i < 4; i++) {
+            submit("s" + i, "waiting" + i);
+        }
+
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        scheduler.submit("late", "late", List.of(), position -> { }).subscribe(text -> { }, errors::add);
+
+        assertThat(errors).singleElement().isInstanceOf(ChatQueueFullException.class);
+        assertThat(meterRegistry.counter("chatbot.scheduler.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void cancellingRemovesQueuedRequestsAndStopsRunningOnes() {
+        Disposable running = submit("a", "a1");
+        Disposable queued = submit("b", "b1");
+        submit("c", "c1");
+
+        queued.dispose();
+        assertThat(positions).containsEntry("c1", 1);
+        assertThat(scheduler.getQueued()).isEqualTo(1);
+
+        running.dispose();
+        assertThat(started).containsExactly("a1", "c1");
+        assertThat(responses.get("a1").currentSubscriberCount()).isZero();
+        assertThat(scheduler.getRunning()).isEqualTo(1);
+    }
+
+    @Test
+    void identicalRequestsJoinARunningGenerationWithoutTakingASlot() {
+        scheduler = new ChatRequestScheduler(new CoalescingChatAssistantService(model, meterRegistry),
+                beans.getBeanProvider(MeterRegistry.class), 1, 4);
+        List<String> joinerAnswer = new CopyOnWriteArrayList<>();
+
+        submit("a", "¿Subió el dólar?");
+        submit("b", "¿Y el euro?");
+        scheduler.submit("c", "subio el DOLAR", List.of(), position -> positions.put("c", position))
+                .subscribe(joinerAnswer::add);
+
+        assertThat(started).containsExactly("¿Subió el dólar?");
+        assertThat(positions).containsEntry("c", 0).containsEntry("¿Y el euro?", 1);
+        assertThat(scheduler.getRunning()).isEqualTo(1);
+        assertThat(scheduler.getQueued()).isEqualTo(1);
+
+        complete("¿Subió el dólar?");
+        assertThat(joinerAnswer).containsExactly("respuesta");
+        assertThat(started).containsExactly("¿Subió el dólar?", "¿Y el euro?");
+        assertThat(meterRegistry.counter("chatbot.scheduler.joined").count()).isEqualTo(1);
+    }
+
+    @Test
+    void admitsAsManyRequestsAsTheModelEndpointsServeByDefault() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("chatbot.execution.max-concurrent-requests", "2")
+                .withProperty("chatbot.router.enabled", "true")
+                .withProperty("chatbot.router.endpoints[0].max-concurrent", "3")
+                .withProperty("chatbot.router.endpoints[1].base-url", "http://localhost:12434");
+        ChatExecution chatExecution = new ChatExecution(environment);
+        scheduler = new ChatRequestScheduler(model, beans.getBeanProvider(MeterRegistry.class), chatExecution, 0, 10);
+
+        for (int i = 0; i < 9; i++) {
+            submit("s" + i, "p" + i);
+        }
+
+        assertThat(chatExecution.getMaxConcurrentRequests()).isEqualTo(7);
+        assertThat(started).hasSize(7);
+        assertThat(scheduler.getQueued()).isEqualTo(2);
+    }
+
+    @Test
+    void recordsQueueWaitAndServiceTime() {
+        submit("a", "a1");
+        submit("b", "b1");
+        complete("a1");
+        complete("b1");
+
+        assertThat(meterRegistry.timer("chatbot.scheduler.queue.wait").count()).isEqualTo(2);
+        assertThat(meterRegistry.timer("chatbot.scheduler.service.time", "outcome", "completed").count())
+                .isEqualTo(2);
+    }
+
+    private Disposable submit(String session, String prompt) {
+        return scheduler.submit(session, prompt, List.of(), position -> positions.put(prompt, position))
+                .subscribe();
+    }
+
+    private void complete(String prompt) {
+        Sinks.Many<String> response = responses.get(prompt);
+        response.tryEmitNext("respuesta");
+        response.tryEmitComplete();
+    }
+}
@@ -0,0 +1,109 @@
+package dev.brayanmnz.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoalescingChatAssistantServiceTest {
+
+    private final AtomicInteger generations = new AtomicInteger();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+
+    private final ChatAssistantService model = (prompt, history) -> Flux.defer(() -> {
+        generations.incrementAndGet();
+        return tokens.asFlux().doOnCancel(() -> cancelled.set(true));
+    });
+
+    private final CoalescingChatAssistantService service =
+            new CoalescingChatAssistantService(model, new SimpleMeterRegistry());
+
+    @Test
+    void concurrentIdenticalPromptsShareOneGeneration() {
+        ChatAssistantService slowModel = (prompt, history) -> {
+            generations.incrementAndGet();
+            return Flux.just("Los ", "dólares ", "subieron.").delayElements(Duration.ofMillis(50));
+        };
+        CoalescingChatAssistantService coalescing = new CoalescingChatAssistantService(slowModel,
+                new SimpleMeterRegistry());
+
+        List<String> answers = Flux.range(0, 20)
+                .flatMap(i -> coalescing.streamChatResponse(i % 2 == 0 ? "¿Subió el dólar?" : "subio el DOLAR",
+                        List.of()).collectList().map(chunks -> String.join("", chunks)), 20)
+                .collectList()
+                .block();
+
+        assertThat(generations).hasValue(1);
+        assertThat(answers).hasSize(20).containsOnly("Los dólares subieron.");
+        assertThat(coalescing.inFlight()).isZero();
+    }
+
+    @Test
+    void lateJoinersGetTheBufferedPrefixThenLiveTokens() {
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> late = new CopyOnWriteArrayList<>();
+        service.streamChatResponse("¿Cuál es la tasa?", List.of()).subscribe(first::add);
+        tokens.tryEmitNext("La tasa ");
+        tokens.tryEmitNext("es ");
+
+        service.streamChatResponse("¿Cuál es la tasa?", List.of()).subscribe(late::add);
+        assertThat(late).containsExactly("La tasa ", "es ");
+        tokens.tryEmitNext("60,5.");
+        tokens.tryEmitComplete();
+
+        assertThat(generations).hasValue(1);
+        assertThat(first).containsExactly("La tasa ", "es ", "60,5.");
+        assertThat(late).containsExactly("La tasa ", "es ", "60,5.");
+        assertThat(service.inFlight()).isZero();
+    }
+
+    @Test
+    void cancelsTheGenerationOnlyWhenTheLastSubscriberLeaves() {
+        Disposable first = service.streamChatResponse("¿Cuál es la tasa?", List.of()).subscribe();
+        Disposable second = service.streamChatResponse("¿Cuál es la tasa?", List.of()).subscribe();
+        tokens.tryEmitNext("La tasa ");
+
+        first.dispose();
+        assertThat(cancelled).isFalse();
+        assertThat(service.inFlight()).isEqualTo(1);
+
+        second.dispose();
+        assertThat(cancelled).isTrue();
+        assertThat(service.inFlight()).isZero();
+
+        // A cancelled generation is not joinable: the next request starts over
+        tokens = Sinks.many().unicast().onBackpressureBuffer();
+        service.streamChatResponse("¿Cuál es la tasa?", List.of()).subscribe();
+        assertThat(generations).hasValue(2);
+    }
+
+    @Test
+    void doesNotShareAcrossDifferentContexts() {
+        ChatAssistantService endlessModel = (prompt, history) -> {
+            generations.incrementAndGet();
+            return Flux.never();
+        };
+        CoalescingChatAssistantService coalescing = new CoalescingChatAssistantService(endlessModel,
+                new SimpleMeterRegistry());
+        List<Message> context = List.of(new UserMessage("Hola"), new AssistantMessage("¡Hola!"));
+
+        coalescing.streamChatResponse("¿Cuál es la tasa?", List.of()).subscribe();
+        coalescing.streamChatResponse("¿Cuál es la tasa?", context).subscribe();
+
+        assertThat(generations).hasValue(2);
+        assertThat(coalescing.inFlight()).isEqualTo(2);
+    }
+}
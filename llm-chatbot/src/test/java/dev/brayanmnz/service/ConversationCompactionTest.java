@@ -0,0 +1,223 @@
+package dev.brayanmnz.service;
+
+import com.vaadin.collaborationengine.UserInfo;
+import com.vaadin.flow.component.messages.MessageListItem;
+import dev.brayanmnz.data.ChatMessage;
+import dev.brayanmnz.views.chat.MessageListItems;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compaction of idle chats in the {@link ConversationCache}, against an in-memory {@link ConversationStateStore},
+ * and the heap each representation of a message costs.
+ */
+class ConversationCompactionTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationCompactionTest.class);
+
+    private static final UserInfo USER = new UserInfo("user", "Brayan Muñoz");
+    private static final UserInfo ASSISTANT = new UserInfo("ai", "AI Assistant");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InMemoryStore store = new InMemoryStore(50);
+    private final ConversationContextManager contextManager =
+            new ConversationContextManager(new TokenEstimator(), 4096, 0.75);
+    private final ConversationCache cache = new ConversationCache(store, contextManager, Duration.ofSeconds(1), 1000,
+            Duration.ZERO, new StaticListableBeanFactory(Map.of("meterRegistry", registry))
+            .getBeanProvider(MeterRegistry.class));
+
+    @Test
+    void aCompactedChatReadsAsBefore() {
+        for (int i = 0; i < 30; i++) {
+            cache.append("general", ChatMessage.Role.USER, "Brayan Muñoz", question(i), Instant.now());
+            cache.append("general", ChatMessage.Role.ASSISTANT, "AI Assistant", answer(i), Instant.now());
+        }
+        store.flush().join();
+        List<ChatMessage> before = cache.get("general").messages();
+
+        cache.compactIdle();
+
+        assertThat(registry.get("chatbot.conversation.compacted.bytes").gauge().value()).isPositive();
+        ConversationCache.CachedConversation conversation = cache.get("general");
+        assertThat(conversation.messages()).hasSize(50).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(before);
+        // Rebuilt from the window, as a load from the store would
+        assertThat(conversation.context().window().messages()).extracting(Message::getText)
+                .containsExactlyElementsOf(before.stream().map(ChatMessage::getText).toList());
+        assertThat(registry.get("chatbot.conversation.cache").tag("result", "expand").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("chatbot.conversation.compacted.bytes").gauge().value()).isZero();
+    }
+
+    @Test
+    void aChatWithUnwrittenMessagesStaysOnTheHeap() {
+        cache.append("general", ChatMessage.Role.USER, "Brayan Muñoz", question(0), Instant.now());
+
+        cache.compactIdle();
+
+        assertThat(registry.get("chatbot.conversation.compacted.bytes").gauge().value()).isZero();
+        store.flush().join();
+        cache.compactIdle();
+        assertThat(registry.get("chatbot.conversation.compacted.bytes").gauge().value()).isPositive();
+    }
+
+    @Test
+    void reportsBytesPerMessage() {
+        int count = 20_000;
+        List<ChatMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean isAssistant = i % 2 == 1;
+            ChatMessage.Role role = isAssistant ? ChatMessage.Role.ASSISTANT : ChatMessage.Role.USER;
+            messages.add(new ChatMessage("general", i + 1, role, isAssistant ? ASSISTANT.getName() : USER.getName(),
+                    isAssistant ? answer(i) : question(i), Instant.now()));
+        }
+        // What ChatView kept per chat: the items shown and their Spring AI copies for the model
+        long uiHistory = retainedBytes(() -> {
+            List<Object> history = new ArrayList<>(count * 2);
+            for (ChatMessage message : messages) {
+                boolean isAssistant = message.getRole() == ChatMessage.Role.ASSISTANT;
+                String text = new String(message.getText());
+                history.add(MessageListItems.create(text, isAssistant ? ASSISTANT : USER, isAssistant));
+                history.add(isAssistant ? new AssistantMessage(text) : new UserMessage(text));
+            }
+            return history;
+        });
+        // A chat of the cache in use: its messages and the context built from them
+        long cached = retainedBytes(() -> {
+            List<Object> conversation = new ArrayList<>(count * 2);
+            for (ChatMessage message : messages) {
+                boolean isAssistant = message.getRole() == ChatMessage.Role.ASSISTANT;
+                ChatMessage copy = new ChatMessage(message.getChatId(), message.getSeq(), message.getRole(),
+                        message.getAuthor(), new String(message.getText()), message.getCreatedAt());
+                conversation.add(copy);
+                conversation.add(isAssistant ? new AssistantMessage(copy.getText()) : new UserMessage(copy.getText()));
+            }
+            return conversation;
+        });
+        InternedAuthors authors = new InternedAuthors();
+        CompactHistory[] compact = new CompactHistory[1];
+        long compactHeap = retainedBytes(() -> compact[0] = CompactHistory.of("general", messages, authors));
+        long compactOffHeap = compact[0].offHeapBytes();
+
+        logger.info("Bytes per message: UI history {}, cached chat {}, compacted {} on the heap + {} off the heap",
+                uiHistory / count, cached / count, compactHeap / count, compactOffHeap / count);
+        assertThat(compactHeap).isLessThan(cached / 10);
+        assertThat(compactHeap + compactOffHeap).isLessThan(cached / 2);
+        assertThat(compact[0].message(count - 1)).usingRecursiveComparison().isEqualTo(messages.getLast());
+    }
+
+    private static long retainedBytes(Supplier<Object> build) {
+        long before = usedHeapAfterGc();
+        Object built = build.get();
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(built);
+        return after - before;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static String question(int i) {
+        return "¿Cuál es la comisión de mantenimiento de la cuenta nómina número " + i + "?";
+    }
+
+    private static String answer(int i) {
+        return "La cuenta " + i + " no tiene comisión de mantenimiento si domicilias una nómina de al menos 600 €.";
+    }
+
+    /**
+     * Numbers messages on flush, as {@link ChatHistoryService} does.
+     */
+    private static final class InMemoryStore implements ConversationStateStore {
+
+        private final int windowSize;
+        private final List<ChatMessage> written = new ArrayList<>();
+        private final List<ChatMessage> pending = new ArrayList<>();
+
+        InMemoryStore(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        @Override
+        public synchronized List<String> chatIds(String ownerId) {
+            return written.stream().map(ChatMessage::getChatId).distinct()
+                    .filter(chatId -> chatId.startsWith(ConversationStateStore.chatId(ownerId, ""))).toList();
+        }
+
+        @Override
+        public synchronized ChatMessage append(String chatId, ChatMessage.Role role, String author, String text,
+                                               Instant createdAt) {
+            ChatMessage message = new ChatMessage(chatId, 0, role, author, text, createdAt);
+            pending.add(message);
+            return message;
+        }
+
+        @Override
+        public synchronized CompletableFuture<Void> flush() {
+            for (ChatMessage message : pending) {
+                message.setSeq(lastSeq(message.getChatId()) + 1);
+                written.add(message);
+            }
+            pending.clear();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public synchronized HistoryPage loadRecent(String chatId) {
+            List<ChatMessage> messages = new ArrayList<>(loadAfter(chatId, 0));
+            pending.stream().filter(message -> message.getChatId().equals(chatId)).forEach(messages::add);
+            int from = Math.max(0, messages.size() - windowSize);
+            return new HistoryPage(List.copyOf(messages.subList(from, messages.size())), from > 0);
+        }
+
+        @Override
+        public synchronized HistoryPage loadOlder(String chatId, long beforeSeq) {
+            return new HistoryPage(loadAfter(chatId, 0).stream().filter(m -> m.getSeq() < beforeSeq).toList(), false);
+        }
+
+        @Override
+        public synchronized List<ChatMessage> loadAfter(String chatId, long afterSeq) {
+            return written.stream()
+                    .filter(message -> message.getChatId().equals(chatId) && message.getSeq() > afterSeq)
+                    .toList();
+        }
+
+        @Override
+        public synchronized long lastSeq(String chatId) {
+            return loadAfter(chatId, 0).stream().mapToLong(ChatMessage::getSeq).max().orElse(0);
+        }
+
+        @Override
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        @Override
+        public int getPageSize() {
+            return 20;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.service.ConversationContext.ContextWindow;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.MessageType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationContextTest {
+
+    private final TokenEstimator tokenEstimator = new TokenEstimator();
+
+    @Test
+    void keepsWholeHistoryWithinBudget() {
+        ConversationContext context = new ConversationContext(tokenEstimator, 1000, 0.75);
+        context.appendUser("¿Cuál es la tasa de interés?");
+        context.appendAssistant("La tasa actual es 10%.");
+        context.appendUser("¿Y para préstamos personales?");
+
+        ContextWindow window = context.window();
+
+        assertThat(window.messages()).hasSize(3);
+        assertThat(window.trimmedMessages()).isZero();
+        assertThat(window.promptTokens()).isEqualTo(
+                tokenEstimator.estimateMessage("¿Cuál es la tasa de interés?")
+                        + tokenEstimator.estimateMessage("La tasa actual es 10%.")
+                        + tokenEstimator.estimateMessage("¿Y para préstamos personales?"));
+    }
+
+    @Test
+    void trimsOldestTurnsDownToTargetAndStartsWithUserTurn() {
+        ConversationContext context = new ConversationContext(tokenEstimator, 100, 0.5);
+        for (int i = 0; i < 20; i++) {
+            context.appendUser("pregunta numero " + i);
+            context.appendAssistant("respuesta bastante larga numero " + i);
+        }
+        context.appendUser("ultima pregunta");
+
+        ContextWindow window = context.window();
+
+        assertThat(window.promptTokens()).isLessThanOrEqualTo(100);
+        assertThat(window.trimmedMessages()).isPositive();
+        assertThat(window.messages().getFirst().getMessageType()).isEqualTo(MessageType.USER);
+        assertThat(window.messages().getLast().getText()).isEqualTo("ultima pregunta");
+        assertThat(window.messages().size() + window.trimmedMessages()).isEqualTo(context.size());
+    }
+
+    @Test
+    void windowPrefixStaysStableBetweenTrims() {
+        ConversationContext context = new ConversationContext(tokenEstimator, 200, 0.5);
+        for (int i = 0; i < 30; i++) {
+            context.appendUser("pregunta " + i);
+        }
+        ContextWindow before = context.window();
+        context.appendAssistant("respuesta");
+        ContextWindow after = context.window();
+
+        assertThat(after.messages().getFirst()).isSameAs(before.messages().getFirst());
+    }
+}
@@ -0,0 +1,223 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.data.ChatMessage;
+import dev.brayanmnz.data.ChatMessageRepository;
+import dev.brayanmnz.service.ConversationCache.CachedConversation;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs two application instances, each on its own port with its own connection pool, store and near-cache,
+ * against one H2 database file opened with {@code AUTO_SERVER}, the way local instances share it.
+ */
+class ConversationStateMultiInstanceTest {
+
+    private static final String SECRET = UUID.randomUUID().toString();
+
+    @TempDir
+    Path dataDir;
+
+    private final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+    private final Browser browser = new Browser();
+
+    @BeforeEach
+    void setUp() {
+        first = start();
+        second = start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        instances.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void eachInstanceSeesTheTurnsOfTheOther() {
+        assertThat(port(first)).isNotEqualTo(port(second));
+
+        turn(first, "¿Cuál es la tasa del préstamo personal?", "Entre 14% y 22% anual.");
+        assertThat(browser.chat(second)).isEqualTo(browser.chat(first));
+        CachedConversation onSecond = cache(second).get(browser.chat(second));
+        assertThat(onSecond.messages()).extracting(ChatMessage::getText)
+                .containsExactly("¿Cuál es la tasa del préstamo personal?", "Entre 14% y 22% anual.");
+        assertThat(onSecond.context().size()).isEqualTo(2);
+
+        turn(second, "¿Y a 36 meses?", "A 36 meses la cuota baja, pero pagas más intereses.");
+        CachedConversation onFirst = cache(first).get(browser.chat(first));
+        assertThat(onFirst.messages()).extracting(ChatMessage::getSeq).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(onFirst.context().window().messages()).extracting(Message::getText)
+                .containsExactly("¿Cuál es la tasa del préstamo personal?", "Entre 14% y 22% anual.",
+                        "¿Y a 36 meses?", "A 36 meses la cuota baja, pero pagas más intereses.");
+        assertThat(cache(first).chatIds(browser.owner(first))).containsExactly(browser.chat(first));
+    }
+
+    @Test
+    void browsersDoNotSeeEachOthersChats() {
+        Browser otherBrowser = new Browser();
+        String otherChat = otherBrowser.chat(second);
+        String otherOwner = otherBrowser.owner(second);
+        assertThat(otherOwner).isNotEqualTo(browser.owner(first));
+
+        turn(first, "¿Cuál es la tasa del préstamo personal?", "Entre 14% y 22% anual.");
+        CachedConversation other = cache(second).get(otherChat);
+        assertThat(other.messages()).isEmpty();
+        assertThat(other.context().size()).isZero();
+
+        turn(second, otherChat, "¿Cuánto cobra el cajero de otro banco?", "Alrededor de RD$150 por retiro.");
+        assertThat(cache(first).get(browser.chat(first)).context().window().messages()).extracting(Message::getText)
+                .containsExactly("¿Cuál es la tasa del préstamo personal?", "Entre 14% y 22% anual.");
+        assertThat(cache(first).get(otherChat).messages()).extracting(ChatMessage::getText)
+                .containsExactly("¿Cuánto cobra el cajero de otro banco?", "Alrededor de RD$150 por retiro.");
+        assertThat(cache(second).chatIds(browser.owner(second))).containsExactly(browser.chat(second));
+        assertThat(cache(second).chatIds(otherOwner)).containsExactly(otherChat);
+    }
+
+    @Test
+    void aCookieNamingAnotherOwnerIsNotTrusted() {
+        turn(first, "¿Cuál es la tasa del préstamo personal?", "Entre 14% y 22% anual.");
+        String signature = browser.cookies[0].getValue().substring(browser.owner(first).length());
+        Browser forger = new Browser();
+        forger.cookies = new Cookie[]{new Cookie(ChatOwnerCookie.NAME, UUID.randomUUID() + signature)};
+
+        assertThat(forger.owner(second)).isNotEqualTo(browser.owner(first));
+        assertThat(cache(second).chatIds(forger.owner(second))).isEmpty();
+    }
+
+    @Test
+    void concurrentWritersShareOneSequencePerChat() {
+        int writers = 4;
+        int messages = 50;
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (ConfigurableApplicationContext instance : List.of(first, second)) {
+            String chatId = browser.chat(instance);
+            for (int writer = 0; writer < writers; writer++) {
+                String author = "writer-" + instances.indexOf(instance) + "-" + writer;
+                done.add(CompletableFuture.runAsync(() -> IntStream.range(0, messages).forEach(i ->
+                        cache(instance).append(chatId, ChatMessage.Role.USER, author, author + " " + i,
+                                Instant.now()))));
+            }
+        }
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).join();
+        store(first).flush().join();
+        store(second).flush().join();
+
+        List<ChatMessage> stored = store(first).loadAfter(browser.chat(first), 0);
+        assertThat(stored).extracting(ChatMessage::getSeq)
+                .containsExactlyElementsOf(LongStream.rangeClosed(1, 2L * writers * messages).boxed().toList());
+        // Every writer's messages keep the order they were written in
+        stored.stream().map(ChatMessage::getAuthor).distinct().forEach(author ->
+                assertThat(stored.stream().filter(message -> message.getAuthor().equals(author))
+                        .map(ChatMessage::getText).toList())
+                        .isEqualTo(IntStream.range(0, messages).mapToObj(i -> author + " " + i).toList()));
+        assertThat(cache(second).get(browser.chat(second)).messages()).hasSize(store(second).getWindowSize())
+                .extracting(ChatMessage::getSeq).isSorted();
+    }
+
+    @Test
+    void aChatOutlivesTheInstanceThatStartedIt() {
+        turn(first, "Hola", "¡Hola! ¿En qué te ayudo?");
+        first.close();
+
+        ConfigurableApplicationContext replacement = start();
+        turn(replacement, "¿Qué es una tasa fija?", "Una tasa que no cambia durante el préstamo.");
+
+        assertThat(cache(second).get(browser.chat(second)).messages()).extracting(ChatMessage::getSeq)
+                .containsExactly(1L, 2L, 3L, 4L);
+        assertThat(cache(replacement).get(browser.chat(replacement)).messages()).extracting(ChatMessage::getText)
+                .containsExactly("Hola", "¡Hola! ¿En qué te ayudo?", "¿Qué es una tasa fija?",
+                        "Una tasa que no cambia durante el préstamo.");
+    }
+
+    // As the chat view does: the instance's own turns go to the context it sends to the model
+    private void turn(ConfigurableApplicationContext instance, String question, String answer) {
+        turn(instance, browser.chat(instance), question, answer);
+    }
+
+    private void turn(ConfigurableApplicationContext instance, String chatId, String question, String answer) {
+        ConversationContext context = cache(instance).get(chatId).context();
+        cache(instance).append(chatId, ChatMessage.Role.USER, "user", question, Instant.now());
+        context.appendUser(question);
+        cache(instance).append(chatId, ChatMessage.Role.ASSISTANT, "ai", answer, Instant.now());
+        context.appendAssistant(answer);
+        store(instance).flush().join();
+    }
+
+    private ConfigurableApplicationContext start() {
+        ConfigurableApplicationContext instance = new SpringApplicationBuilder(Instance.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:file:" + dataDir.resolve("chatbot") + ";AUTO_SERVER=TRUE",
+                "--chatbot.conversation.revalidate-interval=0s",
+                "--chatbot.owner.secret=" + SECRET);
+        instances.add(instance);
+        return instance;
+    }
+
+    private static ConversationCache cache(ConfigurableApplicationContext instance) {
+        return instance.getBean(ConversationCache.class);
+    }
+
+    private static ConversationStateStore store(ConfigurableApplicationContext instance) {
+        return instance.getBean(ConversationStateStore.class);
+    }
+
+    private static int port(ConfigurableApplicationContext instance) {
+        return ((ServletWebServerApplicationContext) instance).getWebServer().getPort();
+    }
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class, ServletWebServerFactoryAutoConfiguration.class})
+    @EntityScan(basePackageClasses = ChatMessage.class)
+    @EnableJpaRepositories(basePackageClasses = ChatMessageRepository.class)
+    @Import({ChatHistoryService.class, ConversationCache.class, ConversationContextManager.class,
+            TokenEstimator.class, ChatExecution.class, ChatOwnerCookie.class})
+    static class Instance {
+    }
+
+    /**
+     * Keeps the owner cookie an instance sets and sends it back to whichever instance serves the next request, as
+     * the chat view resolves its owner.
+     */
+    private static final class Browser {
+
+        private Cookie[] cookies = new Cookie[0];
+
+        String owner(ConfigurableApplicationContext instance) {
+            return instance.getBean(ChatOwnerCookie.class).resolve(cookies, false,
+                    cookie -> cookies = new Cookie[]{cookie});
+        }
+
+        String chat(ConfigurableApplicationContext instance) {
+            return ConversationStateStore.chatId(owner(instance), "general");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.support.StubOllamaServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cancels a streaming answer half way through and checks that the cancellation reaches the model server as a
+ * closed connection, and that the tokens it no longer had to generate are counted.
+ */
+class GenerationCancellationTest {
+
+    private static final String LONG_ANSWER = IntStream.range(0, 100)
+            .mapToObj(i -> "palabra" + i)
+            .collect(Collectors.joining(" "));
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StubOllamaServer server;
+    private GenerationTracker tracker;
+    private ChatAssistantServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubOllamaServer();
+        server.setAnswer(LONG_ANSWER);
+        OllamaChatModel model = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(server.baseUrl()).build())
+                .defaultOptions(OllamaOptions.builder().model("gemma3:4b").build())
+                .build();
+        tracker = new GenerationTracker(
+                new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry))
+                        .getBeanProvider(MeterRegistry.class), 256);
+        service = new ChatAssistantServiceImpl(
+                new ChatClientRegistry(ChatClient.builder(model), new StandardEnvironment()),
+                new PromptAssembler("Eres un asistente financiero."), new ChatExecution(false, 8), tracker,
+                new GenerationGuard(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 1024,
+                        Duration.ofMinutes(2), 10, 3));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void cancellingTheStreamClosesTheModelConnectionAndCountsTheSavedTokens() throws InterruptedException {
+        List<String> full = service.streamChatResponse("Explica las tasas", List.of()).collectList().block();
+        double expected = tracker.getExpectedTokens();
+        assertThat(expected).isEqualTo(full.size());
+
+        server.setChunkDelay(Duration.ofMillis(20));
+        List<String> partial = service.streamChatResponse("Explica las comisiones", List.of())
+                .take(10)
+                .collectList()
+                .block();
+
+        assertThat(partial).hasSize(10);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (server.disconnects() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(server.disconnects()).isEqualTo(1);
+        assertThat(meterRegistry.counter("chatbot.generation.requests", "outcome", "cancelled").count())
+                .isEqualTo(1);
+        assertThat(tracker.getTokensSaved()).isEqualTo(expected - 10);
+    }
+}
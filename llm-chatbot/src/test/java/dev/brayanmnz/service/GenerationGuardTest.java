@@ -0,0 +1,146 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.service.ChatProfilesProperties.ChatProfile;
+import dev.brayanmnz.service.GenerationTruncatedException.Reason;
+import dev.brayanmnz.support.StubOllamaServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GenerationGuardTest {
+
+    private static final ChatProfile DEFAULTS = new ChatProfile(null, null, null, null, null, null, null);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GenerationGuard guard = new GenerationGuard(
+            new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry)).getBeanProvider(MeterRegistry.class),
+            200, Duration.ofSeconds(5), 10, 3);
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    @Test
+    void passesOrdinaryAnswersThrough() {
+        // Repeated words and short phrases, as in a list of rates, are not a loop
+        List<String> answer = tokens(IntStream.range(0, 25)
+                .mapToObj(i -> "- Banco " + i + ": tasa de " + (8 + i % 3) + "% anual. ")
+                .reduce("", String::concat));
+
+        Outcome outcome = run(Flux.fromIterable(answer), DEFAULTS);
+
+        assertThat(outcome.error.get()).isNull();
+        assertThat(outcome.chunks).containsExactlyElementsOf(answer);
+    }
+
+    @Test
+    void stopsALoopOnItsThirdRound() {
+        String loop = "La tasa de interés depende del banco y del plazo del préstamo. ";
+        List<String> answer = tokens("Veamos. " + loop.repeat(50));
+
+        Outcome outcome = run(Flux.fromIterable(answer), DEFAULTS);
+
+        assertThat(outcome.reason()).isEqualTo(Reason.REPETITION);
+        assertThat(cancelled).isTrue();
+        // The third time the first n-gram of the loop comes around
+        int loopTokens = tokens(loop).size();
+        assertThat(outcome.chunks).hasSize(1 + 2 * loopTokens + 10);
+        assertThat(meterRegistry.counter("chatbot.generation.truncated", "reason", "repetition").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void capsTheTokensOfTheProfile() {
+        ChatProfile small = new ChatProfile("smollm2:360m", null, null, null, null, 25, null);
+
+        Outcome outcome = run(Flux.range(0, 1000).map(i -> "palabra" + i + " "), small);
+
+        assertThat(outcome.reason()).isEqualTo(Reason.MAX_TOKENS);
+        assertThat(outcome.chunks).hasSize(25);
+        assertThat(cancelled).isTrue();
+    }
+
+    @Test
+    void stopsAtTheDeadline() {
+        ChatProfile hasty = new ChatProfile(null, null, null, null, null, null, Duration.ofMillis(200));
+        Flux<String> slow = Flux.interval(Duration.ofMillis(30)).map(i -> "palabra" + i + " ");
+
+        Outcome outcome = run(slow, hasty);
+
+        assertThat(outcome.reason()).isEqualTo(Reason.DEADLINE);
+        assertThat(outcome.chunks).hasSizeBetween(3, 7);
+        assertThat(cancelled).isTrue();
+    }
+
+    @Test
+    void theDeadlineDoesNotRunWhileTheRequestWaitsForAPermit() throws Exception {
+        ChatExecution chatExecution = new ChatExecution(false, 1);
+        try (StubOllamaServer server = new StubOllamaServer()) {
+            server.setAnswer("La tasa fija no cambia durante el plazo del préstamo.");
+            OllamaChatModel model = OllamaChatModel.builder()
+                    .ollamaApi(OllamaApi.builder().baseUrl(server.baseUrl()).build())
+                    .defaultOptions(OllamaOptions.builder().model("gemma3:4b").build())
+                    .build();
+            ChatAssistantServiceImpl service = new ChatAssistantServiceImpl(
+                    new ChatClientRegistry(ChatClient.builder(model), new StandardEnvironment()),
+                    new PromptAssembler("Eres un asistente financiero."), chatExecution,
+                    new GenerationTracker(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 256),
+                    new GenerationGuard(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 200,
+                            Duration.ofMillis(300), 10, 3));
+            // Another session holds the only permit for longer than the deadline
+            Disposable holder = chatExecution.limit(Flux.never()).subscribe();
+            Flux.interval(Duration.ofMillis(600)).next().subscribe(tick -> holder.dispose());
+
+            Outcome outcome = new Outcome(new CopyOnWriteArrayList<>(), new AtomicReference<>());
+            service.streamChatResponse("¿Qué es una tasa fija?", List.of())
+                    .doOnNext(outcome.chunks::add)
+                    .doOnError(outcome.error::set)
+                    .onErrorComplete()
+                    .blockLast(Duration.ofSeconds(10));
+
+            assertThat(outcome.error.get()).isNull();
+            assertThat(String.join("", outcome.chunks))
+                    .isEqualTo("La tasa fija no cambia durante el plazo del préstamo.");
+        } finally {
+            chatExecution.destroy();
+        }
+    }
+
+    private Outcome run(Flux<String> generation, ChatProfile profile) {
+        Outcome outcome = new Outcome(new CopyOnWriteArrayList<>(), new AtomicReference<>());
+        guard.guard(generation.doOnCancel(() -> cancelled.set(true)), profile)
+                .doOnNext(outcome.chunks::add)
+                .doOnError(outcome.error::set)
+                .onErrorComplete()
+                .blockLast(Duration.ofSeconds(10));
+        return outcome;
+    }
+
+    /**
+     * Splits like the model hosts stream: one word, with its trailing space, per chunk.
+     */
+    private static List<String> tokens(String text) {
+        return List.of(text.split("(?<= )"));
+    }
+
+    private record Outcome(List<String> chunks, AtomicReference<Throwable> error) {
+        Reason reason() {
+            return ((GenerationTruncatedException) error.get()).getReason();
+        }
+    }
+}
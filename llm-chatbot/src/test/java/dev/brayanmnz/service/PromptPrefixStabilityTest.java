@@ -0,0 +1,77 @@
+package dev.brayanmnz.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.brayanmnz.service.ConversationContext.ContextWindow;
+import dev.brayanmnz.support.StubOllamaServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives several turns through {@link ChatAssistantServiceImpl} against a stub Ollama server and checks that
+ * each request's messages are an exact prefix of the next request's, with the user turn sent only once.
+ */
+class PromptPrefixStabilityTest {
+
+    private StubOllamaServer server;
+    private ChatAssistantServiceImpl service;
+    private ConversationContext context;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubOllamaServer();
+        OllamaChatModel model = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(server.baseUrl()).build())
+                .defaultOptions(OllamaOptions.builder().model("gemma3:4b").build())
+                .build();
+        ChatClientRegistry registry = new ChatClientRegistry(ChatClient.builder(model), new StandardEnvironment());
+        service = new ChatAssistantServiceImpl(registry, new PromptAssembler("Eres un asistente financiero."),
+                new ChatExecution(false, 8),
+                new GenerationTracker(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 256),
+                new GenerationGuard(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 1024,
+                        Duration.ofMinutes(2), 10, 3));
+        context = new ConversationContextManager(new TokenEstimator(), 4096, 0.75).newContext();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void everyRequestExtendsThePreviousPromptByteForByte() {
+        List<String> questions = List.of("¿Cómo abro una cuenta?", "¿Qué documentos necesito?", "¿Hay comisiones?");
+        for (String question : questions) {
+            context.appendUser(question);
+            ContextWindow window = context.window();
+            List<String> chunks = service.streamChatResponse(question, window.priorTurns()).collectList().block();
+            context.appendAssistant(String.join("", chunks));
+        }
+
+        List<JsonNode> requests = server.requests();
+        assertThat(requests).hasSize(questions.size());
+        for (int turn = 0; turn < requests.size(); turn++) {
+            JsonNode messages = requests.get(turn).path("messages");
+            assertThat(messages.get(0).path("role").asText()).isEqualTo("system");
+            assertThat(messages.get(messages.size() - 1).path("content").asText()).isEqualTo(questions.get(turn));
+            assertThat(messages.findValuesAsText("content")).filteredOn(questions.get(turn)::equals).hasSize(1);
+            if (turn > 0) {
+                String previous = requests.get(turn - 1).path("messages").toString();
+                String current = messages.toString();
+                assertThat(current).startsWith(previous.substring(0, previous.length() - 1));
+            }
+        }
+    }
+}
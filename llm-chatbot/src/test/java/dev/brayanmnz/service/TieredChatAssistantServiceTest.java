@@ -0,0 +1,182 @@
+package dev.brayanmnz.service;
+
+import dev.brayanmnz.support.StubOllamaServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the tiering against a stub model server that serves a fast small model and a slow large one.
+ */
+class TieredChatAssistantServiceTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredChatAssistantServiceTest.class);
+
+    private static final String LARGE = "gemma3:4b";
+    private static final String SMALL = "smollm2:360m";
+    private static final String SMALL_ANSWER = "¡Hola! Con gusto te ayudo. Puedo explicarte las tasas de los "
+            + "bancos, el precio del dólar y como funcionan los préstamos en la República Dominicana.";
+    private static final String LARGE_ANSWER = "Depende del plazo y de la tasa de cada banco: compara el costo "
+            + "total del préstamo antes de decidir.";
+    private static final List<String> SIMPLE = List.of("Hola", "Gracias", "¿Qué es una tasa?", "Buenas tardes");
+    private static final List<String> COMPLEX = List.of(
+            "¿Por qué conviene más un préstamo a 36 meses que a 12? ¿Qué pasa si pago antes?",
+            "Compara las ventajas de ahorrar en pesos o en dólares con una tasa del 8%",
+            "Explica paso a paso cómo calcular la cuota de un préstamo de RD$500,000");
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StubOllamaServer server;
+    private ChatClientRegistry chatClients;
+    private ChatAssistantServiceImpl models;
+    private TieredChatAssistantService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubOllamaServer();
+        server.setAnswer(SMALL, SMALL_ANSWER);
+        server.setAnswer(LARGE, LARGE_ANSWER);
+        OllamaChatModel model = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(server.baseUrl()).build())
+                .defaultOptions(OllamaOptions.builder().model(LARGE).build())
+                .build();
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("chatbot.chat.profiles.small.model", SMALL);
+        GenerationTracker tracker = new GenerationTracker(
+                new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry))
+                        .getBeanProvider(MeterRegistry.class), 256);
+        chatClients = new ChatClientRegistry(ChatClient.builder(model), environment);
+        models = new ChatAssistantServiceImpl(chatClients,
+                new PromptAssembler("Eres un asistente financiero."), new ChatExecution(false, 8), tracker,
+                new GenerationGuard(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 1024,
+                        Duration.ofMinutes(2), 10, 3));
+        service = new TieredChatAssistantService(models, chatClients, new PromptComplexityClassifier(), "small",
+                0.35, 40, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void scoresSmallTalkBelowReasoningQuestions() {
+        PromptComplexityClassifier classifier = new PromptComplexityClassifier();
+        List<Message> longConversation = Collections.nCopies(6, new UserMessage("¿Y eso?"));
+
+        SIMPLE.forEach(prompt -> assertThat(classifier.score(prompt, List.of())).as(prompt).isLessThan(0.35));
+        COMPLEX.forEach(prompt -> assertThat(classifier.score(prompt, List.of())).as(prompt).isGreaterThan(0.35));
+        assertThat(classifier.score("¿Y en dólares?", longConversation))
+                .isGreaterThan(classifier.score("¿Y en dólares?", List.of()));
+    }
+
+    @Test
+    void refusesToStartWithoutTheSmallProfile() {
+        assertThatThrownBy(() -> new TieredChatAssistantService(models, chatClients,
+                new PromptComplexityClassifier(), "tiny", 0.35, 40, meterRegistry))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("chatbot.chat.profiles.tiny.model");
+    }
+
+    @Test
+    void sendsSimpleTurnsToTheSmallModelAndComplexOnesToTheLargeOne() {
+        assertThat(answer("Hola")).isEqualTo(SMALL_ANSWER);
+        assertThat(answer(COMPLEX.get(0))).isEqualTo(LARGE_ANSWER);
+
+        assertThat(server.requests()).extracting(request -> request.path("model").asText())
+                .containsExactly(SMALL, LARGE);
+        assertThat(meterRegistry.counter("chatbot.tiering.requests", "tier", "small").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("chatbot.tiering.requests", "tier", "large").count()).isEqualTo(1);
+        assertThat(service.getSmallRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void escalatesUnsureAnswersWithoutShowingThem() {
+        server.setAnswer(SMALL, "Lo siento, no tengo esa información sobre las tasas de hoy.");
+
+        assertThat(answer("¿Qué es una tasa?")).isEqualTo(LARGE_ANSWER);
+        assertThat(meterRegistry.counter("chatbot.tiering.escalations", "reason", "unsure").count()).isEqualTo(1);
+        assertThat(service.getSmallRatio()).isZero();
+    }
+
+    @Test
+    void escalatesAnswersInTheWrongLanguage() {
+        server.setAnswer(SMALL, "Hello! I can help you with the rates of the banks and your loans.");
+
+        assertThat(answer("Hola")).isEqualTo(LARGE_ANSWER);
+        assertThat(meterRegistry.counter("chatbot.tiering.escalations", "reason", "language").count()).isEqualTo(1);
+    }
+
+    @Test
+    void stopsTheSmallModelAsSoonAsItsAnswerIsRejected() throws InterruptedException {
+        server.setAnswer(SMALL, "No estoy seguro, " + "pero creo que la tasa depende del banco. ".repeat(20));
+        server.setChunkDelay(SMALL, Duration.ofMillis(10));
+
+        assertThat(answer("¿Qué es una tasa?")).isEqualTo(LARGE_ANSWER);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (server.disconnects() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(server.disconnects()).isEqualTo(1);
+    }
+
+    @Test
+    void escalatesEmptyAnswers() {
+        server.setAnswer(SMALL, "");
+
+        assertThat(answer("Hola")).isEqualTo(LARGE_ANSWER);
+        assertThat(meterRegistry.counter("chatbot.tiering.escalations", "reason", "empty").count()).isEqualTo(1);
+    }
+
+    @Test
+    void answersAMixedWorkloadFasterThanTheLargeModelAlone() {
+        server.setChunkDelay(SMALL, Duration.ofMillis(2));
+        server.setChunkDelay(LARGE, Duration.ofMillis(15));
+        List<String> workload = IntStream.range(0, 24)
+                .mapToObj(i -> i % 3 == 0 ? COMPLEX.get(i % COMPLEX.size()) : SIMPLE.get(i % SIMPLE.size()))
+                .toList();
+
+        long largeOnly = run(workload, (prompt, history) -> models.streamChatResponse(prompt, history));
+        long tiered = run(workload, service::streamChatResponse);
+
+        logger.info("Mixed workload of {} prompts: {} ms on the large model, {} ms tiered ({}% small, {}x)",
+                workload.size(), largeOnly, tiered, Math.round(service.getSmallRatio() * 100),
+                String.format("%.1f", (double) largeOnly / tiered));
+        assertThat(tiered).isLessThan(largeOnly);
+        assertThat(service.getSmallRatio()).isGreaterThan(0.5);
+    }
+
+    private String answer(String prompt) {
+        return String.join("", service.streamChatResponse(prompt, List.of()).collectList().block());
+    }
+
+    private static long run(List<String> workload, BiFunction<String, List<Message>, Flux<String>> chat) {
+        long start = System.nanoTime();
+        Flux.fromIterable(workload)
+                .flatMap(prompt -> chat.apply(prompt, List.of()).collectList(), 4)
+                .blockLast();
+        return Duration.ofNanos(System.nanoTime() - start).toMillis();
+    }
+}
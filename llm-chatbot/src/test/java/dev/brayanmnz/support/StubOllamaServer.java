@@ -0,0 +1,246 @@
+package dev.brayanmnz.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal stand-in for the Ollama {@code /api/chat} endpoint. Every request body is recorded and answered with
+ * a streamed (NDJSON) or single response that splits the configured answer into word chunks. {@code /api/tags}
+ * answers health probes; {@link #setFailing} makes both endpoints return 500. With {@link #setLoadTime} the first
+ * request for a model also waits for the model to "load", until {@link #unloadModels()}. Answers and chunk delays
+ * can be set per model, to stand in for a small and a large model. With {@link #setToolCalls} a request that offers
+ * tools and has no tool results yet is answered with those tool calls instead.
+ */
+public class StubOllamaServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final List<JsonNode> requests = new CopyOnWriteArrayList<>();
+    private final List<Long> requestNanos = new CopyOnWriteArrayList<>();
+    private volatile List<ToolCall> toolCalls = List.of();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile String answer = "Hola, soy un modelo de prueba.";
+    private final AtomicInteger disconnects = new AtomicInteger();
+    private volatile Duration delay = Duration.ZERO;
+    private volatile Duration chunkDelay = Duration.ZERO;
+    private volatile Duration loadTime = Duration.ZERO;
+    private final Map<String, String> modelAnswers = new ConcurrentHashMap<>();
+    private final Map<String, Duration> modelChunkDelays = new ConcurrentHashMap<>();
+    private final Set<String> loadedModels = ConcurrentHashMap.newKeySet();
+    private volatile boolean failing;
+
+    public StubOllamaServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/chat", this::handleChat);
+        server.createContext("/api/tags", this::handleTags);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void setAnswer(String answer) {
+        this.answer = answer;
+    }
+
+    /**
+     * Answer for requests to the given model, in place of the common one.
+     */
+    public void setAnswer(String model, String answer) {
+        modelAnswers.put(model, answer);
+    }
+
+    /**
+     * Time every chat request is held before the answer starts.
+     */
+    public void setDelay(Duration delay) {
+        this.delay = delay;
+    }
+
+    /**
+     * Time between streamed chunks, to simulate generation speed.
+     */
+    public void setChunkDelay(Duration chunkDelay) {
+        this.chunkDelay = chunkDelay;
+    }
+
+    /**
+     * Time between streamed chunks for the given model, in place of the common one.
+     */
+    public void setChunkDelay(String model, Duration chunkDelay) {
+        modelChunkDelays.put(model, chunkDelay);
+    }
+
+    /**
+     * Time the first request for a model waits before it is served, like a model server loading the weights.
+     */
+    public void setLoadTime(Duration loadTime) {
+        this.loadTime = loadTime;
+    }
+
+    /**
+     * Forgets the loaded models, as a model server does after its keep-alive runs out.
+     */
+    public void unloadModels() {
+        loadedModels.clear();
+    }
+
+    /**
+     * Tool calls to answer a request offering tools with, before its tool results are sent back.
+     */
+    public void setToolCalls(List<ToolCall> toolCalls) {
+        this.toolCalls = List.copyOf(toolCalls);
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public List<JsonNode> requests() {
+        return requests;
+    }
+
+    /**
+     * {@link System#nanoTime()} at which each of {@link #requests()} arrived.
+     */
+    public List<Long> requestNanos() {
+        return requestNanos;
+    }
+
+    /**
+     * The highest number of chat requests that were being served at the same time.
+     */
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * Number of streamed responses the client hung up on before the last chunk.
+     */
+    public int disconnects() {
+        return disconnects.get();
+    }
+
+    private void handleTags(HttpExchange exchange) throws IOException {
+        byte[] body = "{\"models\":[]}".getBytes();
+        exchange.sendResponseHeaders(failing ? 500 : 200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void handleChat(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            answerChat(exchange);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void answerChat(HttpExchange exchange) throws IOException {
+        JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+        requestNanos.add(System.nanoTime());
+        requests.add(request);
+        sleep(delay);
+        if (failing) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+        String model = request.path("model").asText("stub");
+        synchronized (loadedModels) {
+            if (!loadedModels.contains(model)) {
+                sleep(loadTime);
+                loadedModels.add(model);
+            }
+        }
+        boolean stream = request.path("stream").asBoolean(false);
+        String answer = modelAnswers.getOrDefault(model, this.answer);
+        Duration chunkDelay = modelChunkDelays.getOrDefault(model, this.chunkDelay);
+
+        exchange.getResponseHeaders().set("Content-Type", stream ? "application/x-ndjson" : "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody()) {
+            if (!toolCalls.isEmpty() && request.path("tools").size() > 0
+                    && request.path("messages").findValuesAsText("role").stream().noneMatch("tool"::equals)) {
+                ObjectNode chunk = chunk(model, "", true);
+                ArrayNode calls = ((ObjectNode) chunk.get("message")).putArray("tool_calls");
+                for (ToolCall call : toolCalls) {
+                    calls.addObject().putObject("function").put("name", call.name())
+                            .set("arguments", MAPPER.valueToTree(call.arguments()));
+                }
+                writeLine(body, chunk);
+            } else if (stream) {
+                try {
+                    for (String chunk : answer.split("(?<= )")) {
+                        sleep(chunkDelay);
+                        writeLine(body, chunk(model, chunk, false));
+                    }
+                    writeLine(body, chunk(model, "", true));
+                } catch (IOException e) {
+                    disconnects.incrementAndGet();
+                    throw e;
+                }
+            } else {
+                body.write(MAPPER.writeValueAsBytes(chunk(model, answer, true)));
+            }
+        }
+    }
+
+    private static void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeLine(OutputStream body, ObjectNode chunk) throws IOException {
+        body.write(MAPPER.writeValueAsBytes(chunk));
+        body.write('\n');
+        body.flush();
+    }
+
+    private static ObjectNode chunk(String model, String content, boolean done) {
+        ObjectNode chunk = MAPPER.createObjectNode();
+        chunk.put("model", model);
+        chunk.put("created_at", "2025-01-01T00:00:00Z");
+        chunk.putObject("message").put("role", "assistant").put("content", content);
+        chunk.put("done", done);
+        if (done) {
+            chunk.put("done_reason", "stop");
+            chunk.put("prompt_eval_count", 10);
+            chunk.put("eval_count", 5);
+        }
+        return chunk;
+    }
+
+    public record ToolCall(String name, Map<String, Object> arguments) {
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,105 @@
+package dev.brayanmnz.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal stand-in for an OpenAI-compatible server such as Docker Model Runner: {@code /v1/chat/completions}
+ * answers with a streamed (SSE) or single completion of the configured answer, {@code /v1/models} answers
+ * health probes.
+ */
+public class StubOpenAiServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final List<JsonNode> requests = new CopyOnWriteArrayList<>();
+    private volatile String answer = "Hola desde llama.cpp.";
+
+    public StubOpenAiServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/chat/completions", this::handleCompletion);
+        server.createContext("/v1/models", this::handleModels);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void setAnswer(String answer) {
+        this.answer = answer;
+    }
+
+    public List<JsonNode> requests() {
+        return requests;
+    }
+
+    private void handleModels(HttpExchange exchange) throws IOException {
+        byte[] body = "{\"object\":\"list\",\"data\":[]}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void handleCompletion(HttpExchange exchange) throws IOException {
+        JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+        requests.add(request);
+        String model = request.path("model").asText("stub");
+        boolean stream = request.path("stream").asBoolean(false);
+
+        exchange.getResponseHeaders().set("Content-Type", stream ? "text/event-stream" : "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody()) {
+            if (stream) {
+                for (String chunk : answer.split("(?<= )")) {
+                    writeEvent(body, MAPPER.writeValueAsString(completion(model, chunk, null, true)));
+                }
+                writeEvent(body, MAPPER.writeValueAsString(completion(model, "", "stop", true)));
+                writeEvent(body, "[DONE]");
+            } else {
+                body.write(MAPPER.writeValueAsBytes(completion(model, answer, "stop", false)));
+            }
+        }
+    }
+
+    private static void writeEvent(OutputStream body, String data) throws IOException {
+        body.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private static ObjectNode completion(String model, String content, String finishReason, boolean chunk) {
+        ObjectNode completion = MAPPER.createObjectNode();
+        completion.put("id", "chatcmpl-stub");
+        completion.put("object", chunk ? "chat.completion.chunk" : "chat.completion");
+        completion.put("created", 1735689600);
+        completion.put("model", model);
+        ObjectNode choice = completion.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject(chunk ? "delta" : "message").put("role", "assistant").put("content", content);
+        choice.put("finish_reason", finishReason);
+        if (finishReason != null) {
+            completion.putObject("usage").put("prompt_tokens", 10).put("completion_tokens", 5).put("total_tokens", 15);
+        }
+        return completion;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
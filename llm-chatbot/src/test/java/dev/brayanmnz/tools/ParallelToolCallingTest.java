@@ -0,0 +1,190 @@
+package dev.brayanmnz.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.brayanmnz.service.CachingChatAssistantService;
+import dev.brayanmnz.service.ChatAssistantServiceImpl;
+import dev.brayanmnz.service.ChatClientRegistry;
+import dev.brayanmnz.service.ChatExecution;
+import dev.brayanmnz.service.GenerationGuard;
+import dev.brayanmnz.service.GenerationTracker;
+import dev.brayanmnz.service.PromptAssembler;
+import dev.brayanmnz.service.ResponseCache;
+import dev.brayanmnz.support.StubOllamaServer;
+import dev.brayanmnz.support.StubOllamaServer.ToolCall;
+import dev.brayanmnz.tools.ToolsProperties.ToolPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives tool-calling turns through {@link ChatAssistantServiceImpl} against a stub Ollama server that asks for
+ * several tools at once, with stub providers that each take {@link #LATENCY}. The gap between the model's first
+ * and second request is how long the turn waited for its tools.
+ */
+class ParallelToolCallingTest {
+
+    private static final Duration LATENCY = Duration.ofMillis(300);
+
+    private static final List<ToolCall> THREE_LOOKUPS = List.of(
+            new ToolCall("exchangeRate", Map.of("base", "EUR", "quote", "USD")),
+            new ToolCall("exchangeRate", Map.of("base", "EUR", "quote", "DOP")),
+            new ToolCall("accountFees", Map.of("accountType", "nomina")));
+
+    private StubOllamaServer server;
+    private ToolsProperties properties;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubOllamaServer();
+        properties = new ToolsProperties();
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void independentCallsOfOneTurnRunTogether() {
+        server.setToolCalls(THREE_LOOKUPS);
+        ChatAssistantServiceImpl service = service();
+
+        assertThat(turn(service, "¿Cuánto son 100 euros en dólares y en pesos, y qué cobra la cuenta nómina?"))
+                .isNotEmpty();
+
+        List<JsonNode> requests = server.requests();
+        assertThat(requests).hasSize(2);
+        assertThat(toolResults(requests.get(1))).hasSize(3)
+                .noneMatch(result -> result.contains("unavailable"))
+                .anyMatch(result -> result.contains("DOP"))
+                .anyMatch(result -> result.contains("nomina"));
+        // One provider latency, not three
+        assertThat(toolWait(0)).isGreaterThanOrEqualTo(LATENCY).isLessThan(LATENCY.multipliedBy(2));
+    }
+
+    @Test
+    void repeatedLookupsAreServedFromTheCache() {
+        server.setToolCalls(THREE_LOOKUPS);
+        ChatAssistantServiceImpl service = service();
+
+        turn(service, "¿Cuánto son 100 euros en dólares?");
+        turn(service, "¿Y 200 euros?");
+
+        assertThat(server.requests()).hasSize(4);
+        assertThat(toolResults(server.requests().get(3))).isEqualTo(toolResults(server.requests().get(1)));
+        assertThat(toolWait(2)).isLessThan(LATENCY);
+        assertThat(registry.get("chatbot.tools.cache").tag("result", "miss").counter().count()).isEqualTo(3);
+        assertThat(registry.get("chatbot.tools.cache").tag("result", "hit").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void aSlowToolTimesOutWithoutFailingTheTurn() {
+        server.setToolCalls(THREE_LOOKUPS);
+        properties.getPolicies().put("accountFees", new ToolPolicy(Duration.ofMillis(100), null, null, null));
+        ChatAssistantServiceImpl service = service();
+
+        assertThat(turn(service, "¿Qué cobra la cuenta nómina?")).isNotEmpty();
+
+        assertThat(toolResults(server.requests().get(1)))
+                .filteredOn(result -> result.startsWith("Tool accountFees is unavailable: no answer within 100 ms"))
+                .hasSize(1);
+        assertThat(registry.get("chatbot.tools.calls").tags("tool", "accountFees", "outcome", "timeout")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void aFullBulkheadRejectsTheCallInsteadOfQueueing() {
+        server.setToolCalls(List.of(
+                new ToolCall("exchangeRate", Map.of("base", "EUR", "quote", "USD")),
+                new ToolCall("exchangeRate", Map.of("base", "EUR", "quote", "GBP"))));
+        properties.getPolicies().put("exchangeRate", new ToolPolicy(null, 1, null, null));
+        ChatAssistantServiceImpl service = service();
+
+        assertThat(turn(service, "¿A cuánto están el dólar y la libra?")).isNotEmpty();
+
+        assertThat(toolResults(server.requests().get(1)))
+                .filteredOn(result -> result.contains("too many concurrent calls"))
+                .hasSize(1);
+        assertThat(toolWait(0)).isLessThan(LATENCY.multipliedBy(2));
+    }
+
+    @Test
+    void answersBuiltFromAToolThatMayNotBeReusedAreNotCached() {
+        server.setToolCalls(List.of(new ToolCall("exchangeRate", Map.of("base", "USD", "quote", "DOP"))));
+        properties.getPolicies().put("exchangeRate", new ToolPolicy(null, null, Duration.ZERO, null));
+        CachingChatAssistantService cached = new CachingChatAssistantService(service(),
+                new ResponseCache(100, 100_000, Duration.ofMinutes(10), Clock.systemUTC()), null, 0.9, registry);
+
+        cached.streamChatResponse("¿A cuánto está el dólar?", List.of()).blockLast();
+        cached.streamChatResponse("¿A cuánto está el dólar?", List.of()).blockLast();
+
+        // Both turns asked the model for the rate and got it from the tool again
+        assertThat(server.requests()).hasSize(4);
+    }
+
+    @Test
+    void answersBuiltFromCacheableToolsAreCachedForTheirTtl() {
+        server.setToolCalls(List.of(new ToolCall("exchangeRate", Map.of("base", "USD", "quote", "DOP"))));
+        CachingChatAssistantService cached = new CachingChatAssistantService(service(),
+                new ResponseCache(100, 100_000, Duration.ofMinutes(10), Clock.systemUTC()), null, 0.9, registry);
+
+        cached.streamChatResponse("¿A cuánto está el dólar?", List.of()).blockLast();
+        cached.streamChatResponse("¿A cuánto está el dólar?", List.of()).blockLast();
+
+        assertThat(server.requests()).hasSize(2);
+    }
+
+    private ChatAssistantServiceImpl service() {
+        ChatExecution execution = new ChatExecution(false, 8);
+        ToolCallingManager manager = new ParallelToolCallingManager(ToolCallingManager.builder().build(), properties,
+                new ToolResultCache(properties.getCacheMaxEntries(), Clock.systemUTC(), registry),
+                execution.scheduler(), registry);
+        OllamaChatModel model = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(server.baseUrl()).build())
+                .defaultOptions(OllamaOptions.builder().model("qwen3:4b").build())
+                .toolCallingManager(manager)
+                .build();
+        FinancialTools tools = new FinancialTools(new StubExchangeRateProvider(LATENCY, Clock.systemUTC()),
+                new StubAccountFeeProvider(LATENCY));
+        ChatClientRegistry clients = new ChatClientRegistry(ChatClient.builder(model).defaultTools(tools),
+                new StandardEnvironment());
+        return new ChatAssistantServiceImpl(clients, new PromptAssembler("Eres un asistente financiero."), execution,
+                new GenerationTracker(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 256),
+                new GenerationGuard(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 1024,
+                        Duration.ofMinutes(2), 10, 3));
+    }
+
+    private static String turn(ChatAssistantServiceImpl service, String question) {
+        return String.join("", service.streamChatResponse(question, List.of()).collectList().block());
+    }
+
+    private static List<String> toolResults(JsonNode request) {
+        return request.path("messages").findParents("role").stream()
+                .filter(message -> "tool".equals(message.path("role").asText()))
+                .map(message -> message.path("content").asText())
+                .toList();
+    }
+
+    // From the request asking for tools to the one carrying their results
+    private Duration toolWait(int request) {
+        return Duration.ofNanos(server.requestNanos().get(request + 1) - server.requestNanos().get(request));
+    }
+}
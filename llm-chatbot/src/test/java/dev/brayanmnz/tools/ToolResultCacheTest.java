@@ -0,0 +1,135 @@
+package dev.brayanmnz.tools;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the freshness rules of {@link ToolResultCache} on a clock the test moves by hand.
+ */
+class ToolResultCacheTest {
+
+    private static final Duration TTL = Duration.ofSeconds(30);
+    private static final Duration STALE = Duration.ofMinutes(5);
+
+    private final MutableClock clock = new MutableClock();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ToolResultCache cache = new ToolResultCache(2, clock, registry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void freshResultsAreNotLoadedAgain() {
+        assertThat(get("rate", CompletableFuture.completedFuture("1.08"))).isEqualTo("1.08");
+        clock.advance(TTL);
+
+        assertThat(get("rate", CompletableFuture.completedFuture("1.09"))).isEqualTo("1.08");
+        assertThat(loads).hasValue(1);
+        assertThat(count("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void staleResultsAreServedWhileOneRefreshRuns() {
+        get("rate", CompletableFuture.completedFuture("1.08"));
+        clock.advance(TTL.plusSeconds(1));
+        CompletableFuture<String> refresh = new CompletableFuture<>();
+
+        assertThat(get("rate", refresh)).isEqualTo("1.08");
+        assertThat(get("rate", CompletableFuture.completedFuture("ignored"))).isEqualTo("1.08");
+        assertThat(loads).hasValue(2);
+
+        refresh.complete("1.09");
+        assertThat(get("rate", CompletableFuture.completedFuture("ignored"))).isEqualTo("1.09");
+        assertThat(count("stale")).isEqualTo(2);
+    }
+
+    @Test
+    void resultsPastTheStaleWindowAreLoadedBeforeAnswering() {
+        get("rate", CompletableFuture.completedFuture("1.08"));
+        clock.advance(TTL.plus(STALE).plusSeconds(1));
+
+        assertThat(get("rate", CompletableFuture.completedFuture("1.09"))).isEqualTo("1.09");
+        assertThat(count("miss")).isEqualTo(2);
+    }
+
+    @Test
+    void aFailedRefreshKeepsTheStaleResult() {
+        get("rate", CompletableFuture.completedFuture("1.08"));
+        clock.advance(TTL.plusSeconds(1));
+
+        assertThat(get("rate", CompletableFuture.failedFuture(new IllegalStateException("down")))).isEqualTo("1.08");
+        assertThat(get("rate", CompletableFuture.completedFuture("1.09"))).isEqualTo("1.08");
+        assertThat(get("rate", CompletableFuture.completedFuture("ignored"))).isEqualTo("1.09");
+    }
+
+    @Test
+    void concurrentMissesShareOneLoadAndAFailedOneIsNotKept() {
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> first = cache.get("fees", TTL, STALE, () -> load(load));
+        CompletableFuture<String> second = cache.get("fees", TTL, STALE, () -> load(new CompletableFuture<>()));
+        assertThat(loads).hasValue(1);
+
+        load.completeExceptionally(new IllegalStateException("down"));
+        assertThatThrownBy(first::join).hasRootCauseMessage("down");
+        assertThatThrownBy(second::join).hasRootCauseMessage("down");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void theLeastRecentlyUsedResultIsEvicted() {
+        get("a", CompletableFuture.completedFuture("1"));
+        get("b", CompletableFuture.completedFuture("2"));
+        get("a", CompletableFuture.completedFuture("ignored"));
+        get("c", CompletableFuture.completedFuture("3"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(get("a", CompletableFuture.completedFuture("ignored"))).isEqualTo("1");
+        assertThat(get("b", CompletableFuture.completedFuture("4"))).isEqualTo("4");
+    }
+
+    private String get(String key, CompletableFuture<String> result) {
+        return cache.get(key, TTL, STALE, () -> load(result)).join();
+    }
+
+    private CompletableFuture<String> load(CompletableFuture<String> result) {
+        loads.incrementAndGet();
+        return result;
+    }
+
+    private double count(String result) {
+        return registry.get("chatbot.tools.cache").tag("result", result).counter().count();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2025-06-02T09:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
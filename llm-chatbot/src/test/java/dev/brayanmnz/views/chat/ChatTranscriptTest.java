@@ -0,0 +1,125 @@
+package dev.brayanmnz.views.chat;
+
+import com.vaadin.collaborationengine.UserInfo;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.messages.MessageList;
+import com.vaadin.flow.component.messages.MessageListItem;
+import com.vaadin.flow.internal.JsonCodec;
+import com.vaadin.flow.server.VaadinSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures what the chat pushes to the browser, as the size of the JSON arguments of the JavaScript calls queued
+ * for the next response.
+ */
+class ChatTranscriptTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatTranscriptTest.class);
+
+    private static final UserInfo USER = new UserInfo("user", "Brayan Muñoz");
+    private static final UserInfo ASSISTANT = new UserInfo("ai", "AI Assistant");
+
+    private UI ui;
+    private MessageList messageList;
+    private ChatTranscript transcript;
+
+    @BeforeEach
+    void setUp() {
+        ui = new UI();
+        // Flushing the pending JavaScript calls checks the session lock, which a mock always holds
+        ui.getInternals().setSession(mock(VaadinSession.class));
+        messageList = new MessageList();
+        ui.add(messageList);
+        transcript = new ChatTranscript(messageList, 20);
+    }
+
+    @Test
+    void appendingPushesOnlyTheNewMessage() {
+        List<Integer> appendBytes = new ArrayList<>();
+        for (int historySize : List.of(10, 500)) {
+            List<MessageListItem> history = history(historySize);
+            messageList.setItems(history);
+            pushedBytes();
+
+            // Previous approach: copy the rendered items, add one and set them all again
+            List<MessageListItem> copy = new ArrayList<>(messageList.getItems());
+            copy.add(message(historySize));
+            messageList.setItems(copy);
+            int resetBytes = pushedBytes();
+
+            MessageListItem next = MessageListItems.create("¿Y la comisión por transferencia?", USER, false);
+            next.setTime(Instant.EPOCH);
+            transcript.append(next);
+            int appended = pushedBytes();
+            appendBytes.add(appended);
+
+            logger.info("{} messages: {} bytes pushed with setItems, {} bytes with append",
+                    historySize, resetBytes, appended);
+            assertThat(appended).isLessThan(resetBytes);
+        }
+        // The cost of a message does not depend on how long the chat is
+        assertThat(appendBytes.get(1)).isEqualTo(appendBytes.get(0));
+    }
+
+    @Test
+    void showRendersOnlyTheMostRecentMessagesAndRevealsOlderOnesOnDemand() {
+        List<MessageListItem> history = history(50);
+
+        transcript.show(history);
+        assertThat(transcript.getItems()).containsExactlyElementsOf(history.subList(30, 50));
+
+        List<MessageListItem> hidden = transcript.hiddenItems(20);
+        assertThat(hidden).containsExactlyElementsOf(history.subList(10, 30));
+        transcript.prepend(hidden);
+        assertThat(transcript.getItems()).containsExactlyElementsOf(history.subList(10, 50));
+
+        transcript.prepend(transcript.hiddenItems(20));
+        assertThat(transcript.getItems()).containsExactlyElementsOf(history);
+        assertThat(transcript.hiddenItems(20)).isEmpty();
+    }
+
+    @Test
+    void replaceSwapsTheItemInPlace() {
+        List<MessageListItem> history = history(3);
+        transcript.show(history);
+        MessageListItem error = message(99);
+
+        transcript.replace(history.get(1), error);
+
+        assertThat(transcript.getItems()).containsExactly(history.get(0), error, history.get(2));
+    }
+
+    private int pushedBytes() {
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        return ui.getInternals().dumpPendingJavaScriptInvocations().stream()
+                .flatMap(invocation -> invocation.getInvocation().getParameters().stream())
+                .mapToInt(parameter -> JsonCodec.encodeWithTypeInfo(parameter).toJson().length())
+                .sum();
+    }
+
+    private static List<MessageListItem> history(int size) {
+        List<MessageListItem> history = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            history.add(message(i));
+        }
+        return history;
+    }
+
+    private static MessageListItem message(int i) {
+        boolean isAssistant = i % 2 == 1;
+        return MessageListItems.create(isAssistant
+                        ? "La comisión de mantenimiento de la cuenta " + i + " es de 2 € al mes."
+                        : "¿Cuál es la comisión de la cuenta " + i + "?",
+                isAssistant ? ASSISTANT : USER, isAssistant);
+    }
+}
@@ -0,0 +1,167 @@
+package dev.brayanmnz.warmup;
+
+import dev.brayanmnz.common.warmup.ModelWarmup;
+import dev.brayanmnz.common.warmup.ModelWarmup.Target;
+import dev.brayanmnz.common.warmup.ModelWarmupProperties;
+import dev.brayanmnz.support.StubOllamaServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Warms a model up against a {@link StubOllamaServer} that takes {@link #LOAD_TIME} to "load" a model.
+ */
+class ModelWarmupTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelWarmupTest.class);
+
+    private static final Duration LOAD_TIME = Duration.ofMillis(800);
+
+    private StubOllamaServer server;
+    private OllamaChatModel chatModel;
+    private ModelWarmup warmup;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubOllamaServer();
+        server.setLoadTime(LOAD_TIME);
+        chatModel = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(server.baseUrl()).build())
+                .defaultOptions(OllamaOptions.builder().model("gemma3:4b").build())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (warmup != null) {
+            warmup.destroy();
+        }
+        server.close();
+    }
+
+    @Test
+    void isNotReadyUntilTheModelIsLoadedAndTheFirstChatIsFast() throws Exception {
+        warmup = warmup(Duration.ofMinutes(4), Duration.ofMinutes(30));
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        warmup.start();
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        awaitUntil(warmup::isWarm);
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(server.requests().getFirst().path("options").path("num_predict").asInt()).isEqualTo(1);
+
+        ChatClient chatClient = ChatClient.builder(chatModel).defaultAdvisors(warmup.activityAdvisor()).build();
+        long start = System.nanoTime();
+        chatClient.prompt("¿Qué es una tasa de interés?").call().content();
+        long firstChatMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        logger.info("First chat after warm-up took {} ms (model load {} ms, health {})",
+                firstChatMillis, LOAD_TIME.toMillis(), warmup.health().getDetails());
+        assertThat(firstChatMillis).isLessThan(LOAD_TIME.toMillis());
+    }
+
+    @Test
+    void keepsTheModelResidentOnlyWhileThereIsTraffic() throws Exception {
+        warmup = warmup(Duration.ofMillis(50), Duration.ofMillis(400));
+        warmup.start();
+        awaitUntil(warmup::isWarm);
+        int afterWarmup = server.requests().size();
+
+        Thread.sleep(100);
+        warmup.maintain();
+        awaitUntil(() -> server.requests().size() == afterWarmup + 1);
+
+        // Idle for longer than the idle timeout: no more keep-alives, the server unloads the model
+        Thread.sleep(500);
+        warmup.maintain();
+        Thread.sleep(100);
+        warmup.maintain();
+        Thread.sleep(100);
+        assertThat(server.requests()).hasSize(afterWarmup + 1);
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+        server.unloadModels();
+
+        // The next chat warms it up again
+        warmup.recordActivity();
+        awaitUntil(() -> server.requests().size() == afterWarmup + 2);
+        awaitUntil(() -> warmup.health().getDetails().toString().contains("WARM,"));
+    }
+
+    @Test
+    void trafficToOneModelDoesNotHoldBackTheKeepAlivesOfAnother() throws Exception {
+        ModelWarmupProperties properties = new ModelWarmupProperties();
+        properties.setKeepAliveInterval(Duration.ofMillis(300));
+        warmup = new ModelWarmup(List.of(target("gemma3:4b"), target("gemma3:12b")), properties);
+        warmup.start();
+        awaitUntil(() -> "WARM".equals(status("gemma3:4b")) && "WARM".equals(status("gemma3:12b")));
+
+        Thread.sleep(200);
+        ChatClient chatClient = ChatClient.builder(chatModel).defaultAdvisors(warmup.activityAdvisor()).build();
+        chatClient.prompt("¿Qué es una tasa de interés?").call().content();
+        Thread.sleep(150);
+        warmup.maintain();
+
+        // Only the model the chat did not reach is due
+        awaitUntil(() -> requestsFor("gemma3:12b") == 2);
+        Thread.sleep(100);
+        assertThat(requestsFor("gemma3:4b")).isEqualTo(2);
+    }
+
+    @Test
+    void isDownWhileTheModelCannotBeReachedAndRecovers() throws Exception {
+        server.setFailing(true);
+        warmup = warmup(Duration.ofMinutes(4), Duration.ofMinutes(30));
+        warmup.start();
+        awaitUntil(() -> warmup.health().getStatus().equals(Status.DOWN));
+
+        server.setFailing(false);
+        warmup.maintain();
+        awaitUntil(warmup::isWarm);
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    private Target target(String model) {
+        Prompt prompt = new Prompt(ModelWarmupConfiguration.WARMUP_MESSAGE,
+                OllamaOptions.builder().model(model).numPredict(1).build());
+        return new Target(model, chatModel::call, prompt);
+    }
+
+    private String status(String target) {
+        return String.valueOf(((Map<?, ?>) warmup.health().getDetails().get(target)).get("status"));
+    }
+
+    private long requestsFor(String model) {
+        return server.requests().stream().filter(request -> model.equals(request.path("model").asText())).count();
+    }
+
+    private ModelWarmup warmup(Duration keepAliveInterval, Duration idleTimeout) {
+        Prompt prompt = new Prompt(ModelWarmupConfiguration.WARMUP_MESSAGE,
+                OllamaOptions.builder().model("gemma3:4b").numPredict(1).build());
+        ModelWarmupProperties properties = new ModelWarmupProperties();
+        properties.setKeepAliveInterval(keepAliveInterval);
+        properties.setIdleTimeout(idleTimeout);
+        return new ModelWarmup(List.of(new Target("gemma3:4b", chatModel::call, prompt)), properties);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
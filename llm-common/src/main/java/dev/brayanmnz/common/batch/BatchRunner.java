@@ -0,0 +1,308 @@
+package dev.brayanmnz.common.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.brayanmnz.common.execution.ModelCallExecutor;
+import dev.brayanmnz.common.metrics.LlmMetricsAdvisor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every prompt of a JSONL file (or of stdin with {@code batch.input=-}) through the model and appends one JSONL
+ * result per prompt to {@code batch.output} as soon as it completes, in completion order.
+ * <p>
+ * Input lines are read one at a time and at most {@code batch.max-in-flight} prompts are submitted to the
+ * {@link ModelCallExecutor} without an answer yet, so memory stays flat however long the input is. Each input line
+ * is {@code {"id": "...", "prompt": "..."}}; without an {@code id} the line number is used.
+ * <p>
+ * The id of every answered prompt is appended to {@code batch.checkpoint} right after its result is written, and a
+ * run skips the ids already there, so a crashed run is resumed by starting it again with the same arguments. Failed
+ * prompts are written with an {@code error} and not checkpointed, so the next run retries them; the last line of
+ * an id wins. The CLI apps import it as a bean.
+ */
+public class BatchRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+
+    private final ChatClient chatClient;
+    private final ModelCallExecutor modelCallExecutor;
+    private final ObjectMapper objectMapper;
+    private final String input;
+    private final Path output;
+    private final Path checkpoint;
+    private final int maxInFlight;
+
+    public BatchRunner(ChatClient chatClient, ModelCallExecutor modelCallExecutor, ObjectMapper objectMapper,
+                       @Value("${batch.input:}") String input,
+                       @Value("${batch.output:results.jsonl}") Path output,
+                       @Value("${batch.checkpoint:}") String checkpoint,
+                       @Value("${batch.max-in-flight:${model.execution.max-concurrent-requests:64}}") int maxInFlight) {
+        this.chatClient = chatClient;
+        this.modelCallExecutor = modelCallExecutor;
+        this.objectMapper = objectMapper;
+        this.input = input;
+        this.output = output;
+        this.checkpoint = StringUtils.hasText(checkpoint) ? Path.of(checkpoint) : Path.of(output + ".checkpoint");
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Whether {@code batch.input} asks for a batch run.
+     */
+    public boolean isEnabled() {
+        return StringUtils.hasText(input);
+    }
+
+    /**
+     * Answers every prompt of {@code batch.input} not in the checkpoint yet and returns the summary of the run.
+     */
+    public Summary run() throws IOException, InterruptedException {
+        dropPartialLastLine(output);
+        dropPartialLastLine(checkpoint);
+        Set<String> done = readCheckpoint();
+        Run run;
+        try (BufferedReader reader = openInput();
+             Writer results = Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             Writer checkpointed = Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            run = new Run(done, results, checkpointed);
+            long lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (!line.isBlank()) {
+                    run.submit(line, lineNumber);
+                }
+            }
+            run.awaitCompletion();
+        }
+        Summary summary = run.summary();
+        logger.info("Batch finished: {}", summary);
+        return summary;
+    }
+
+    private BufferedReader openInput() throws IOException {
+        if ("-".equals(input)) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8);
+    }
+
+    private Set<String> readCheckpoint() throws IOException {
+        Set<String> done = new HashSet<>();
+        if (Files.exists(checkpoint)) {
+            try (BufferedReader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+                reader.lines().filter(id -> !id.isEmpty()).forEach(done::add);
+            }
+            logger.info("Resuming from {}: {} prompts already answered", checkpoint, done.size());
+        }
+        return done;
+    }
+
+    /**
+     * Cuts a line left half-written by a crash, so the next line written does not get glued to it.
+     */
+    static void dropPartialLastLine(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long length = raf.length();
+            while (length > 0) {
+                raf.seek(length - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                length--;
+            }
+            if (length < raf.length()) {
+                logger.warn("Dropping the partial last line of {}", file);
+                raf.setLength(length);
+            }
+        }
+    }
+
+    /**
+     * The state of one batch run. Results are written by the threads the calls complete on, one at a time.
+     */
+    private final class Run {
+
+        private final Set<String> done;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        // One party for the reader, one more for every prompt in flight
+        private final Phaser pending = new Phaser(1);
+        private final long start = System.nanoTime();
+        private final Writer results;
+        private final Writer checkpointed;
+        private long[] latencies = new long[1024];
+        private int succeeded;
+        private int failed;
+        private int skipped;
+        private long completionTokens;
+
+        private Run(Set<String> done, Writer results, Writer checkpointed) {
+            this.done = done;
+            this.results = results;
+            this.checkpointed = checkpointed;
+        }
+
+        private void submit(String line, long lineNumber) throws InterruptedException {
+            String id;
+            String prompt;
+            try {
+                JsonNode request = objectMapper.readTree(line);
+                id = request.hasNonNull("id") ? request.get("id").asText() : Long.toString(lineNumber);
+                prompt = request.path("prompt").asText(null);
+            } catch (IOException e) {
+                logger.warn("Skipping line {}: not JSON ({})", lineNumber, e.getMessage());
+                synchronized (this) {
+                    failed++;
+                }
+                return;
+            }
+            if (done.contains(id)) {
+                synchronized (this) {
+                    skipped++;
+                }
+                return;
+            }
+            if (prompt == null) {
+                record(id, null, null, new IllegalArgumentException("No prompt on line " + lineNumber), 0);
+                return;
+            }
+            inFlight.acquire();
+            pending.register();
+            long submittedAt = System.nanoTime();
+            modelCallExecutor.submit(() -> chatClient
+                            .prompt(prompt)
+                            .advisors(advisor -> advisor.param(LlmMetricsAdvisor.SUBMITTED_AT, submittedAt))
+                            .call()
+                            .chatResponse())
+                    .whenComplete((response, error) -> {
+                        try {
+                            record(id, prompt, response, error, System.nanoTime() - submittedAt);
+                        } finally {
+                            inFlight.release();
+                            pending.arriveAndDeregister();
+                        }
+                    });
+        }
+
+        private void awaitCompletion() {
+            pending.arriveAndAwaitAdvance();
+        }
+
+        private synchronized void record(String id, String prompt, ChatResponse response, Throwable error,
+                                         long latencyNanos) {
+            ObjectNode result = objectMapper.createObjectNode();
+            result.put("id", id);
+            result.put("prompt", prompt);
+            result.put("latencyMs", TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+            if (error == null) {
+                Generation generation = response.getResult();
+                result.put("response", generation != null ? generation.getOutput().getText() : null);
+                Usage usage = response.getMetadata().getUsage();
+                if (usage != null && usage.getCompletionTokens() != null) {
+                    result.put("completionTokens", usage.getCompletionTokens());
+                    completionTokens += usage.getCompletionTokens();
+                }
+            } else {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                result.put("error", String.valueOf(cause.getMessage()));
+            }
+            try {
+                // Flushed one line at a time, so a crash loses at most the line being written
+                results.write(objectMapper.writeValueAsString(result));
+                results.write('\n');
+                results.flush();
+                if (error == null) {
+                    checkpointed.write(id);
+                    checkpointed.write('\n');
+                    checkpointed.flush();
+                }
+            } catch (IOException e) {
+                // Not checkpointed, so the next run answers it again
+                logger.error("Could not write the result of prompt {}", id, e);
+                failed++;
+                return;
+            }
+            if (error == null) {
+                if (succeeded == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                }
+                latencies[succeeded++] = latencyNanos;
+            } else {
+                failed++;
+                logger.warn("Prompt {} failed: {}", id, result.get("error").asText());
+            }
+        }
+
+        private synchronized Summary summary() {
+            long[] sorted = Arrays.copyOf(latencies, succeeded);
+            Arrays.sort(sorted);
+            return new Summary(succeeded, failed, skipped, Duration.ofNanos(System.nanoTime() - start),
+                    completionTokens, percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    sorted.length == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length - 1]));
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(sorted[(int) Math.ceil(sorted.length * quantile) - 1]);
+        }
+    }
+
+    /**
+     * What a batch run did. Latencies are in milliseconds from submission to the executor, so queueing counts.
+     *
+     * @param succeeded        prompts answered by this run
+     * @param failed           prompts that failed (and will be retried by the next run) or could not be read
+     * @param skipped          prompts answered by an earlier run, according to the checkpoint
+     * @param elapsed          wall time of the run
+     * @param completionTokens tokens generated, as reported by the backend
+     */
+    public record Summary(int succeeded, int failed, int skipped, Duration elapsed, long completionTokens,
+                          long p50Ms, long p95Ms, long p99Ms, long maxMs) {
+
+        public double promptsPerSecond() {
+            return elapsed.isZero() ? 0 : succeeded / (elapsed.toNanos() / 1e9);
+        }
+
+        public double tokensPerSecond() {
+            return elapsed.isZero() ? 0 : completionTokens / (elapsed.toNanos() / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d answered, %d failed, %d skipped in %.1f s; %.1f prompts/s, %.1f tokens/s; "
+                            + "latency p50 %d ms, p95 %d ms, p99 %d ms, max %d ms",
+                    succeeded, failed, skipped, elapsed.toNanos() / 1e9, promptsPerSecond(), tokensPerSecond(),
+                    p50Ms, p95Ms, p99Ms, maxMs);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package dev.brayanmnz.common.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs blocking model calls. With {@code spring.threads.virtual.enabled=true} every call gets its own virtual
+ * thread and a semaphore caps how many reach the backend at once; otherwise calls share a fixed pool of
+ * platform threads, which is also the cap. The CLI apps import it as a bean.
+ */
+public class ModelCallExecutor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelCallExecutor.class);
+
+    private final ExecutorService executor;
+    private final Semaphore backendPermits;
+
+    public ModelCallExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                             @Value("${model.execution.max-concurrent-requests:64}") int maxConcurrentRequests,
+                             @Value("${model.execution.platform-threads:8}") int platformThreads) {
+        this.backendPermits = new Semaphore(maxConcurrentRequests, true);
+        if (virtualThreads) {
+            executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("model-call-", 0).factory());
+        } else {
+            executor = Executors.newFixedThreadPool(Math.min(platformThreads, maxConcurrentRequests),
+                    Thread.ofPlatform().name("model-call-", 0).daemon(true).factory());
+        }
+        logger.debug("Model calls run on {} threads, at most {} at a time",
+                virtualThreads ? "virtual" : "platform", maxConcurrentRequests);
+    }
+
+    /**
+     * Runs {@code call} once a backend permit is free.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                backendPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return call.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                backendPermits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Runs {@code call} like {@link #submit(Callable)} and waits for its result.
+     */
+    public <T> T call(Callable<T> call) {
+        try {
+            return submit(call).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
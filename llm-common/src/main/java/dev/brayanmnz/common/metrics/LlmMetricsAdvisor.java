@@ -0,0 +1,232 @@
+package dev.brayanmnz.common.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.core.Ordered;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records latency and throughput of every {@code ChatClient} request, tagged by {@code model} and
+ * {@code backend}, which is the {@link #BACKEND} of the first response or else the advisor's own backend:
+ * <ul>
+ *     <li>{@code llm.queue.time}: from {@link #SUBMITTED_AT} until the request reaches the model</li>
+ *     <li>{@code llm.time.to.first.token} and {@code llm.inter.token.latency}</li>
+ *     <li>{@code llm.tokens.per.second} of the generation phase</li>
+ *     <li>{@code llm.request.tokens} with {@code type=prompt|completion}</li>
+ *     <li>{@code llm.request.duration} with {@code outcome=completed|error|cancelled}</li>
+ * </ul>
+ * Meters are resolved once per request (on the first chunk), so the per-chunk cost is a clock read and one
+ * histogram update. Completion tokens come from the usage the backend reports and fall back to the number of
+ * chunks, one token each.
+ */
+public class LlmMetricsAdvisor implements CallAdvisor, StreamAdvisor {
+
+    /** Advisor parameter with the {@link System#nanoTime()} at which the caller submitted the request. */
+    public static final String SUBMITTED_AT = "llm.submitted-at";
+
+    /**
+     * Response metadata with the host that served the request, set by a {@code ChatModel} that spreads requests
+     * over several hosts.
+     */
+    public static final String BACKEND = "llm.backend";
+
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry registry;
+    private final String backend;
+    private final Map<MetersKey, Meters> meters = new ConcurrentHashMap<>();
+
+    public LlmMetricsAdvisor(MeterRegistry registry, String backend) {
+        this.registry = registry;
+        this.backend = backend;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        Recording recording = new Recording(request);
+        try {
+            ChatClientResponse response = chain.nextCall(request);
+            recording.onResponse(response.chatResponse());
+            recording.finish("completed");
+            return response;
+        } catch (RuntimeException e) {
+            recording.finish("error");
+            throw e;
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+            Recording recording = new Recording(request);
+            return chain.nextStream(request)
+                    .doOnNext(response -> recording.onResponse(response.chatResponse()))
+                    .doOnComplete(() -> recording.finish("completed"))
+                    .doOnError(error -> recording.finish("error"))
+                    .doOnCancel(() -> recording.finish("cancelled"));
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "llmMetrics";
+    }
+
+    @Override
+    public int getOrder() {
+        // Outermost, so the measured time includes every other advisor
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private Meters meters(String model, String servedBy) {
+        return meters.computeIfAbsent(new MetersKey(model, StringUtils.hasText(servedBy) ? servedBy : backend),
+                Meters::new);
+    }
+
+    private record MetersKey(String model, String backend) {
+    }
+
+    private final class Meters {
+        private final String model;
+        private final String backend;
+        private final Timer queueTime;
+        private final Timer timeToFirstToken;
+        private final Timer interTokenLatency;
+        private final DistributionSummary tokensPerSecond;
+        private final DistributionSummary promptTokens;
+        private final DistributionSummary completionTokens;
+
+        private Meters(MetersKey key) {
+            this.model = key.model();
+            this.backend = key.backend();
+            queueTime = Timer.builder("llm.queue.time")
+                    .tags("model", model, "backend", backend)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            timeToFirstToken = Timer.builder("llm.time.to.first.token")
+                    .tags("model", model, "backend", backend)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(10))
+                    .maximumExpectedValue(Duration.ofSeconds(60))
+                    .register(registry);
+            interTokenLatency = Timer.builder("llm.inter.token.latency")
+                    .tags("model", model, "backend", backend)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(registry);
+            tokensPerSecond = DistributionSummary.builder("llm.tokens.per.second")
+                    .tags("model", model, "backend", backend)
+                    .register(registry);
+            promptTokens = DistributionSummary.builder("llm.request.tokens")
+                    .tags("model", model, "backend", backend, "type", "prompt")
+                    .register(registry);
+            completionTokens = DistributionSummary.builder("llm.request.tokens")
+                    .tags("model", model, "backend", backend, "type", "completion")
+                    .register(registry);
+        }
+
+        private Timer duration(String outcome) {
+            return Timer.builder("llm.request.duration")
+                    .tags("model", model, "backend", backend, "outcome", outcome)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * State of one request. Chunks of a stream arrive one at a time, so no synchronization is needed.
+     */
+    private final class Recording {
+        private final long start = System.nanoTime();
+        private final Long submittedAt;
+        private final String requestedModel;
+        private Meters meters;
+        private long firstTokenAt;
+        private long lastTokenAt;
+        private int chunks;
+        private long promptTokens;
+        private long completionTokens;
+        private boolean finished;
+
+        private Recording(ChatClientRequest request) {
+            this.submittedAt = request.context().get(SUBMITTED_AT) instanceof Long value ? value : null;
+            ChatOptions options = request.prompt().getOptions();
+            this.requestedModel = options != null ? options.getModel() : null;
+        }
+
+        private void onResponse(ChatResponse response) {
+            long now = System.nanoTime();
+            if (meters == null) {
+                String model = response != null ? response.getMetadata().getModel() : null;
+                String servedBy = response != null ? response.getMetadata().get(BACKEND) : null;
+                meters = meters(StringUtils.hasText(model) ? model
+                        : StringUtils.hasText(requestedModel) ? requestedModel : UNKNOWN, servedBy);
+                if (submittedAt != null) {
+                    meters.queueTime.record(start - submittedAt, TimeUnit.NANOSECONDS);
+                }
+            }
+            if (response == null) {
+                return;
+            }
+            if (response.getResult() != null && StringUtils.hasLength(response.getResult().getOutput().getText())) {
+                if (chunks == 0) {
+                    firstTokenAt = now;
+                    meters.timeToFirstToken.record(now - start, TimeUnit.NANOSECONDS);
+                } else {
+                    meters.interTokenLatency.record(now - lastTokenAt, TimeUnit.NANOSECONDS);
+                }
+                lastTokenAt = now;
+                chunks++;
+            }
+            Usage usage = response.getMetadata().getUsage();
+            if (usage != null) {
+                if (usage.getPromptTokens() != null && usage.getPromptTokens() > 0) {
+                    promptTokens = usage.getPromptTokens();
+                }
+                if (usage.getCompletionTokens() != null && usage.getCompletionTokens() > 0) {
+                    completionTokens = usage.getCompletionTokens();
+                }
+            }
+        }
+
+        private void finish(String outcome) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            long end = System.nanoTime();
+            if (meters == null) {
+                meters = meters(StringUtils.hasText(requestedModel) ? requestedModel : UNKNOWN, null);
+            }
+            meters.duration(outcome).record(end - start, TimeUnit.NANOSECONDS);
+            long completion = completionTokens > 0 ? completionTokens : chunks;
+            if (promptTokens > 0) {
+                meters.promptTokens.record(promptTokens);
+            }
+            if (completion > 0) {
+                meters.completionTokens.record(completion);
+            }
+            // Generation speed excludes the prompt processing before the first token
+            long generationNanos = chunks > 1 ? lastTokenAt - firstTokenAt : end - start;
+            if (completion > 1 && generationNanos > 0) {
+                meters.tokensPerSecond.record(completion * 1e9 / generationNanos);
+            }
+        }
+    }
+}
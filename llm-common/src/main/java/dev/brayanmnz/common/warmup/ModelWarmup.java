@@ -0,0 +1,281 @@
+package dev.brayanmnz.common.warmup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Loads the configured models before users need them and keeps them resident while there is traffic.
+ * <p>
+ * Once the application is ready every {@link Target} gets a one-token warm-up request, which makes the model
+ * server load the weights. Afterwards {@link #maintain()} sends the same request to every model nothing has
+ * reached for {@code keepAliveInterval} (below the server's own unload timeout), as long as a chat went through
+ * {@link #activityAdvisor()} within {@code idleTimeout}; after that the model is left to unload and is warmed up
+ * again by the next chat. What reached a model is tracked per target: the advisor records a contact for the model
+ * named in each response, and callers that know better, like a router that picked an endpoint, call
+ * {@link #recordContact(String)}, so traffic to one model does not hold back the keep-alives of another. A zero {@code idleTimeout} keeps the models resident for good. With scheduling enabled,
+ * {@link #maintain()} runs every {@code checkInterval}. The intervals come from {@link ModelWarmupProperties},
+ * which each application binds from its own prefix.
+ * <p>
+ * As a {@link HealthIndicator} it is {@code OUT_OF_SERVICE} until the first model is warm, {@code UP} from then on
+ * and {@code DOWN} while no model can be reached, so a readiness group including it only lets traffic in once a
+ * model is hot.
+ */
+public class ModelWarmup implements HealthIndicator, SchedulingConfigurer, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelWarmup.class);
+
+    private final List<TargetState> targets;
+    private final Duration checkInterval;
+    private final long keepAliveIntervalNanos;
+    private final long idleTimeoutNanos;
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("model-warmup-", 0).factory());
+    private final Advisor activityAdvisor = new Advisor();
+    private volatile long lastActivity = System.nanoTime();
+
+    public ModelWarmup(List<Target> targets, ModelWarmupProperties properties) {
+        this.targets = targets.stream().map(TargetState::new).toList();
+        this.checkInterval = properties.getCheckInterval();
+        this.keepAliveIntervalNanos = properties.getKeepAliveInterval().toNanos();
+        this.idleTimeoutNanos = properties.getIdleTimeout().toNanos();
+    }
+
+    /**
+     * Starts warming up every model that is not warm yet, without waiting for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (TargetState state : targets) {
+            if (state.status == Status.COLD || state.status == Status.FAILED || state.status == Status.IDLE) {
+                executor.execute(() -> warm(state));
+            }
+        }
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(new FixedDelayTask(this::maintain, checkInterval, checkInterval));
+    }
+
+    /**
+     * Retries failed warm-ups and sends the keep-alive requests that are due.
+     */
+    public void maintain() {
+        long now = System.nanoTime();
+        for (TargetState state : targets) {
+            switch (state.status) {
+                case COLD, FAILED -> executor.execute(() -> warm(state));
+                case WARM -> {
+                    // A model just loaded gets the full idle timeout, even without any chat yet
+                    if (idleTimeoutNanos > 0 && now - Math.max(lastActivity, state.loadedAt) >= idleTimeoutNanos) {
+                        state.status = Status.IDLE;
+                        logger.info("No chats for {}, no longer keeping model {} resident",
+                                Duration.ofNanos(idleTimeoutNanos), state.target.name());
+                    } else if (now - state.lastContact >= keepAliveIntervalNanos) {
+                        executor.execute(() -> warm(state));
+                    }
+                }
+                case WARMING, IDLE -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a chat. Models left to unload while idle are warmed up again right away.
+     */
+    public void recordActivity() {
+        lastActivity = System.nanoTime();
+        for (TargetState state : targets) {
+            if (state.status == Status.IDLE) {
+                executor.execute(() -> warm(state));
+            }
+        }
+    }
+
+    /**
+     * Records that a request reached the target called {@code name}, which puts off its next keep-alive.
+     */
+    public void recordContact(String name) {
+        long now = System.nanoTime();
+        for (TargetState state : targets) {
+            if (state.target.name().equals(name)) {
+                state.lastContact = now;
+            }
+        }
+    }
+
+    /**
+     * The advisor to add to every chat client, so chats count as activity and as contact with the model that
+     * answered them.
+     */
+    public BaseAdvisor activityAdvisor() {
+        return activityAdvisor;
+    }
+
+    /**
+     * Warms the models up and waits until one is warm, every one failed or {@code timeout} passed.
+     *
+     * @return whether a model is warm
+     */
+    public boolean awaitWarm(Duration timeout) throws InterruptedException {
+        start();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!isWarm() && System.nanoTime() < deadline
+                && !targets.stream().allMatch(state -> state.status == Status.FAILED)) {
+            Thread.sleep(50);
+        }
+        return isWarm();
+    }
+
+    /**
+     * Whether at least one model has been warmed up.
+     */
+    public boolean isWarm() {
+        return targets.stream().anyMatch(state -> state.status == Status.WARM || state.status == Status.IDLE);
+    }
+
+    @Override
+    public Health health() {
+        boolean allFailed = true;
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (TargetState state : targets) {
+            allFailed &= state.status == Status.FAILED;
+            Map<String, Object> target = new LinkedHashMap<>();
+            target.put("status", state.status);
+            if (state.loadTime != null) {
+                target.put("loadTime", state.loadTime.toMillis() + "ms");
+            }
+            if (state.error != null) {
+                target.put("error", state.error);
+            }
+            details.put(state.target.name(), target);
+        }
+        Health.Builder health;
+        if (isWarm()) {
+            health = Health.up();
+        } else if (allFailed) {
+            health = Health.down();
+        } else {
+            health = Health.outOfService();
+        }
+        return health.withDetails(details).build();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void warm(TargetState state) {
+        if (!state.busy.compareAndSet(false, true)) {
+            return;
+        }
+        boolean loading = state.status != Status.WARM;
+        if (state.status == Status.COLD || state.status == Status.FAILED) {
+            // An idle model stays IDLE while it reloads, so readiness does not flap
+            state.status = Status.WARMING;
+        }
+        long start = System.nanoTime();
+        try {
+            state.target.model().apply(state.target.prompt());
+            long end = System.nanoTime();
+            state.lastContact = end;
+            state.error = null;
+            state.status = Status.WARM;
+            if (loading) {
+                state.loadedAt = end;
+                state.loadTime = Duration.ofNanos(end - start);
+                logger.info("Model {} is warm ({} ms)", state.target.name(), state.loadTime.toMillis());
+            }
+        } catch (RuntimeException e) {
+            state.error = e.getMessage();
+            state.status = Status.FAILED;
+            logger.warn("Could not warm up model {}: {}", state.target.name(), e.getMessage());
+        } finally {
+            state.busy.set(false);
+        }
+    }
+
+    /**
+     * One model to keep warm.
+     *
+     * @param name   how the model is shown in logs and health details
+     * @param model  sends a request to the model
+     * @param prompt the warm-up request, as small as possible (one generated token)
+     */
+    public record Target(String name, Function<Prompt, ChatResponse> model, Prompt prompt) {
+    }
+
+    enum Status {
+        COLD, WARMING, WARM, IDLE, FAILED
+    }
+
+    private static final class TargetState {
+        private final Target target;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private volatile Status status = Status.COLD;
+        private volatile long lastContact;
+        private volatile long loadedAt;
+        private volatile Duration loadTime;
+        private volatile String error;
+
+        private TargetState(Target target) {
+            this.target = target;
+        }
+    }
+
+    private final class Advisor implements BaseAdvisor {
+
+        @Override
+        public ChatClientRequest before(ChatClientRequest request, AdvisorChain chain) {
+            recordActivity();
+            return request;
+        }
+
+        @Override
+        public ChatClientResponse after(ChatClientResponse response, AdvisorChain chain) {
+            ChatResponse chatResponse = response.chatResponse();
+            if (chatResponse != null && StringUtils.hasText(chatResponse.getMetadata().getModel())) {
+                recordContact(chatResponse.getMetadata().getModel());
+            }
+            return response;
+        }
+
+        @Override
+        public String getName() {
+            return "model-activity";
+        }
+
+        @Override
+        public int getOrder() {
+            // Just inside the model call, which has the lowest precedence itself and does not pass the request on
+            return Ordered.LOWEST_PRECEDENCE - 1;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package dev.brayanmnz.common.warmup;
+
+import java.time.Duration;
+
+/**
+ * Timing of a {@link ModelWarmup}, bound by each application from its own prefix ({@code chatbot.warmup},
+ * {@code model.warmup}). {@code checkInterval} is how often the models are checked, {@code keepAliveInterval} how
+ * long a model may go without a request before it gets a keep-alive, {@code idleTimeout} how long without chats
+ * before the models are left to unload (0 never) and {@code timeout} how long an application waits for a warm
+ * model at startup.
+ */
+public class ModelWarmupProperties {
+
+    private Duration checkInterval = Duration.ofSeconds(15);
+    private Duration keepAliveInterval = Duration.ofMinutes(4);
+    private Duration idleTimeout = Duration.ofMinutes(30);
+    private Duration timeout = Duration.ofMinutes(2);
+
+    public Duration getCheckInterval() {
+        return checkInterval;
+    }
+
+    public void setCheckInterval(Duration checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    public Duration getKeepAliveInterval() {
+        return keepAliveInterval;
+    }
+
+    public void setKeepAliveInterval(Duration keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
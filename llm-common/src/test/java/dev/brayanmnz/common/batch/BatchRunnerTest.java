@@ -0,0 +1,209 @@
+package dev.brayanmnz.common.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.brayanmnz.common.execution.ModelCallExecutor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs batches against a local stub of {@code /api/chat} that takes {@link #MODEL_LATENCY_MS} per answer and fails
+ * the prompts mentioning {@code "falla"}.
+ */
+class BatchRunnerTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunnerTest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final long MODEL_LATENCY_MS = 20;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger maxObservedInFlight = new AtomicInteger();
+    private static final AtomicInteger calls = new AtomicInteger();
+
+    private static HttpServer server;
+    private static ChatClient chatClient;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void startStubModel() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/chat", BatchRunnerTest::answer);
+        server.start();
+        OllamaChatModel model = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl("http://localhost:" + server.getAddress().getPort()).build())
+                .defaultOptions(OllamaOptions.builder().model("stub").build())
+                .build();
+        chatClient = ChatClient.builder(model).build();
+    }
+
+    @AfterAll
+    static void stopStubModel() {
+        server.stop(0);
+    }
+
+    @BeforeEach
+    void resetCounters() {
+        maxObservedInFlight.set(0);
+        calls.set(0);
+    }
+
+    @Test
+    void answersEveryPromptWithoutExceedingTheInFlightCap() throws Exception {
+        Path input = writeInput(200);
+        Path output = directory.resolve("results.jsonl");
+
+        BatchRunner.Summary summary = runner(input, output).run();
+        logger.info("{}", summary);
+
+        assertThat(summary.succeeded()).isEqualTo(200);
+        assertThat(summary.failed()).isZero();
+        assertThat(maxObservedInFlight.get()).isLessThanOrEqualTo(MAX_IN_FLIGHT);
+        assertThat(resultsById(output)).hasSize(200)
+                .allSatisfy((id, result) -> assertThat(result.path("response").asText()).isNotEmpty());
+        assertThat(Files.readAllLines(output.resolveSibling("results.jsonl.checkpoint"))).hasSize(200);
+    }
+
+    @Test
+    void resumesAfterACrashWithoutAnsweringAnyPromptTwice() throws Exception {
+        Path input = writeInput(50);
+        Path output = directory.resolve("results.jsonl");
+        Path checkpoint = directory.resolve("results.jsonl.checkpoint");
+        // What a run killed after its first ten answers leaves behind: a half-written result and checkpoint line
+        StringBuilder results = new StringBuilder();
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            results.append("{\"id\":\"p").append(i).append("\",\"response\":\"ok\"}\n");
+            ids.append('p').append(i).append('\n');
+        }
+        Files.writeString(output, results + "{\"id\":\"p10\",\"resp");
+        Files.writeString(checkpoint, ids + "p1");
+
+        BatchRunner.Summary summary = runner(input, output).run();
+
+        assertThat(summary.skipped()).isEqualTo(10);
+        assertThat(summary.succeeded()).isEqualTo(40);
+        assertThat(calls.get()).isEqualTo(40);
+        List<String> lines = Files.readAllLines(output);
+        assertThat(lines).hasSize(50);
+        for (String line : lines) {
+            MAPPER.readTree(line);
+        }
+        assertThat(resultsById(output)).hasSize(50);
+        assertThat(Files.readAllLines(checkpoint)).hasSize(50).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void retriesOnlyTheFailedPromptsOnTheNextRun() throws Exception {
+        Path input = directory.resolve("prompts.jsonl");
+        Files.writeString(input, """
+                {"id": "a", "prompt": "¿Cuándo se creó Java?"}
+                {"id": "b", "prompt": "Esta pregunta falla"}
+
+                {"prompt": "Sin id"}
+                no es json
+                """);
+        Path output = directory.resolve("results.jsonl");
+
+        BatchRunner.Summary first = runner(input, output).run();
+        assertThat(first.succeeded()).isEqualTo(2);
+        assertThat(first.failed()).isEqualTo(2);
+        Map<String, JsonNode> results = resultsById(output);
+        assertThat(results.get("b").has("error")).isTrue();
+        assertThat(results.get("4").path("prompt").asText()).isEqualTo("Sin id");
+
+        calls.set(0);
+        BatchRunner.Summary second = runner(input, output).run();
+        assertThat(second.skipped()).isEqualTo(2);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    private BatchRunner runner(Path input, Path output) {
+        ModelCallExecutor executor = new ModelCallExecutor(true, 64, 8);
+        return new BatchRunner(chatClient, executor, MAPPER, input.toString(), output, "", MAX_IN_FLIGHT);
+    }
+
+    private Path writeInput(int prompts) throws IOException {
+        Path input = directory.resolve("prompts.jsonl");
+        List<String> lines = new ArrayList<>(prompts);
+        for (int i = 0; i < prompts; i++) {
+            lines.add(MAPPER.createObjectNode().put("id", "p" + i).put("prompt", "Pregunta " + i).toString());
+        }
+        Files.write(input, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+        return input;
+    }
+
+    private static Map<String, JsonNode> resultsById(Path output) throws IOException {
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : Files.readAllLines(output)) {
+            results.add(MAPPER.readTree(line));
+        }
+        // Later lines of the same id win, as for the consumers of the file
+        return results.stream().collect(Collectors.toMap(result -> result.path("id").asText(), Function.identity(),
+                (earlier, later) -> later));
+    }
+
+    private static void answer(HttpExchange exchange) throws IOException {
+        maxObservedInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        calls.incrementAndGet();
+        try {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            Thread.sleep(MODEL_LATENCY_MS);
+            if (request.toString().contains("falla")) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            ObjectNode response = MAPPER.createObjectNode();
+            response.put("model", request.path("model").asText("stub"));
+            response.put("created_at", "2025-01-01T00:00:00Z");
+            response.putObject("message").put("role", "assistant").put("content", "Java fue creado en 1995.");
+            response.put("done", true);
+            response.put("done_reason", "stop");
+            response.put("eval_count", 7);
+            byte[] body = MAPPER.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
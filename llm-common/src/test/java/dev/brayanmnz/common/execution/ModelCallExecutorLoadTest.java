@@ -0,0 +1,137 @@
+package dev.brayanmnz.common.execution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires the same burst of blocking chat calls through {@link ModelCallExecutor} on platform and on virtual threads,
+ * both capped at {@link #MAX_CONCURRENT_REQUESTS}, against a local stub of {@code /api/chat} that takes
+ * {@link #MODEL_LATENCY_MS} per answer and counts the calls it is serving. Checks that each mode keeps the backend
+ * at its cap and no further, and logs throughput and p99 latency (measured from submission, so queueing counts)
+ * for comparison; timings are not asserted.
+ */
+class ModelCallExecutorLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelCallExecutorLoadTest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final int REQUESTS = 400;
+    private static final int MAX_CONCURRENT_REQUESTS = 16;
+    private static final long MODEL_LATENCY_MS = 50;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private static HttpServer server;
+    private static ChatClient chatClient;
+
+    @BeforeAll
+    static void startStubModel() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/chat", ModelCallExecutorLoadTest::answer);
+        server.start();
+        OllamaChatModel model = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl("http://localhost:" + server.getAddress().getPort()).build())
+                .defaultOptions(OllamaOptions.builder().model("stub").build())
+                .build();
+        chatClient = ChatClient.builder(model).build();
+    }
+
+    @AfterAll
+    static void stopStubModel() {
+        server.stop(0);
+    }
+
+    @Test
+    void bothThreadModelsKeepTheBackendAtTheCap() {
+        LoadResult platform = run(false);
+        LoadResult virtual = run(true);
+        logger.info("platform threads: {}", platform);
+        logger.info("virtual threads:  {}", virtual);
+
+        assertThat(platform.completed()).isEqualTo(REQUESTS);
+        assertThat(virtual.completed()).isEqualTo(REQUESTS);
+        assertThat(platform.maxInFlight()).isEqualTo(MAX_CONCURRENT_REQUESTS);
+        assertThat(virtual.maxInFlight()).isEqualTo(MAX_CONCURRENT_REQUESTS);
+    }
+
+    private static LoadResult run(boolean virtualThreads) {
+        // As many platform threads as permits, so the two modes differ only in the kind of thread
+        ModelCallExecutor executor = new ModelCallExecutor(virtualThreads, MAX_CONCURRENT_REQUESTS,
+                MAX_CONCURRENT_REQUESTS);
+        maxInFlight.set(0);
+        try {
+            long start = System.nanoTime();
+            List<CompletableFuture<Long>> latencies = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                String question = "Pregunta " + i;
+                long submitted = System.nanoTime();
+                latencies.add(executor.submit(() -> chatClient.prompt(question).call().content())
+                        .thenApply(answer -> System.nanoTime() - submitted));
+            }
+            long[] sorted = latencies.stream().mapToLong(CompletableFuture::join).sorted().toArray();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long p99 = sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+            return new LoadResult(sorted.length, maxInFlight.get(), sorted.length / seconds, p99 / 1_000_000);
+        } finally {
+            executor.destroy();
+        }
+    }
+
+    private static void answer(HttpExchange exchange) throws IOException {
+        JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(MODEL_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("model", request.path("model").asText("stub"));
+        response.put("created_at", "2025-01-01T00:00:00Z");
+        response.putObject("message").put("role", "assistant").put("content", "Java fue creado en 1995.");
+        response.put("done", true);
+        response.put("done_reason", "stop");
+        byte[] body = MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private record LoadResult(int completed, int maxInFlight, double throughput, long p99Millis) {
+
+        @Override
+        public String toString() {
+            return String.format("%d calls, at most %d in flight, %.0f calls/s, p99 %d ms", completed, maxInFlight,
+                    throughput, p99Millis);
+        }
+    }
+}
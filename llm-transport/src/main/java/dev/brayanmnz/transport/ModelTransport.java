@@ -0,0 +1,91 @@
+package dev.brayanmnz.transport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP client every model backend call goes through: a Reactor Netty client on a connection pool with a
+ * per-host limit, shared by the blocking {@link RestClient} and the streaming {@link WebClient} builders. Only the
+ * model clients' {@code WebClient} builders decode with the {@link NdjsonDecoder}, see {@link #configure}.
+ * <p>
+ * The pool publishes the Reactor Netty {@code reactor.netty.connection.provider.*} meters (total, active, idle
+ * and pending connections per host) to the global Micrometer registry, which Spring Boot's registry joins.
+ */
+public class ModelTransport implements AutoCloseable {
+
+    static final String POOL_NAME = "model-transport";
+
+    private final ConnectionProvider connectionProvider;
+    private final HttpClient httpClient;
+    private final NdjsonDecoder ndjsonDecoder;
+
+    public ModelTransport(ModelTransportProperties properties, ObjectMapper objectMapper) {
+        this.connectionProvider = ConnectionProvider.builder(POOL_NAME)
+                .maxConnections(properties.getMaxConnectionsPerHost())
+                .pendingAcquireMaxCount(properties.getMaxPendingAcquires())
+                .pendingAcquireTimeout(properties.getAcquireTimeout())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .metrics(true)
+                .build();
+        long idleMillis = properties.getIdleTimeout().toMillis();
+        HttpClient client = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .keepAlive(true)
+                .responseTimeout(properties.getFirstByteTimeout())
+                // Only once the headers are in: the wait for them is the first-byte timeout's business
+                .doOnResponse((response, connection) -> connection.addHandlerLast("idleTimeout",
+                        new ReadTimeoutHandler(idleMillis, TimeUnit.MILLISECONDS)));
+        if (properties.isHttp2()) {
+            client = client.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        this.httpClient = client;
+        this.ndjsonDecoder = new NdjsonDecoder(objectMapper, properties.getMaxLineSize());
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Request factory for {@link RestClient}s on the shared pool.
+     */
+    public ReactorClientHttpRequestFactory requestFactory() {
+        return new ReactorClientHttpRequestFactory(httpClient);
+    }
+
+    /**
+     * Connector for {@link WebClient}s on the shared pool.
+     */
+    public ReactorClientHttpConnector clientHttpConnector() {
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    public NdjsonDecoder getNdjsonDecoder() {
+        return ndjsonDecoder;
+    }
+
+    /**
+     * Puts a model client's {@link WebClient.Builder} on the shared pool and has it decode NDJSON streams with the
+     * {@link NdjsonDecoder}. Only that builder is changed: other {@code WebClient}s of the app keep Spring Boot's
+     * codecs and limits.
+     */
+    public WebClient.Builder configure(WebClient.Builder builder) {
+        return builder.clientConnector(clientHttpConnector())
+                .codecs(configurer -> configurer.defaultCodecs().jackson2JsonDecoder(ndjsonDecoder));
+    }
+
+    @Override
+    public void close() {
+        connectionProvider.dispose();
+    }
+}
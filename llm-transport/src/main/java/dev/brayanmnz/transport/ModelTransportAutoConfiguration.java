@@ -0,0 +1,85 @@
+package dev.brayanmnz.transport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaConnectionDetails;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaConnectionProperties;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.client.RestClientAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.ClientHttpConnectorAutoConfiguration;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Puts the {@link ModelTransport} under the auto-configured {@code RestClient.Builder} and
+ * {@code WebClient.Builder}, which Spring AI builds its Ollama and OpenAI clients from, so every model call of the
+ * app shares one pool. {@code model.transport.enabled=false} leaves the builders as Spring Boot configures them.
+ * <p>
+ * The {@link NdjsonDecoder} is only registered on the Ollama client's builder: OpenAI-compatible backends stream
+ * server-sent events, which Spring AI reads as strings.
+ */
+@AutoConfiguration(after = JacksonAutoConfiguration.class,
+        before = {ClientHttpConnectorAutoConfiguration.class, RestClientAutoConfiguration.class},
+        beforeName = "org.springframework.ai.model.ollama.autoconfigure.OllamaApiAutoConfiguration")
+@ConditionalOnProperty(prefix = ModelTransportProperties.PREFIX, name = "enabled", matchIfMissing = true)
+public class ModelTransportAutoConfiguration {
+
+    @Bean(destroyMethod = "close")
+    ModelTransport modelTransport(Environment environment, ObjectProvider<ObjectMapper> objectMapper) {
+        ModelTransportProperties properties = Binder.get(environment)
+                .bind(ModelTransportProperties.PREFIX, ModelTransportProperties.class)
+                .orElseGet(ModelTransportProperties::new);
+        return new ModelTransport(properties,
+                objectMapper.getIfAvailable(() -> Jackson2ObjectMapperBuilder.json().build()));
+    }
+
+    /**
+     * Spring Boot hands this connector to every {@code WebClient.Builder} instead of creating its own.
+     */
+    @Bean
+    ClientHttpConnector modelTransportClientHttpConnector(ModelTransport modelTransport) {
+        return modelTransport.clientHttpConnector();
+    }
+
+    @Bean
+    RestClientCustomizer modelTransportRestClientCustomizer(ModelTransport modelTransport) {
+        return builder -> builder.requestFactory(modelTransport.requestFactory());
+    }
+
+    /**
+     * Spring AI's Ollama client, as its auto-configuration builds it but with the {@link NdjsonDecoder} on its own
+     * {@code WebClient.Builder}, which leaves the codecs of every other {@code WebClient} alone.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass({OllamaApi.class, OllamaConnectionDetails.class})
+    static class OllamaApiConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        OllamaApi ollamaApi(ModelTransport modelTransport, Environment environment,
+                            ObjectProvider<OllamaConnectionDetails> connectionDetails,
+                            ObjectProvider<RestClient.Builder> restClientBuilder,
+                            ObjectProvider<WebClient.Builder> webClientBuilder) {
+            OllamaConnectionDetails connection = connectionDetails.getIfAvailable(() -> Binder.get(environment)
+                    .bind(OllamaConnectionProperties.CONFIG_PREFIX, OllamaConnectionProperties.class)
+                    .orElseGet(OllamaConnectionProperties::new)::getBaseUrl);
+            return OllamaApi.builder()
+                    .baseUrl(connection.getBaseUrl())
+                    .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder))
+                    .webClientBuilder(modelTransport.configure(webClientBuilder.getIfAvailable(WebClient::builder)))
+                    .build();
+        }
+    }
+}
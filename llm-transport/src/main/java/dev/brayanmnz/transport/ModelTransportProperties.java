@@ -0,0 +1,126 @@
+package dev.brayanmnz.transport;
+
+import java.time.Duration;
+
+/**
+ * Transport settings bound from {@code model.transport.*}. Model requests are long-lived: a blocking call holds its
+ * connection for the whole generation and a streamed one until the last token, so the first-byte timeout must
+ * allow for the model loading and, for blocking calls, for the complete answer.
+ */
+public class ModelTransportProperties {
+
+    public static final String PREFIX = "model.transport";
+
+    private boolean enabled = true;
+    private int maxConnectionsPerHost = 32;
+    private int maxPendingAcquires = 256;
+    private Duration acquireTimeout = Duration.ofSeconds(45);
+    private Duration maxIdleTime = Duration.ofSeconds(60);
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration firstByteTimeout = Duration.ofMinutes(5);
+    private Duration idleTimeout = Duration.ofSeconds(60);
+    private boolean http2;
+    private int maxLineSize = 256 * 1024;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Pooled connections kept to each model host.
+     */
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    /**
+     * Requests that may wait for a connection once a host's connections are all busy.
+     */
+    public int getMaxPendingAcquires() {
+        return maxPendingAcquires;
+    }
+
+    public void setMaxPendingAcquires(int maxPendingAcquires) {
+        this.maxPendingAcquires = maxPendingAcquires;
+    }
+
+    public Duration getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public void setAcquireTimeout(Duration acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    /**
+     * How long an unused pooled connection is kept open.
+     */
+    public Duration getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(Duration maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Time from sending a request to receiving the response headers.
+     */
+    public Duration getFirstByteTimeout() {
+        return firstByteTimeout;
+    }
+
+    public void setFirstByteTimeout(Duration firstByteTimeout) {
+        this.firstByteTimeout = firstByteTimeout;
+    }
+
+    /**
+     * Longest silence allowed while a response body is being received, e.g. between two streamed tokens.
+     */
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Offer HTTP/2 (h2c on plain HTTP, h2 over TLS) with a fallback to HTTP/1.1. Ollama and llama.cpp only speak
+     * HTTP/1.1 in plain text, so this only pays off behind a proxy that terminates HTTP/2.
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    /**
+     * Largest single NDJSON line (one streamed chunk) the decoder buffers.
+     */
+    public int getMaxLineSize() {
+        return maxLineSize;
+    }
+
+    public void setMaxLineSize(int maxLineSize) {
+        this.maxLineSize = maxLineSize;
+    }
+}
@@ -0,0 +1,152 @@
+package dev.brayanmnz.transport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * {@link Jackson2JsonDecoder} that decodes {@code application/x-ndjson} streams, such as Ollama's streamed chat
+ * responses, one line at a time: the bytes of a line are copied into one array reused for the whole stream and
+ * Jackson parses the value straight from it. The default decoder tokenizes the stream into a {@code TokenBuffer}
+ * per value and parses that again. Other media types are left to the default decoder.
+ */
+public class NdjsonDecoder extends Jackson2JsonDecoder {
+
+    private static final IntPredicate NEWLINE = b -> b == '\n';
+
+    private final int maxLineSize;
+
+    public NdjsonDecoder(int maxLineSize) {
+        this(Jackson2ObjectMapperBuilder.json().build(), maxLineSize);
+    }
+
+    public NdjsonDecoder(ObjectMapper objectMapper, int maxLineSize) {
+        super(objectMapper);
+        this.maxLineSize = maxLineSize;
+    }
+
+    /**
+     * Largest NDJSON line buffered. Other media types keep the decoder's max in-memory size.
+     */
+    public int getMaxLineSize() {
+        return maxLineSize;
+    }
+
+    @Override
+    public Flux<Object> decode(Publisher<DataBuffer> input, ResolvableType elementType, MimeType mimeType,
+                               Map<String, Object> hints) {
+        ObjectMapper mapper = mimeType != null && MediaType.APPLICATION_NDJSON.isCompatibleWith(mimeType)
+                ? selectObjectMapper(elementType, mimeType)
+                : null;
+        if (mapper == null) {
+            return super.decode(input, elementType, mimeType, hints);
+        }
+        ObjectReader reader = customizeReader(mapper.readerFor(getJavaType(elementType.getType(), null)),
+                elementType, hints);
+        return Flux.defer(() -> {
+            Lines lines = new Lines(reader, maxLineSize);
+            return Flux.from(input)
+                    .concatMapIterable(lines::split)
+                    .concatWith(Mono.fromCallable(lines::last));
+        }).doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    /**
+     * The line being assembled across buffers, for one stream.
+     */
+    private static final class Lines {
+
+        private final ObjectReader reader;
+        private final int maxLineSize;
+        private byte[] line = new byte[1024];
+        private int length;
+
+        private Lines(ObjectReader reader, int maxLineSize) {
+            this.reader = reader;
+            this.maxLineSize = maxLineSize;
+        }
+
+        List<Object> split(DataBuffer buffer) {
+            try {
+                List<Object> values = List.of();
+                int end = buffer.writePosition();
+                int position = buffer.readPosition();
+                while (position < end) {
+                    int newline = buffer.indexOf(NEWLINE, position);
+                    int stop = newline == -1 ? end : newline;
+                    append(buffer, position, stop - position);
+                    if (newline == -1) {
+                        break;
+                    }
+                    Object value = parse();
+                    if (value != null) {
+                        // A streamed chunk is almost always one line per buffer
+                        if (values.isEmpty()) {
+                            values = List.of(value);
+                        } else {
+                            if (!(values instanceof ArrayList)) {
+                                values = new ArrayList<>(values);
+                            }
+                            values.add(value);
+                        }
+                    }
+                    position = newline + 1;
+                }
+                return values;
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+        }
+
+        Object last() {
+            return parse();
+        }
+
+        private void append(DataBuffer buffer, int position, int count) {
+            if (length + count > maxLineSize) {
+                throw new DataBufferLimitException("NDJSON line exceeds the limit of " + maxLineSize + " bytes");
+            }
+            if (length + count > line.length) {
+                byte[] grown = new byte[Math.min(maxLineSize, Math.max(line.length * 2, length + count))];
+                System.arraycopy(line, 0, grown, 0, length);
+                line = grown;
+            }
+            buffer.readPosition(position);
+            buffer.read(line, length, count);
+            length += count;
+        }
+
+        private Object parse() {
+            int size = length;
+            length = 0;
+            if (size > 0 && line[size - 1] == '\r') {
+                size--;
+            }
+            if (size == 0) {
+                return null;
+            }
+            try {
+                return reader.readValue(line, 0, size);
+            } catch (IOException e) {
+                throw new DecodingException("JSON decoding error: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package dev.brayanmnz.transport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaApiAutoConfiguration;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.http.codec.CodecsAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.client.HttpClientAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.client.RestClientAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.ClientHttpConnectorAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.http.codec.DecoderHttpMessageReader;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that the auto-configured client builders go through the pooled transport, against a local server that
+ * streams NDJSON lines with a pause before each one.
+ */
+class ModelTransportAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ModelTransportAutoConfiguration.class,
+                    JacksonAutoConfiguration.class, CodecsAutoConfiguration.class,
+                    ClientHttpConnectorAutoConfiguration.class, WebClientAutoConfiguration.class,
+                    HttpMessageConvertersAutoConfiguration.class, HttpClientAutoConfiguration.class,
+                    RestClientAutoConfiguration.class))
+            .withPropertyValues("model.transport.max-connections-per-host=2");
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HttpServer server;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Set<Integer> clients = ConcurrentHashMap.newKeySet();
+    private volatile Duration pause = Duration.ofMillis(50);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/chat", this::stream);
+        server.start();
+        Metrics.addRegistry(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        Metrics.removeRegistry(meterRegistry);
+    }
+
+    @Test
+    void streamsOverAPoolLimitedPerHost() {
+        contextRunner.run(context -> {
+            WebClient client = context.getBean(WebClient.Builder.class).baseUrl(baseUrl()).build();
+
+            List<List<Chunk>> answers = Flux.range(0, 6)
+                    .flatMap(i -> client.get().uri("/api/chat").retrieve().bodyToFlux(Chunk.class).collectList())
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+
+            assertThat(answers).hasSize(6).allSatisfy(chunks ->
+                    assertThat(chunks).extracting(Chunk::content).containsExactly("La ", "tasa", "."));
+            assertThat(maxInFlight).hasValue(2);
+            assertThat(clients).as("connections opened").hasSize(2);
+            Gauge connections = meterRegistry.find("reactor.netty.connection.provider.total.connections")
+                    .tags("name", ModelTransport.POOL_NAME, "remote.address", "localhost:" + port())
+                    .gauge();
+            assertThat(connections).isNotNull();
+            assertThat(connections.value()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void failsAStreamThatGoesSilent() {
+        pause = Duration.ofMillis(800);
+        contextRunner.withPropertyValues("model.transport.idle-timeout=300ms").run(context -> {
+            WebClient client = context.getBean(WebClient.Builder.class).baseUrl(baseUrl()).build();
+
+            assertThatThrownBy(() -> client.get().uri("/api/chat").retrieve().bodyToFlux(Chunk.class)
+                    .blockLast(Duration.ofSeconds(10)))
+                    .hasRootCauseInstanceOf(ReadTimeoutException.class);
+        });
+    }
+
+    @Test
+    void onlyModelClientsDecodeWithTheNdjsonDecoder() {
+        contextRunner.withPropertyValues("spring.codec.max-in-memory-size=2MB").run(context -> {
+            ModelTransport modelTransport = context.getBean(ModelTransport.class);
+
+            assertThat(jsonDecoder(context.getBean(WebClient.Builder.class)))
+                    .isNotInstanceOf(NdjsonDecoder.class)
+                    .extracting(Jackson2JsonDecoder::getMaxInMemorySize).isEqualTo(2 * 1024 * 1024);
+            assertThat(jsonDecoder(modelTransport.configure(context.getBean(WebClient.Builder.class))))
+                    .isSameAs(modelTransport.getNdjsonDecoder());
+        });
+    }
+
+    @Test
+    void buildsTheOllamaClientOnTheTransport() {
+        contextRunner.withConfiguration(AutoConfigurations.of(OllamaApiAutoConfiguration.class)).run(context ->
+                assertThat(context).hasSingleBean(OllamaApi.class)
+                        .getBean(OllamaApi.class)
+                        .isSameAs(context.getBean("ollamaApi")));
+    }
+
+    @Test
+    void blockingClientsShareTheTransport() {
+        contextRunner.run(context -> {
+            RestClient client = context.getBean(RestClient.Builder.class).baseUrl(baseUrl()).build();
+
+            String body = client.get().uri("/api/chat").retrieve().body(String.class);
+
+            assertThat(body).contains("\"done\":true");
+        });
+    }
+
+    private static Jackson2JsonDecoder jsonDecoder(WebClient.Builder builder) {
+        List<Jackson2JsonDecoder> decoders = new ArrayList<>();
+        builder.codecs(configurer -> configurer.getReaders().stream()
+                        .filter(DecoderHttpMessageReader.class::isInstance)
+                        .map(reader -> ((DecoderHttpMessageReader<?>) reader).getDecoder())
+                        .filter(Jackson2JsonDecoder.class::isInstance)
+                        .forEach(decoder -> decoders.add((Jackson2JsonDecoder) decoder)))
+                .build();
+        assertThat(decoders).hasSize(1);
+        return decoders.getFirst();
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + port();
+    }
+
+    private int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void stream(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        clients.add(exchange.getRemoteAddress().getPort());
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (String content : List.of("La ", "tasa", ".")) {
+                    Thread.sleep(pause);
+                    body.write(("{\"content\":\"" + content + "\",\"done\":" + content.equals(".") + "}\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The client gave up on the stream
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    record Chunk(String content, boolean done) {
+    }
+}
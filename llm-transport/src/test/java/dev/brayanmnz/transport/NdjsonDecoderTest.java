@@ -0,0 +1,70 @@
+package dev.brayanmnz.transport;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NdjsonDecoderTest {
+
+    private static final ResolvableType CHUNK = ResolvableType.forClass(Chunk.class);
+
+    private final NdjsonDecoder decoder = new NdjsonDecoder(1024);
+
+    @Test
+    void decodesLinesSplitAnyWayAcrossBuffers() {
+        String stream = """
+                {"model":"gemma3:4b","message":{"content":"La "},"done":false}
+                {"model":"gemma3:4b","message":{"content":"tasa"},"done":false,"extra":1}\r
+                {"model":"gemma3:4b","message":{"content":"."},"done":true}""";
+        List<Chunk> expected = List.of(new Chunk("gemma3:4b", new Message("La "), false),
+                new Chunk("gemma3:4b", new Message("tasa"), false), new Chunk("gemma3:4b", new Message("."), true));
+
+        for (int size : new int[] {1, 7, 64, stream.length()}) {
+            assertThat(decode(decoder, split(stream, size))).as("buffers of %d bytes", size)
+                    .isEqualTo(expected)
+                    .isEqualTo(decode(new Jackson2JsonDecoder(), split(stream, size)));
+        }
+    }
+
+    @Test
+    void rejectsLinesOverTheLimit() {
+        String line = "{\"model\":\"" + "x".repeat(2000) + "\"}\n";
+
+        assertThatThrownBy(() -> decode(decoder, split(line, 100)))
+                .isInstanceOf(DataBufferLimitException.class);
+    }
+
+    private static List<Object> decode(Jackson2JsonDecoder decoder, Flux<DataBuffer> buffers) {
+        return decoder.decode(buffers, CHUNK, MediaType.APPLICATION_NDJSON, Map.of()).collectList().block();
+    }
+
+    private static Flux<DataBuffer> split(String text, int size) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size) {
+            byte[] part = new byte[Math.min(size, bytes.length - i)];
+            System.arraycopy(bytes, i, part, 0, part.length);
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(part));
+        }
+        return Flux.fromIterable(buffers);
+    }
+
+    record Chunk(String model, Message message, boolean done) {
+    }
+
+    record Message(String content) {
+    }
+}
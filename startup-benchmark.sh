@@ -0,0 +1,72 @@
+#!/usr/bin/env bash
+# Startup benchmark for the CLI apps: time to the first model request and peak RSS at that point, per start mode.
+#
+#   ./startup-benchmark.sh [ollama-local|docker-model-runner] [runs]
+#
+# Builds the app with -Pfast-start, then starts it `runs` times (default 5) in each mode and reports the medians:
+#   default      java -jar, full web stack, as the app ships
+#   fast-start   the fast-start profile: no web server, lazy beans, unused AI auto-configurations off
+#   +aot         fast-start on the AOT-processed context
+#   +aot+cds     fast-start on the AOT context, from the extracted jar with the CDS archive
+#
+# Time to first request is the "process running for" time Spring Boot logs once the context is up, right before the
+# runner sends its first prompt, so no model server is needed: each run is stopped there. RSS is the peak resident
+# set size read from /proc (Linux only).
+set -euo pipefail
+
+app=${1:-ollama-local}
+runs=${2:-5}
+root=$(cd "$(dirname "$0")" && pwd)
+target="$root/$app/target"
+jar="$app-0.0.1-SNAPSHOT.jar"
+
+# From the root, so the reactor also builds the modules the app depends on (-am) instead of taking stale copies from
+# the local repository
+(cd "$root" && ./mvnw -q -B -pl "$app" -am -Pfast-start -DskipTests package)
+
+# Prints "<seconds> <peak RSS in MB>" for one run of the given command
+measure() {
+    local log
+    log=$(mktemp)
+    "$@" >"$log" 2>&1 &
+    local pid=$! seconds="" rss=""
+    for _ in $(seq 1 600); do
+        seconds=$(sed -n 's/.*process running for \([0-9.]*\)).*/\1/p' "$log")
+        if [[ -n $seconds ]]; then
+            rss=$(awk '/VmHWM/ {printf "%.0f", $2 / 1024}' "/proc/$pid/status" 2>/dev/null || true)
+            break
+        fi
+        if ! kill -0 "$pid" 2>/dev/null; then
+            break
+        fi
+        sleep 0.1
+    done
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+    if [[ -z $seconds ]]; then
+        echo "Run did not start, see its log: $log" >&2
+        exit 1
+    fi
+    rm -f "$log"
+    echo "$seconds ${rss:-0}"
+}
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+report() {
+    local mode=$1 results
+    shift
+    results=$(for _ in $(seq 1 "$runs"); do measure "$@"; done)
+    printf "%-12s %14s s %10s MB\n" "$mode" "$(cut -d' ' -f1 <<<"$results" | median)" \
+        "$(cut -d' ' -f2 <<<"$results" | median)"
+}
+
+printf "%-12s %16s %13s\n" "mode" "first request" "peak RSS"
+report default java -jar "$target/$jar"
+report fast-start java -Dspring.profiles.active=fast-start -jar "$target/$jar"
+report +aot java -Dspring.aot.enabled=true -Dspring.profiles.active=fast-start -jar "$target/$jar"
+cd "$target/fast-start"
+report +aot+cds java -XX:SharedArchiveFile=application.jsa -Xlog:cds=off -Dspring.aot.enabled=true \
+    -Dspring.profiles.active=fast-start -jar "$jar"